@@ -9,9 +9,11 @@ import vn.liora.config.StorageProperties;
 import vn.liora.service.IStorageService;
 
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 @EnableConfigurationProperties({ StorageProperties.class })
 public class LioraApplication {
 
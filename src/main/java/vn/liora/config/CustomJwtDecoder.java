@@ -1,7 +1,5 @@
 package vn.liora.config;
 
-import com.nimbusds.jose.JOSEException;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -9,45 +7,99 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
-import vn.liora.dto.request.IntrospectRequest;
-import vn.liora.service.IAuthenticationService;
+import vn.liora.service.auth.TokenRevocationRegistry;
 
 import javax.crypto.spec.SecretKeySpec;
-import java.text.ParseException;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Giải mã JWT cho mỗi request: kiểm tra chữ ký HS512 và hạn token đúng một lần (qua Nimbus),
+ * kiểm tra thu hồi qua {@link TokenRevocationRegistry} (không gọi DB).
+ * Token đã kiểm tra được cache theo SHA-256 của token đến khi hết hạn, tối đa
+ * {@code jwt.decoder.cache-size} token; các request sau chỉ còn tra cache và tập JTI bị thu hồi.
+ */
 @Component
 public class CustomJwtDecoder implements JwtDecoder {
-    @Value("${jwt.signerKey}")
-    private String signerKey;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
 
-    @Autowired
-    private IAuthenticationService authenticationService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final NimbusJwtDecoder nimbusJwtDecoder;
+    private final int cacheSize;
 
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
+    private final Map<String, Jwt> verifiedTokens = new ConcurrentHashMap<>();
+
+    public CustomJwtDecoder(
+            TokenRevocationRegistry tokenRevocationRegistry,
+            @Value("${jwt.signerKey}") String signerKey,
+            @Value("${jwt.decoder.cache-size:10000}") int cacheSize) {
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.cacheSize = cacheSize;
+        SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
+        this.nimbusJwtDecoder = NimbusJwtDecoder
+                .withSecretKey(secretKeySpec)
+                .macAlgorithm(MacAlgorithm.HS512)
+                .build();
+    }
 
     @Override
     public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Instant now = Instant.now();
 
-        try {
-            var response = authenticationService.introspect(IntrospectRequest.builder()
-                    .token(token)
-                    .build());
-
-            if (!response.isValid())
-                throw new JwtException("Token invalid");
-        } catch (JOSEException | ParseException e) {
-            throw new JwtException(e.getMessage());
+        Jwt jwt = verifiedTokens.get(key);
+        if (jwt != null && !isExpired(jwt, now)) {
+            checkNotRevoked(jwt);
+            return jwt;
+        }
+        if (jwt != null) {
+            verifiedTokens.remove(key);
         }
 
-        if (Objects.isNull(nimbusJwtDecoder)) {
-            SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
-            nimbusJwtDecoder = NimbusJwtDecoder
-                    .withSecretKey(secretKeySpec)
-                    .macAlgorithm(MacAlgorithm.HS512)
-                    .build();
+        // Kiểm tra chữ ký + exp/nbf
+        jwt = nimbusJwtDecoder.decode(token);
+        checkNotRevoked(jwt);
+        cache(key, jwt, now);
+        return jwt;
+    }
+
+    private void checkNotRevoked(Jwt jwt) {
+        if (tokenRevocationRegistry.isRevoked(jwt.getId())) {
+            throw new JwtException("Token invalid");
         }
+    }
+
+    private void cache(String key, Jwt jwt, Instant now) {
+        if (jwt.getExpiresAt() == null) {
+            return;
+        }
+        if (verifiedTokens.size() >= cacheSize) {
+            verifiedTokens.values().removeIf(cached -> isExpired(cached, now));
+            if (verifiedTokens.size() >= cacheSize) {
+                // Vẫn đầy sau khi dọn token hết hạn: bỏ qua cache, token vẫn được kiểm tra bình thường
+                return;
+            }
+        }
+        verifiedTokens.put(key, jwt);
+    }
+
+    private static boolean isExpired(Jwt jwt, Instant now) {
+        return jwt.getExpiresAt() == null || !jwt.getExpiresAt().isAfter(now);
+    }
 
-        return nimbusJwtDecoder.decode(token);
+    private static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
     }
-}
\ No newline at end of file
+}
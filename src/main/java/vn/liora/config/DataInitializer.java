@@ -9,6 +9,7 @@ import vn.liora.entity.Permission;
 import vn.liora.entity.Role;
 import vn.liora.repository.PermissionRepository;
 import vn.liora.repository.RoleRepository;
+import vn.liora.service.auth.RolePermissionCache;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -22,11 +23,13 @@ public class DataInitializer implements CommandLineRunner {
 
     private final PermissionRepository permissionRepository;
     private final RoleRepository roleRepository;
+    private final RolePermissionCache rolePermissionCache;
 
     @Override
     public void run(String... args) throws Exception {
         initializePermissions();
         initializeRoles();
+        rolePermissionCache.invalidate();
     }
 
     private void initializePermissions() {
@@ -11,7 +11,7 @@ import java.util.UUID;
 @Component
 public class GuestCartInterceptor implements HandlerInterceptor {
     public static final String GUEST_CART_ID_COOKIE_NAME = "guest_cart_id";
-    private static final int MAX_AGE = 7 * 24 * 60 * 60; // 1 tuần
+    public static final int MAX_AGE = 7 * 24 * 60 * 60; // 1 tuần
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
@@ -103,7 +103,9 @@ public class SecurityConfig {
                                 // Discount API endpoints (for public access)
                                 "/discounts/**",
                                 // Debug endpoints (for troubleshooting)
-                                "/debug/**"
+                                "/debug/**",
+                                // Prometheus scrape (controller chỉ cho phép IP trong metrics.prometheus.allowed-ips)
+                                "/internal/metrics/**"
                 };
         }
 
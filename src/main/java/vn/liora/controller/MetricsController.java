@@ -0,0 +1,54 @@
+package vn.liora.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import vn.liora.service.metrics.ServiceMetrics;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Endpoint cho Prometheus scrape. Không cần đăng nhập nhưng chỉ trả lời các IP trong
+ * {@code metrics.prometheus.allowed-ips} (mặc định chỉ localhost).
+ */
+@RestController
+@RequestMapping("/internal/metrics")
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final ServiceMetrics serviceMetrics;
+    private final boolean enabled;
+    private final Set<String> allowedIps;
+
+    public MetricsController(
+            ServiceMetrics serviceMetrics,
+            @Value("${metrics.prometheus.enabled:true}") boolean enabled,
+            @Value("${metrics.prometheus.allowed-ips:127.0.0.1,0:0:0:0:0:0:0:1,::1}") String allowedIps) {
+        this.serviceMetrics = serviceMetrics;
+        this.enabled = enabled;
+        this.allowedIps = Arrays.stream(allowedIps.split(","))
+                .map(String::trim)
+                .filter(ip -> !ip.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @GetMapping("/prometheus")
+    public ResponseEntity<String> prometheus(HttpServletRequest request) {
+        if (!enabled) {
+            return ResponseEntity.notFound().build();
+        }
+        // Dùng địa chỉ kết nối thật, không tin X-Forwarded-For để tránh bị giả mạo
+        if (!allowedIps.contains(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(serviceMetrics.prometheus());
+    }
+}
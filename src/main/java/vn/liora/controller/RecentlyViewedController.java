@@ -12,8 +12,7 @@ import org.springframework.web.bind.annotation.*;
 import vn.liora.config.GuestCartInterceptor;
 import vn.liora.dto.RecentlyViewedDTO;
 import vn.liora.service.RecentlyViewedService;
-import vn.liora.repository.UserRepository;
-import vn.liora.entity.User;
+import vn.liora.service.auth.CurrentUserResolver;
 
 import java.util.HashMap;
 import java.util.List;
@@ -26,7 +25,7 @@ import java.util.Map;
 public class RecentlyViewedController {
     
     private final RecentlyViewedService recentlyViewedService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     
     @PostMapping("/track")
     public ResponseEntity<Map<String, Object>> trackProductView(
@@ -49,20 +48,7 @@ public class RecentlyViewedController {
             boolean isGuest = (auth == null) || !auth.isAuthenticated() 
                 || "anonymousUser".equals(String.valueOf(auth.getPrincipal()));
             
-            Long userId = null;
-            if (!isGuest) {
-                String principalName = auth.getName();
-                User user = userRepository.findByUsername(principalName)
-                    .orElseGet(() -> {
-                        if (principalName != null && principalName.contains("@")) {
-                            return userRepository.findByEmail(principalName).orElse(null);
-                        }
-                        return null;
-                    });
-                if (user != null) {
-                    userId = user.getUserId();
-                }
-            }
+            Long userId = isGuest ? null : currentUserResolver.resolveUserId(auth).orElse(null);
             
             RecentlyViewedDTO result = recentlyViewedService.trackProductView(productId, userId, guestId);
             
@@ -105,20 +91,7 @@ public class RecentlyViewedController {
             boolean isGuest = (auth == null) || !auth.isAuthenticated() 
                 || "anonymousUser".equals(String.valueOf(auth.getPrincipal()));
             
-            Long userId = null;
-            if (!isGuest) {
-                String principalName = auth.getName();
-                User user = userRepository.findByUsername(principalName)
-                    .orElseGet(() -> {
-                        if (principalName != null && principalName.contains("@")) {
-                            return userRepository.findByEmail(principalName).orElse(null);
-                        }
-                        return null;
-                    });
-                if (user != null) {
-                    userId = user.getUserId();
-                }
-            }
+            Long userId = isGuest ? null : currentUserResolver.resolveUserId(auth).orElse(null);
             
             List<RecentlyViewedDTO> list = recentlyViewedService.getRecentlyViewed(userId, guestId, limit);
             
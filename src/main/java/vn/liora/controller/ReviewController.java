@@ -17,9 +17,9 @@ import vn.liora.dto.response.ReviewResponse;
 import vn.liora.entity.User;
 import vn.liora.exception.AppException;
 import vn.liora.exception.ErrorCode;
-import vn.liora.repository.UserRepository;
 import vn.liora.service.IProductService;
 import vn.liora.service.IReviewService;
+import vn.liora.service.auth.CurrentUserResolver;
 
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +36,7 @@ public class ReviewController {
     private IReviewService reviewService;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserResolver currentUserResolver;
     
     @Autowired
     private IProductService productService;
@@ -274,30 +274,7 @@ public class ReviewController {
      * Tìm user từ authentication, hỗ trợ cả JWT và OAuth2
      */
     private User findUserByPrincipal(Authentication authentication) {
-        String principalName = authentication.getName();
-
-        // 1. Thử tìm bằng username trước
-        User user = userRepository.findByUsername(principalName).orElse(null);
-        if (user != null) {
-            return user;
-        }
-
-        // 2. Thử tìm bằng email nếu principal name chứa @
-        if (principalName != null && principalName.contains("@")) {
-            user = userRepository.findByEmail(principalName).orElse(null);
-            if (user != null) {
-                return user;
-            }
-        }
-
-        // 3. Nếu là OAuth2 user, lấy user từ CustomOAuth2User
-        if (authentication.getPrincipal() instanceof vn.liora.dto.CustomOAuth2User) {
-            vn.liora.dto.CustomOAuth2User customOAuth2User = (vn.liora.dto.CustomOAuth2User) authentication
-                    .getPrincipal();
-            return customOAuth2User.getUser();
-        }
-
-        return null;
+        return currentUserResolver.resolveUser(authentication).orElse(null);
     }
 
     /**
@@ -0,0 +1,67 @@
+package vn.liora.controller.admin;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import vn.liora.service.IExportService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Xuất CSV cho admin. Dữ liệu được ghi thẳng ra response theo từng dòng
+ * nên bộ nhớ không tăng theo số lượng bản ghi.
+ */
+@RestController
+@RequestMapping("/admin/api/export")
+@RequiredArgsConstructor
+public class AdminExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final IExportService exportService;
+
+    @GetMapping("/orders.csv")
+    @PreAuthorize("hasAuthority('order.view')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String orderStatus) {
+        return csv("orders", out -> exportService.exportOrdersCsv(startDate, endDate, orderStatus, out));
+    }
+
+    @GetMapping("/revenue.csv")
+    @PreAuthorize("hasAuthority('order.view')")
+    public ResponseEntity<StreamingResponseBody> exportRevenue(
+            @RequestParam(defaultValue = "time") String type, // time/category/brand
+            @RequestParam(required = false, defaultValue = "day") String groupType, // chỉ dùng cho "time"
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        String report = switch (type.toLowerCase()) {
+            case "category", "brand" -> type.toLowerCase();
+            default -> "time";
+        };
+        return csv("revenue-" + report,
+                out -> exportService.exportRevenueCsv(type, groupType, startDate, endDate, out));
+    }
+
+    @GetMapping("/products.csv")
+    @PreAuthorize("hasAuthority('product.view')")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return csv("products", exportService::exportProductsCsv);
+    }
+
+    private ResponseEntity<StreamingResponseBody> csv(String name, StreamingResponseBody body) {
+        String fileName = name + "-" + LocalDate.now() + ".csv";
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+}
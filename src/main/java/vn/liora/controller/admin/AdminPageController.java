@@ -2,16 +2,19 @@ package vn.liora.controller.admin;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import vn.liora.dto.response.TopCustomerResponse;
 import vn.liora.service.IBrandService;
 import vn.liora.service.ICategoryService;
 import vn.liora.service.IDashboardService;
+import vn.liora.service.dashboard.DashboardEventStream;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -28,6 +31,7 @@ public class AdminPageController {
     private final ICategoryService categoryService;
     private final IBrandService brandService;
     private final IDashboardService dashboardService;
+    private final DashboardEventStream dashboardEventStream;
 
     private void addCurrentUserToModel(Model model) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -182,6 +186,13 @@ public class AdminPageController {
         return result;
     }
 
+    // SSE: đẩy cập nhật đơn hàng / tồn kho cho dashboard thay vì poll
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamDashboardUpdates() {
+        return dashboardEventStream.subscribe();
+    }
+
     // Dashboard
     @GetMapping({ "", "/", "/dashboard" })
     public String dashboard(Model model) {
@@ -191,7 +202,7 @@ public class AdminPageController {
         model.addAttribute("totalProducts", dashboardService.getTotalProducts());
         model.addAttribute("totalCustomers", dashboardService.getTotalCustomers());
         model.addAttribute("pendingOrders", dashboardService.getPendingOrders());
-        model.addAttribute("lowStockProducts", dashboardService.getLowStockProductsList(10));
+        model.addAttribute("lowStockProducts", dashboardService.getLowStockProductsList(IDashboardService.LOW_STOCK_THRESHOLD));
         model.addAttribute("todayRevenue", dashboardService.getTodayRevenue());
         model.addAttribute("conversionRate", dashboardService.getConversionRate());
 
@@ -343,7 +354,7 @@ public class AdminPageController {
 
         model.addAttribute("recentOrders", dashboardService.getRecentOrders(15));
         model.addAttribute("topProducts", dashboardService.getTopProducts(15));
-        model.addAttribute("lowStockProducts", dashboardService.getLowStockProductsList(10));
+        model.addAttribute("lowStockProducts", dashboardService.getLowStockProductsList(IDashboardService.LOW_STOCK_THRESHOLD));
         model.addAttribute("topCustomers", dashboardService.getTopCustomers(10));
         return "admin/analytics/index";
     }
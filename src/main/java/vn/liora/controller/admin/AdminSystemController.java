@@ -0,0 +1,141 @@
+package vn.liora.controller.admin;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import vn.liora.dto.request.ApiResponse;
+import vn.liora.service.auth.InvalidatedTokenPurgeJob;
+import vn.liora.service.cart.GuestCartPurgeJob;
+import vn.liora.service.decorator.CachingReviewServiceDecorator;
+import vn.liora.service.metrics.ServiceMetrics;
+import vn.liora.service.recent.RecentlyViewedBuffer;
+import vn.liora.service.recent.RecentlyViewedRetentionJob;
+import vn.liora.service.review.ReviewSearchIndex;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/api/system")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@PreAuthorize("hasAuthority('system.logs')")
+public class AdminSystemController {
+    InvalidatedTokenPurgeJob invalidatedTokenPurgeJob;
+    CachingReviewServiceDecorator reviewCache;
+    ServiceMetrics serviceMetrics;
+    ReviewSearchIndex reviewSearchIndex;
+    RecentlyViewedBuffer recentlyViewedBuffer;
+    RecentlyViewedRetentionJob recentlyViewedRetentionJob;
+    GuestCartPurgeJob guestCartPurgeJob;
+
+    // Số liệu bảng InvalidatedToken và job xóa token hết hạn
+    @GetMapping("/invalidated-tokens")
+    ApiResponse<Map<String, Object>> invalidatedTokenStats() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(invalidatedTokenPurgeJob.stats())
+                .build();
+    }
+
+    // Chạy purge ngay, không chờ lịch
+    @PostMapping("/invalidated-tokens/purge")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Map<String, Object>> purgeInvalidatedTokens() {
+        invalidatedTokenPurgeJob.purge();
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(invalidatedTokenPurgeJob.stats())
+                .build();
+    }
+
+    // Hit / miss của cache review theo sản phẩm
+    @GetMapping("/review-cache")
+    ApiResponse<Map<String, Object>> reviewCacheStats() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(reviewCache.stats())
+                .build();
+    }
+
+    @PostMapping("/review-cache/clear")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Map<String, Object>> clearReviewCache() {
+        reviewCache.evictAll();
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(reviewCache.stats())
+                .build();
+    }
+
+    // Thời gian chạy theo method service, method tốn nhiều thời gian nhất đứng đầu
+    @GetMapping("/service-metrics")
+    ApiResponse<List<Map<String, Object>>> serviceMetrics() {
+        return ApiResponse.<List<Map<String, Object>>>builder()
+                .result(serviceMetrics.snapshot())
+                .build();
+    }
+
+    @PostMapping("/service-metrics/reset")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Void> resetServiceMetrics() {
+        serviceMetrics.reset();
+        return ApiResponse.<Void>builder().build();
+    }
+
+    // Chỉ mục tìm kiếm review của màn hình kiểm duyệt
+    @GetMapping("/review-search-index")
+    ApiResponse<Map<String, Object>> reviewSearchIndexStats() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(reviewSearchIndex.stats())
+                .build();
+    }
+
+    // Dựng lại ngay (vd. sau khi đổi thương hiệu / danh mục của nhiều sản phẩm)
+    @PostMapping("/review-search-index/rebuild")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Map<String, Object>> rebuildReviewSearchIndex() {
+        reviewSearchIndex.rebuild();
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(reviewSearchIndex.stats())
+                .build();
+    }
+
+    // Bộ đệm ghi sau của lượt xem sản phẩm và job dọn bảng RecentlyViewed
+    @GetMapping("/recently-viewed")
+    ApiResponse<Map<String, Object>> recentlyViewedStats() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(recentlyViewedStatsMap())
+                .build();
+    }
+
+    @PostMapping("/recently-viewed/purge")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Map<String, Object>> purgeRecentlyViewed() {
+        recentlyViewedRetentionJob.purge();
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(recentlyViewedStatsMap())
+                .build();
+    }
+
+    // Job dọn giỏ hàng guest bị bỏ quên
+    @GetMapping("/guest-carts")
+    ApiResponse<Map<String, Object>> guestCartStats() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(guestCartPurgeJob.stats())
+                .build();
+    }
+
+    @PostMapping("/guest-carts/purge")
+    @PreAuthorize("hasAuthority('system.settings')")
+    ApiResponse<Map<String, Object>> purgeGuestCarts() {
+        guestCartPurgeJob.purge();
+        return ApiResponse.<Map<String, Object>>builder()
+                .result(guestCartPurgeJob.stats())
+                .build();
+    }
+
+    private Map<String, Object> recentlyViewedStatsMap() {
+        return Map.of(
+                "buffer", recentlyViewedBuffer.stats(),
+                "retention", recentlyViewedRetentionJob.stats());
+    }
+}
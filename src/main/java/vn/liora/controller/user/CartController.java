@@ -14,12 +14,11 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import vn.liora.config.GuestCartInterceptor;
 import vn.liora.dto.response.CartItemResponse;
-import vn.liora.entity.User;
 import vn.liora.exception.AppException;
 import vn.liora.exception.ErrorCode;
-import vn.liora.repository.UserRepository;
 import vn.liora.service.ICartItemService;
 import vn.liora.service.ICartService;
+import vn.liora.service.auth.CurrentUserResolver;
 
 import java.util.List;
 
@@ -31,7 +30,7 @@ public class CartController {
 
     final ICartService cartService;
     final ICartItemService cartItemService;
-    final UserRepository userRepository;
+    final CurrentUserResolver currentUserResolver;
 
     @GetMapping("/cart")
     public String viewCart() {
@@ -56,13 +55,29 @@ public class CartController {
     }
 
     /**
-     * API để lấy thông tin giỏ hàng của user hiện tại
+     * API để lấy thông tin giỏ hàng của user hiện tại.
+     * Khách chưa thêm sản phẩm nào thì chưa có giỏ: cartId = null.
      */
     @GetMapping("/cart/api/current")
     @ResponseBody
     public ResponseEntity<?> getCurrentUserCart(
             @CookieValue(name = GuestCartInterceptor.GUEST_CART_ID_COOKIE_NAME, required = false) String guestCartId,
             HttpServletResponse response) {
+        return currentCart(guestCartId, response, false);
+    }
+
+    /**
+     * API lấy hoặc tạo giỏ hàng hiện tại, gọi trước khi thêm sản phẩm vào giỏ
+     */
+    @PostMapping("/cart/api/current")
+    @ResponseBody
+    public ResponseEntity<?> getOrCreateCurrentUserCart(
+            @CookieValue(name = GuestCartInterceptor.GUEST_CART_ID_COOKIE_NAME, required = false) String guestCartId,
+            HttpServletResponse response) {
+        return currentCart(guestCartId, response, true);
+    }
+
+    private ResponseEntity<?> currentCart(String guestCartId, HttpServletResponse response, boolean create) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             boolean isGuest = (authentication == null)
@@ -71,19 +86,8 @@ public class CartController {
 
             Long userId = null;
             if (!isGuest) {
-                String principalName = authentication.getName();
-                User user = userRepository.findByUsername(principalName)
-                        .orElseGet(() -> {
-                            // Fallback: một số provider trả email làm name
-                            if (principalName != null && principalName.contains("@")) {
-                                return userRepository.findByEmail(principalName).orElse(null);
-                            }
-                            return null;
-                        });
-                if (user == null) {
-                    throw new AppException(ErrorCode.USER_NOT_FOUND);
-                }
-                userId = user.getUserId();
+                userId = currentUserResolver.resolveUserId(authentication)
+                        .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
             }
 
             // Nếu là khách và chưa có guestCartId (request đầu tiên), tạo ngay cookie để
@@ -93,12 +97,12 @@ public class CartController {
                 jakarta.servlet.http.Cookie cookie = new jakarta.servlet.http.Cookie(
                         GuestCartInterceptor.GUEST_CART_ID_COOKIE_NAME, newGuestId);
                 cookie.setPath("/");
-                cookie.setMaxAge(7 * 24 * 60 * 60);
+                cookie.setMaxAge(GuestCartInterceptor.MAX_AGE);
                 response.addCookie(cookie);
                 guestCartId = newGuestId;
             }
 
-            var cartResponse = cartService.getCart(guestCartId, userId);
+            var cartResponse = cartService.getCart(guestCartId, userId, create);
 
             // Nếu đã đăng nhập và có guestCartId thì đã merge -> xóa cookie guest trên
             // client
@@ -110,9 +114,11 @@ public class CartController {
                 response.addCookie(clear);
             }
 
-            return ResponseEntity.ok().body(java.util.Map.of(
-                    "cartId", cartResponse.getIdCart(),
-                    "message", "Cart found"));
+            // cartId có thể null (khách chưa có giỏ) nên không dùng Map.of
+            java.util.Map<String, Object> body = new java.util.LinkedHashMap<>();
+            body.put("cartId", cartResponse.getIdCart());
+            body.put("message", cartResponse.getIdCart() != null ? "Cart found" : "Cart not created yet");
+            return ResponseEntity.ok().body(body);
 
         } catch (AppException e) {
             log.error("Error getting current user cart: ", e);
@@ -19,8 +19,8 @@ import java.util.Map;
 import vn.liora.entity.User;
 import vn.liora.exception.AppException;
 import vn.liora.exception.ErrorCode;
-import vn.liora.repository.UserRepository;
 import vn.liora.service.IOrderService;
+import vn.liora.service.auth.CurrentUserResolver;
 import vn.liora.dto.request.GuestOrderAccessRequest;
 
 @Controller
@@ -30,7 +30,7 @@ import vn.liora.dto.request.GuestOrderAccessRequest;
 public class OrderDetailController {
 
     private final IOrderService orderService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
 
     // Các endpoint cụ thể phải đặt TRƯỚC endpoint có path variable
     @GetMapping("/order-detail/access")
@@ -302,46 +302,7 @@ public class OrderDetailController {
      * Tìm user từ authentication, hỗ trợ cả JWT và OAuth2
      */
     private User findUserByPrincipal(Authentication authentication) {
-        String principalName = authentication.getName();
-
-        // 1. Nếu là OAuth2 user, lấy user từ CustomOAuth2User trước
-        if (authentication.getPrincipal() instanceof vn.liora.dto.CustomOAuth2User) {
-            vn.liora.dto.CustomOAuth2User customOAuth2User = (vn.liora.dto.CustomOAuth2User) authentication
-                    .getPrincipal();
-            return customOAuth2User.getUser();
-        }
-
-        // 2. Nếu là OAuth2User thông thường, thử tìm bằng email từ attributes
-        if (authentication.getPrincipal() instanceof org.springframework.security.oauth2.core.user.OAuth2User) {
-            org.springframework.security.oauth2.core.user.OAuth2User oauth2User = (org.springframework.security.oauth2.core.user.OAuth2User) authentication
-                    .getPrincipal();
-
-            // Lấy email từ OAuth2User attributes
-            String email = oauth2User.getAttribute("email");
-
-            if (email != null) {
-                User user = userRepository.findByEmail(email).orElse(null);
-                if (user != null) {
-                    return user;
-                }
-            }
-        }
-
-        // 3. Thử tìm bằng username
-        User user = userRepository.findByUsername(principalName).orElse(null);
-        if (user != null) {
-            return user;
-        }
-
-        // 4. Thử tìm bằng email nếu principal name chứa @
-        if (principalName != null && principalName.contains("@")) {
-            user = userRepository.findByEmail(principalName).orElse(null);
-            if (user != null) {
-                return user;
-            }
-        }
-
-        return null;
+        return currentUserResolver.resolveUser(authentication).orElse(null);
     }
 
     /**
@@ -1,5 +1,6 @@
 package vn.liora.controller.user;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -33,6 +34,10 @@ import vn.liora.service.IDirectoryStructureService;
 import vn.liora.service.IStorageService;
 import vn.liora.service.IImageOptimizationService;
 import vn.liora.service.EmailService;
+import vn.liora.service.auth.CurrentUserResolver;
+import vn.liora.service.otp.OtpPurpose;
+import vn.liora.service.otp.OtpSendRateLimiter;
+import vn.liora.service.otp.OtpStore;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.nimbusds.jose.JOSEException;
@@ -40,7 +45,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -50,6 +55,7 @@ import java.nio.file.Paths;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final UserMapper userMapper;
     private final IOrderService orderService;
     private final IUserService userService;
@@ -60,25 +66,11 @@ public class UserController {
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
 
-    // Lưu trữ OTP tạm thời trong memory (có thể thay bằng Redis trong production)
-    private final Map<String, OtpData> otpStorage = new ConcurrentHashMap<>();
+    private final OtpStore otpStore;
+    private final OtpSendRateLimiter otpSendRateLimiter;
 
-    // Class để lưu trữ OTP data
-    private static class OtpData {
-        String otpCode;
-        long expiryTime;
-        String type;
-
-        OtpData(String otpCode, long expiryTime, String type) {
-            this.otpCode = otpCode;
-            this.expiryTime = expiryTime;
-            this.type = type;
-        }
-
-        boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-    }
+    // Mã OTP có hiệu lực 10 phút
+    private static final Duration OTP_TTL = Duration.ofMinutes(10);
 
     @GetMapping("/myInfo")
     public ResponseEntity<ApiResponse<UserResponse>> getMyInfo() {
@@ -301,30 +293,7 @@ public class UserController {
      * Tìm user từ authentication, hỗ trợ cả JWT và OAuth2
      */
     private User findUserByPrincipal(Authentication authentication) {
-        String principalName = authentication.getName();
-
-        // 1. Thử tìm bằng username trước
-        User user = userRepository.findByUsername(principalName).orElse(null);
-        if (user != null) {
-            return user;
-        }
-
-        // 2. Thử tìm bằng email nếu principal name chứa @
-        if (principalName != null && principalName.contains("@")) {
-            user = userRepository.findByEmail(principalName).orElse(null);
-            if (user != null) {
-                return user;
-            }
-        }
-
-        // 3. Nếu là OAuth2 user, lấy user từ CustomOAuth2User
-        if (authentication.getPrincipal() instanceof vn.liora.dto.CustomOAuth2User) {
-            vn.liora.dto.CustomOAuth2User customOAuth2User = (vn.liora.dto.CustomOAuth2User) authentication
-                    .getPrincipal();
-            return customOAuth2User.getUser();
-        }
-
-        return null;
+        return currentUserResolver.resolveUser(authentication).orElse(null);
     }
 
     @PutMapping("/changePassword")
@@ -468,19 +437,20 @@ public class UserController {
      * API gửi OTP cho đăng ký
      */
     @PostMapping("/send-registration-otp")
-    public ResponseEntity<ApiResponse<Object>> sendRegistrationOtp(@Valid @RequestBody SendOtpRequest request) {
+    public ResponseEntity<ApiResponse<Object>> sendRegistrationOtp(@Valid @RequestBody SendOtpRequest request,
+            HttpServletRequest httpRequest) {
         try {
             // Kiểm tra email đã tồn tại chưa
             if (userRepository.existsByEmail(request.getEmail())) {
                 throw new AppException(ErrorCode.EMAIL_EXISTED);
             }
 
-            // Tạo OTP code
-            String otpCode = emailService.generateOtpCode();
+            // Giới hạn số lần gửi theo email / IP
+            otpSendRateLimiter.acquire(request.getEmail(), getClientIp(httpRequest));
 
-            // Lưu OTP vào storage (10 phút)
-            long expiryTime = System.currentTimeMillis() + (10 * 60 * 1000);
-            otpStorage.put(request.getEmail(), new OtpData(otpCode, expiryTime, "REGISTRATION"));
+            // Tạo OTP code và lưu vào store (10 phút)
+            String otpCode = emailService.generateOtpCode();
+            otpStore.save(request.getEmail(), OtpPurpose.REGISTRATION, otpCode, OTP_TTL);
 
             // Gửi email OTP
             emailService.sendRegistrationOtpEmail(request.getEmail(), otpCode);
@@ -503,19 +473,11 @@ public class UserController {
     @PostMapping("/verify-registration-otp")
     public ResponseEntity<ApiResponse<Object>> verifyRegistrationOtp(@Valid @RequestBody VerifyOtpRequest request) {
         try {
-            OtpData otpData = otpStorage.get(request.getEmail());
-
-            if (otpData == null || otpData.isExpired() || !otpData.type.equals("REGISTRATION")) {
-                throw new AppException(ErrorCode.INVALID_OTP);
-            }
-
-            if (!otpData.otpCode.equals(request.getOtpCode())) {
+            // Mã đúng thì bị xóa ngay (dùng một lần)
+            if (!otpStore.consume(request.getEmail(), OtpPurpose.REGISTRATION, request.getOtpCode())) {
                 throw new AppException(ErrorCode.INVALID_OTP);
             }
 
-            // Xóa OTP sau khi xác thực thành công
-            otpStorage.remove(request.getEmail());
-
             ApiResponse<Object> response = new ApiResponse<>();
             response.setMessage("Xác thực OTP thành công");
             response.setCode(1000);
@@ -535,19 +497,11 @@ public class UserController {
     public ResponseEntity<ApiResponse<Object>> registerWithOtp(@Valid @RequestBody RegistrationWithOtpRequest request) {
         try {
             // Xác thực OTP trước
-            OtpData otpData = otpStorage.get(request.getEmail());
-
-            if (otpData == null || otpData.isExpired() || !otpData.type.equals("REGISTRATION")) {
+            // Mã đúng thì bị xóa ngay (dùng một lần)
+            if (!otpStore.consume(request.getEmail(), OtpPurpose.REGISTRATION, request.getOtpCode())) {
                 throw new AppException(ErrorCode.INVALID_OTP);
             }
 
-            if (!otpData.otpCode.equals(request.getOtpCode())) {
-                throw new AppException(ErrorCode.INVALID_OTP);
-            }
-
-            // Xóa OTP sau khi xác thực thành công
-            otpStorage.remove(request.getEmail());
-
             // Tạo UserCreationRequest từ RegistrationWithOtpRequest
             UserCreationRequest userCreationRequest = UserCreationRequest.builder()
                     .username(request.getUsername())
@@ -611,19 +565,20 @@ public class UserController {
      * API gửi OTP cho reset password
      */
     @PostMapping("/send-password-reset-otp")
-    public ResponseEntity<ApiResponse<Object>> sendPasswordResetOtp(@Valid @RequestBody SendOtpRequest request) {
+    public ResponseEntity<ApiResponse<Object>> sendPasswordResetOtp(@Valid @RequestBody SendOtpRequest request,
+            HttpServletRequest httpRequest) {
         try {
             // Kiểm tra email có tồn tại không
             if (!userRepository.existsByEmail(request.getEmail())) {
                 throw new AppException(ErrorCode.USER_NOT_FOUND);
             }
 
-            // Tạo OTP code
-            String otpCode = emailService.generateOtpCode();
+            // Giới hạn số lần gửi theo email / IP
+            otpSendRateLimiter.acquire(request.getEmail(), getClientIp(httpRequest));
 
-            // Lưu OTP vào storage (10 phút)
-            long expiryTime = System.currentTimeMillis() + (10 * 60 * 1000);
-            otpStorage.put(request.getEmail(), new OtpData(otpCode, expiryTime, "PASSWORD_RESET"));
+            // Tạo OTP code và lưu vào store (10 phút)
+            String otpCode = emailService.generateOtpCode();
+            otpStore.save(request.getEmail(), OtpPurpose.PASSWORD_RESET, otpCode, OTP_TTL);
 
             // Gửi email OTP
             emailService.sendPasswordResetOtpEmail(request.getEmail(), otpCode);
@@ -646,19 +601,11 @@ public class UserController {
     @PostMapping("/verify-password-reset-otp")
     public ResponseEntity<ApiResponse<Object>> verifyPasswordResetOtp(@Valid @RequestBody VerifyOtpRequest request) {
         try {
-            OtpData otpData = otpStorage.get(request.getEmail());
-
-            if (otpData == null || otpData.isExpired() || !otpData.type.equals("PASSWORD_RESET")) {
-                throw new AppException(ErrorCode.INVALID_OTP);
-            }
-
-            if (!otpData.otpCode.equals(request.getOtpCode())) {
+            // Mã đúng thì bị xóa ngay (dùng một lần)
+            if (!otpStore.consume(request.getEmail(), OtpPurpose.PASSWORD_RESET, request.getOtpCode())) {
                 throw new AppException(ErrorCode.INVALID_OTP);
             }
 
-            // Xóa OTP sau khi xác thực thành công
-            otpStorage.remove(request.getEmail());
-
             ApiResponse<Object> response = new ApiResponse<>();
             response.setMessage("Xác thực OTP thành công");
             response.setCode(1000);
@@ -702,4 +649,10 @@ public class UserController {
             throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
         }
     }
-}
\ No newline at end of file
+
+    // Dùng địa chỉ kết nối thật, không tin X-Forwarded-For do client gửi (giả mạo được để né giới hạn theo IP).
+    // Sau reverse proxy thì bật server.forward-headers-strategy=native để Tomcat chỉ lấy IP từ proxy tin cậy.
+    private String getClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -5,7 +5,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import vn.liora.dto.request.ApiResponse;
 import vn.liora.dto.request.ApplyDiscountRequest;
+import vn.liora.dto.response.BestDiscountResponse;
 import vn.liora.dto.response.DiscountResponse;
+import vn.liora.dto.response.DiscountSavingResponse;
 import vn.liora.entity.Discount;
 import vn.liora.exception.AppException;
 import vn.liora.mapper.DiscountMapper;
@@ -13,6 +15,7 @@ import vn.liora.service.IDiscountService;
 import vn.liora.service.IOrderService;
 import vn.liora.service.discount.DiscountApplicationResult;
 import vn.liora.service.discount.DiscountApplicationService;
+import vn.liora.service.auth.CurrentUserResolver;
 import vn.liora.service.discount.DiscountContext;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,7 +32,7 @@ public class UserDiscountController {
 
     private final IDiscountService discountService;
     private final DiscountMapper discountMapper;
-    private final vn.liora.repository.UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final DiscountApplicationService discountApplicationService;
 
     // ========== PUBLIC DISCOUNT ACCESS ==========
@@ -177,6 +180,42 @@ public class UserDiscountController {
         }
     }
 
+    // Chọn mã tiết kiệm nhiều nhất cho giỏ hàng hiện tại, kèm danh sách xếp hạng
+    @GetMapping("/best-for-cart")
+    public ResponseEntity<ApiResponse<BestDiscountResponse>> getBestDiscountForCart(
+            @RequestParam BigDecimal orderTotal,
+            @RequestParam(required = false) BigDecimal shippingFee,
+            @RequestParam(required = false) String paymentMethod) {
+        ApiResponse<BestDiscountResponse> response = new ApiResponse<>();
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            Long userId = currentUserResolver.resolveUserId(authentication).orElse(null);
+
+            List<DiscountSavingResponse> ranked = discountApplicationService.rankForContext(
+                            DiscountContext.builder()
+                                    .userId(userId)
+                                    .orderSubtotal(orderTotal)
+                                    .shippingFee(shippingFee != null ? shippingFee : BigDecimal.ZERO)
+                                    .paymentMethod(paymentMethod)
+                                    .build())
+                    .stream()
+                    .map(result -> new DiscountSavingResponse(
+                            discountMapper.toDiscountResponse(result.getDiscount()),
+                            result.getFinalDiscountAmount()))
+                    .toList();
+
+            response.setResult(new BestDiscountResponse(ranked.isEmpty() ? null : ranked.get(0), ranked));
+            response.setMessage(ranked.isEmpty()
+                    ? "Không có mã giảm giá phù hợp với giỏ hàng"
+                    : "Lấy mã giảm giá tốt nhất cho giỏ hàng thành công");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.setCode(500);
+            response.setMessage("Lỗi hệ thống: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     IOrderService orderService;
     // ========== ORDER DISCOUNT MANAGEMENT ==========
     @PostMapping("/apply")
@@ -192,12 +231,7 @@ public class UserDiscountController {
         ApiResponse<Map<String, Object>> response = new ApiResponse<>();
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            Long userId = null;
-            if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getName())) {
-                userId = userRepository.findByUsername(authentication.getName())
-                        .map(u -> u.getUserId())
-                        .orElse(null);
-            }
+            Long userId = currentUserResolver.resolveUserId(authentication).orElse(null);
 
             DiscountApplicationResult applicationResult = discountApplicationService.applyByCode(
                     request.getDiscountCode(),
@@ -11,9 +11,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import vn.liora.dto.request.OrderCreationRequest;
 import vn.liora.dto.response.OrderResponse;
-import vn.liora.entity.User;
-import vn.liora.repository.UserRepository;
 import vn.liora.service.IOrderService;
+import vn.liora.service.auth.CurrentUserResolver;
 
 import java.util.List;
 
@@ -25,7 +24,7 @@ import java.util.List;
 public class UserOrderController {
 
     IOrderService orderService;
-    UserRepository userRepository;
+    CurrentUserResolver currentUserResolver;
 
     // ✅ 1. Tạo đơn hàng mới (cho cả user và guest)
     @PostMapping("/{idCart}")
@@ -59,11 +58,10 @@ public class UserOrderController {
                 return ResponseEntity.status(401).body("Unauthorized");
             }
 
-            String username = authentication.getName();
-            User user = userRepository.findByUsername(username)
+            Long userId = currentUserResolver.resolveUserId(authentication)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            orderService.cancelOrderByUser(orderId, user.getUserId());
+            orderService.cancelOrderByUser(orderId, userId);
             return ResponseEntity.ok().body("Order cancelled successfully");
         } catch (Exception e) {
             log.error("Error cancelling order: {}", e.getMessage());
@@ -14,10 +14,10 @@ import vn.liora.entity.Category;
 import vn.liora.exception.AppException;
 import vn.liora.mapper.ProductMapper;
 import vn.liora.repository.ImageRepository;
-import vn.liora.repository.DiscountRepository;
 import vn.liora.repository.ProductRepository;
 import vn.liora.service.IProductService;
 import vn.liora.service.ICategoryService;
+import vn.liora.service.discount.DiscountCatalog;
 import vn.liora.entity.Discount;
 import vn.liora.dto.response.DiscountResponse;
 import vn.liora.mapper.DiscountMapper;
@@ -40,7 +40,7 @@ public class UserProductController {
     private final ProductMapper productMapper;
     private final ImageRepository imageRepository;
     private final ICategoryService categoryService;
-    private final DiscountRepository discountRepository;
+    private final DiscountCatalog discountCatalog;
     private final DiscountMapper discountMapper;
     private final ProductRepository productRepository;
 
@@ -1553,7 +1553,7 @@ public class UserProductController {
         ApiResponse<List<DiscountResponse>> response = new ApiResponse<>();
         try {
             // Lấy danh sách discount đang active và trong thời gian hiệu lực
-            List<Discount> activeDiscounts = discountRepository.findActiveNow(java.time.LocalDateTime.now());
+            List<Discount> activeDiscounts = discountCatalog.findActiveAt(java.time.LocalDateTime.now());
             
             // Convert to DTO
             List<DiscountResponse> discountResponses = activeDiscounts.stream()
@@ -0,0 +1,15 @@
+package vn.liora.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BestDiscountResponse {
+    private DiscountSavingResponse best; // null nếu giỏ hàng không dùng được mã nào
+    private List<DiscountSavingResponse> ranked; // giảm dần theo số tiền tiết kiệm
+}
@@ -0,0 +1,15 @@
+package vn.liora.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DiscountSavingResponse {
+    private DiscountResponse discount;
+    private BigDecimal savingAmount;
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -13,7 +14,9 @@ import java.util.List;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "Cart")
+@Table(name = "Cart", indexes = {
+        @Index(name = "idx_cart_last_activity_at", columnList = "LastActivityAt")
+})
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,7 +31,18 @@ public class Cart {
     @JsonIgnore
     private User user;
 
+    // Lần cuối giỏ được thêm / sửa / xóa item, dùng để dọn giỏ guest bị bỏ quên
+    @Column(name = "LastActivityAt")
+    LocalDateTime lastActivityAt;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<CartItem> cartItems;
+
+    @PrePersist
+    protected void onCreate() {
+        if (lastActivityAt == null) {
+            lastActivityAt = LocalDateTime.now();
+        }
+    }
 }
@@ -64,7 +64,8 @@ public class Discount {
     @Column(name = "UpdatedAt", columnDefinition = "DATETIME")
     private LocalDateTime updatedAt;
 
-    @Column(name = "UsedCount")
+    // Chỉ được thay đổi qua DiscountRepository.claimUsage/releaseUsage để tránh ghi đè giá trị cũ
+    @Column(name = "UsedCount", updatable = false)
     private Integer usedCount = 0;
 
     // ========== RELATIONSHIPS ==========
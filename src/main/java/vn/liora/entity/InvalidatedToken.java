@@ -3,6 +3,8 @@ package vn.liora.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
@@ -14,6 +16,7 @@ import java.util.Date;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
+@Table(indexes = @Index(name = "idx_invalidated_token_expiry", columnList = "expiryTime"))
 public class InvalidatedToken {
     @Id
     String id;
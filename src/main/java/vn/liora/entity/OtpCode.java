@@ -0,0 +1,30 @@
+package vn.liora.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "OtpCodes", indexes = @Index(name = "idx_otp_code_expires_at", columnList = "ExpiresAt"))
+public class OtpCode {
+    // PURPOSE:email
+    @Id
+    @Column(name = "IdOtpCode", length = 320)
+    String id;
+
+    @Column(name = "Code", nullable = false, length = 16)
+    String code;
+
+    @Column(name = "ExpiresAt", nullable = false)
+    LocalDateTime expiresAt;
+
+    @Column(name = "FailedAttempts", nullable = false)
+    int failedAttempts;
+}
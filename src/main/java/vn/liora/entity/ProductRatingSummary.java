@@ -0,0 +1,92 @@
+package vn.liora.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+
+/**
+ * Tổng hợp đánh giá của một sản phẩm, cập nhật cùng transaction với mỗi thay đổi review.
+ * Như các query cũ, count / sum / histogram tính cả review bị ẩn; visibleCount chỉ đếm review đang hiện.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "ProductRatingSummaries")
+public class ProductRatingSummary {
+    @Id
+    @Column(name = "IdProduct")
+    Long productId;
+
+    @Column(name = "RatingSum", nullable = false)
+    long ratingSum;
+
+    @Column(name = "ReviewCount", nullable = false)
+    long reviewCount;
+
+    @Column(name = "VisibleCount", nullable = false)
+    long visibleCount;
+
+    @Column(name = "Star1", nullable = false)
+    long star1;
+
+    @Column(name = "Star2", nullable = false)
+    long star2;
+
+    @Column(name = "Star3", nullable = false)
+    long star3;
+
+    @Column(name = "Star4", nullable = false)
+    long star4;
+
+    @Column(name = "Star5", nullable = false)
+    long star5;
+
+    public static ProductRatingSummary empty(Long productId) {
+        return ProductRatingSummary.builder().productId(productId).build();
+    }
+
+    // Thêm (sign = 1) hoặc bỏ (sign = -1) một review khỏi tổng hợp
+    public void apply(int rating, boolean visible, int sign) {
+        ratingSum += (long) sign * rating;
+        reviewCount += sign;
+        if (visible) {
+            visibleCount += sign;
+        }
+        switch (rating) {
+            case 1 -> star1 += sign;
+            case 2 -> star2 += sign;
+            case 3 -> star3 += sign;
+            case 4 -> star4 += sign;
+            case 5 -> star5 += sign;
+            default -> {
+            }
+        }
+    }
+
+    public long countForRating(int rating) {
+        return switch (rating) {
+            case 1 -> star1;
+            case 2 -> star2;
+            case 3 -> star3;
+            case 4 -> star4;
+            case 5 -> star5;
+            default -> 0L;
+        };
+    }
+
+    // null khi chưa có review, giống AVG() trên tập rỗng
+    public Double averageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : null;
+    }
+
+    // Giữ đúng giá trị cũ BigDecimal.valueOf(AVG(rating)); cột AverageRating (scale 1) tự làm tròn khi ghi
+    public BigDecimal averageRatingForProduct() {
+        Double average = averageRating();
+        return average != null ? BigDecimal.valueOf(average) : BigDecimal.ZERO;
+    }
+}
@@ -17,6 +17,9 @@ import java.time.LocalDateTime;
        uniqueConstraints = {
            @UniqueConstraint(name = "uk_user_product", columnNames = {"IdUser", "IdProduct"}),
            @UniqueConstraint(name = "uk_guest_product", columnNames = {"IdGuest", "IdProduct"})
+       },
+       indexes = {
+           @Index(name = "idx_recently_viewed_viewed_at", columnList = "ViewedAt")
        })
 public class RecentlyViewed {
     @Id
@@ -27,7 +30,8 @@ public class RecentlyViewed {
     @Column(name = "IdGuest", nullable = true)
     String guestId;
 
-    @ManyToOne
+    // LAZY: dải đã xem chỉ cần product, nạp user (kèm cart) là thêm 2 query mỗi lần đọc
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "IdUser", nullable = true)
     @JsonIgnore
     private User user;
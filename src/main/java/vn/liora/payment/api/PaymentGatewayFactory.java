@@ -8,5 +8,7 @@ public interface PaymentGatewayFactory {
     PaymentUrlCreator urlCreator();
 
     PaymentIpnProcessor ipnProcessor();
+
+    PaymentStatusQuerier statusQuerier();
 }
 
@@ -0,0 +1,18 @@
+package vn.liora.payment.api;
+
+import vn.liora.payment.PaymentProvider;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hỏi trạng thái giao dịch trực tiếp từ cổng thanh toán (dùng khi IPN không đến).
+ * Kết quả trả về có cùng dạng tham số IPN của provider để đi qua {@link PaymentIpnProcessor}
+ * như một IPN bình thường; rỗng nếu giao dịch chưa có kết quả cuối hoặc không hỏi được.
+ */
+public interface PaymentStatusQuerier {
+    PaymentProvider provider();
+
+    Optional<Map<String, String>> queryStatus(String reference, LocalDateTime createdAt);
+}
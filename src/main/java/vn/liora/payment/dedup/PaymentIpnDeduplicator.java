@@ -0,0 +1,101 @@
+package vn.liora.payment.dedup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import vn.liora.payment.PaymentProvider;
+import vn.liora.payment.api.PaymentIpnResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Chống xử lý trùng IPN khi VNPAY / MOMO gửi lại nhiều lần (kể cả gửi đồng thời).
+ * <p>
+ * Các IPN cùng provider + mã giao dịch được tuần tự hóa bằng striped lock, nên hai bản trùng
+ * không thể cùng vượt qua bước kiểm tra trạng thái PAID. Kết quả đã commit được nhớ theo
+ * provider + mã giao dịch + fingerprint (chữ ký của IPN: vnp_SecureHash / signature của MOMO), bản trùng
+ * nhận lại ngay kết quả cũ mà không tính lại HMAC hay ghi DB. IPN có chữ ký khác (kể cả giả mạo) không
+ * trúng cache nên vẫn đi qua bước xác thực chữ ký của IPN processor; IPN không có chữ ký thì không
+ * được nhớ lại.
+ */
+@Component
+@Slf4j
+public class PaymentIpnDeduplicator {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Map<String, ProcessedIpn> processed;
+    private final long ttlMs;
+
+    public PaymentIpnDeduplicator(
+            @Value("${payment.ipn.dedup.ttl-ms:86400000}") long ttlMs,
+            @Value("${payment.ipn.dedup.max-entries:10000}") int maxEntries) {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.ttlMs = ttlMs;
+        this.processed = new LinkedHashMap<>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProcessedIpn> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Chạy {@code handler} nếu IPN chưa được xử lý. {@code handler} phải tự commit transaction
+     * trước khi trả về, để kết quả được nhớ lại luôn là kết quả đã commit.
+     */
+    public PaymentIpnResult process(PaymentProvider provider, String reference, String fingerprint,
+            Supplier<PaymentIpnResult> handler) {
+        if (reference == null || reference.isEmpty() || fingerprint == null || fingerprint.isEmpty()) {
+            return handler.get();
+        }
+
+        String key = provider.name() + ':' + reference + ':' + fingerprint;
+        PaymentIpnResult cached = lookup(key);
+        if (cached != null) {
+            log.info("[{} IPN] Duplicate for {}, returning cached acknowledgement", provider, reference);
+            return cached;
+        }
+
+        ReentrantLock lock = locks[Math.floorMod((provider.name() + ':' + reference).hashCode(), STRIPES)];
+        lock.lock();
+        try {
+            cached = lookup(key);
+            if (cached != null) {
+                log.info("[{} IPN] Duplicate for {} (concurrent), returning cached acknowledgement", provider, reference);
+                return cached;
+            }
+
+            PaymentIpnResult result = handler.get();
+            synchronized (processed) {
+                processed.put(key, new ProcessedIpn(result, System.currentTimeMillis() + ttlMs));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PaymentIpnResult lookup(String key) {
+        synchronized (processed) {
+            ProcessedIpn entry = processed.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() < System.currentTimeMillis()) {
+                processed.remove(key);
+                return null;
+            }
+            return entry.result();
+        }
+    }
+
+    private record ProcessedIpn(PaymentIpnResult result, long expiresAt) {
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.web.client.RestTemplate;
 import vn.liora.payment.PaymentProvider;
 import vn.liora.payment.api.PaymentGatewayFactory;
 import vn.liora.payment.api.PaymentIpnProcessor;
+import vn.liora.payment.api.PaymentStatusQuerier;
 import vn.liora.payment.api.PaymentUrlCreator;
 import vn.liora.repository.MomoPaymentRepository;
 import vn.liora.repository.OrderRepository;
@@ -14,6 +15,7 @@ import vn.liora.repository.OrderRepository;
 public class MomoGatewayFactory implements PaymentGatewayFactory {
     private final PaymentUrlCreator urlCreator;
     private final PaymentIpnProcessor ipnProcessor;
+    private final PaymentStatusQuerier statusQuerier;
 
     public MomoGatewayFactory(
             MomoPaymentRepository momoPaymentRepository,
@@ -25,7 +27,8 @@ public class MomoGatewayFactory implements PaymentGatewayFactory {
             @Value("${momo.api.endpoint}") String momoApiEndpoint,
             @Value("${momo.returnUrl}") String momoReturnUrl,
             @Value("${momo.notifyUrl}") String momoIpnUrl,
-            @Value("${momo.requestType}") String momoRequestType
+            @Value("${momo.requestType}") String momoRequestType,
+            @Value("${momo.api.endpoint.query}") String momoQueryEndpoint
     ) {
         this.urlCreator = new MomoUrlCreator(
                 momoPaymentRepository,
@@ -38,7 +41,14 @@ public class MomoGatewayFactory implements PaymentGatewayFactory {
                 momoIpnUrl,
                 momoRequestType
         );
-        this.ipnProcessor = new MomoIpnProcessor(orderRepository, momoPaymentRepository);
+        this.ipnProcessor = new MomoIpnProcessor(orderRepository, momoPaymentRepository, momoAccessKey, momoSecretKey);
+        this.statusQuerier = new MomoStatusQuerier(
+                restTemplate,
+                momoPartnerCode,
+                momoAccessKey,
+                momoSecretKey,
+                momoQueryEndpoint
+        );
     }
 
     @Override
@@ -55,5 +65,10 @@ public class MomoGatewayFactory implements PaymentGatewayFactory {
     public PaymentIpnProcessor ipnProcessor() {
         return ipnProcessor;
     }
+
+    @Override
+    public PaymentStatusQuerier statusQuerier() {
+        return statusQuerier;
+    }
 }
 
@@ -10,6 +10,7 @@ import vn.liora.payment.api.PaymentIpnProcessor;
 import vn.liora.payment.api.PaymentIpnResult;
 import vn.liora.repository.MomoPaymentRepository;
 import vn.liora.repository.OrderRepository;
+import vn.liora.util.MomoUtil;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -19,10 +20,15 @@ import java.util.Optional;
 class MomoIpnProcessor implements PaymentIpnProcessor {
     private final OrderRepository orderRepository;
     private final MomoPaymentRepository momoPaymentRepository;
+    private final String momoAccessKey;
+    private final String momoSecretKey;
 
-    MomoIpnProcessor(OrderRepository orderRepository, MomoPaymentRepository momoPaymentRepository) {
+    MomoIpnProcessor(OrderRepository orderRepository, MomoPaymentRepository momoPaymentRepository,
+            String momoAccessKey, String momoSecretKey) {
         this.orderRepository = orderRepository;
         this.momoPaymentRepository = momoPaymentRepository;
+        this.momoAccessKey = momoAccessKey;
+        this.momoSecretKey = momoSecretKey;
     }
 
     @Override
@@ -35,6 +41,12 @@ class MomoIpnProcessor implements PaymentIpnProcessor {
         @SuppressWarnings("unchecked")
         Map<String, Object> p = (Map<String, Object>) params;
 
+        // IPN, trang return và kết quả đối soát đều phải mang chữ ký hợp lệ trước khi đổi trạng thái đơn
+        if (!MomoUtil.verifySignature(momoAccessKey, momoSecretKey, p)) {
+            log.warn("[MOMO IPN] Invalid or missing signature for {}", p.get("orderId"));
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+
         String orderId = (String) p.get("orderId");
         String errorCodeStr = (String) p.get("errorCode");
         Integer resultCode = errorCodeStr != null ? Integer.parseInt(errorCodeStr) : null;
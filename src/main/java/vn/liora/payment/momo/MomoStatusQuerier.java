@@ -0,0 +1,115 @@
+package vn.liora.payment.momo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import vn.liora.payment.PaymentProvider;
+import vn.liora.payment.api.PaymentStatusQuerier;
+import vn.liora.util.HmacSigner;
+import vn.liora.util.MomoUtil;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Gọi API query trạng thái giao dịch của MOMO và chuyển kết quả cuối thành tham số IPN
+ * cho {@link MomoIpnProcessor}. IPN tổng hợp được ký lại bằng secret (giống VnpayStatusQuerier)
+ * để đi qua cùng bước xác thực chữ ký như IPN thật.
+ */
+@Slf4j
+class MomoStatusQuerier implements PaymentStatusQuerier {
+    // 1000: khách chưa xác nhận thanh toán, 7000 / 7002: MOMO đang xử lý
+    private static final Set<Integer> NOT_FINAL_CODES = Set.of(1000, 7000, 7002);
+
+    private final RestTemplate restTemplate;
+    private final String momoPartnerCode;
+    private final String momoAccessKey;
+    private final String momoSecretKey;
+    private final String momoQueryEndpoint;
+
+    MomoStatusQuerier(
+            RestTemplate restTemplate,
+            String momoPartnerCode,
+            String momoAccessKey,
+            String momoSecretKey,
+            String momoQueryEndpoint
+    ) {
+        this.restTemplate = restTemplate;
+        this.momoPartnerCode = momoPartnerCode;
+        this.momoAccessKey = momoAccessKey;
+        this.momoSecretKey = momoSecretKey;
+        this.momoQueryEndpoint = momoQueryEndpoint;
+    }
+
+    @Override
+    public PaymentProvider provider() {
+        return PaymentProvider.MOMO;
+    }
+
+    @Override
+    public Optional<Map<String, String>> queryStatus(String orderId, LocalDateTime createdAt) {
+        String requestId = MomoUtil.generateRequestId();
+
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("partnerCode", momoPartnerCode);
+        request.put("requestId", requestId);
+        request.put("orderId", orderId);
+        request.put("lang", "vi");
+        request.put("signature", MomoUtil.createQuerySignature(
+                momoAccessKey, momoSecretKey, momoPartnerCode, orderId, requestId));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> response = restTemplate.postForObject(momoQueryEndpoint, new HttpEntity<>(request, headers), Map.class);
+        if (response == null || response.get("resultCode") == null) {
+            return Optional.empty();
+        }
+
+        Object signature = response.get("signature");
+        if (signature == null || !HmacSigner.hexEquals(
+                MomoUtil.createQueryResponseSignature(momoAccessKey, momoSecretKey, response), signature.toString())) {
+            log.warn("[MOMO query] Missing or invalid response signature for {}", orderId);
+            return Optional.empty();
+        }
+
+        int resultCode;
+        try {
+            resultCode = Integer.parseInt(response.get("resultCode").toString());
+        } catch (NumberFormatException e) {
+            log.warn("[MOMO query] resultCode is not a number: {}", response.get("resultCode"));
+            return Optional.empty();
+        }
+        if (NOT_FINAL_CODES.contains(resultCode)) {
+            log.debug("[MOMO query] {} not final: resultCode={}", orderId, resultCode);
+            return Optional.empty();
+        }
+
+        Map<String, String> ipn = new HashMap<>();
+        ipn.put("partnerCode", momoPartnerCode);
+        ipn.put("requestId", str(response, "requestId"));
+        ipn.put("amount", str(response, "amount"));
+        ipn.put("orderId", orderId);
+        ipn.put("orderInfo", str(response, "orderInfo"));
+        ipn.put("payType", str(response, "payType"));
+        ipn.put("extraData", str(response, "extraData"));
+        ipn.put("errorCode", String.valueOf(resultCode));
+        ipn.put("message", str(response, "message"));
+        ipn.put("transId", str(response, "transId"));
+        ipn.put("orderType", str(response, "orderType"));
+        ipn.put("responseTime", str(response, "responseTime"));
+        ipn.put("signature", MomoUtil.createIpnSignature(momoAccessKey, momoSecretKey, ipn));
+        return Optional.of(ipn);
+    }
+
+    private static String str(Map<String, ?> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : null;
+    }
+}
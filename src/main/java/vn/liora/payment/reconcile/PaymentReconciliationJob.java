@@ -0,0 +1,174 @@
+package vn.liora.payment.reconcile;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.liora.entity.MomoPayment;
+import vn.liora.entity.VnpayPayment;
+import vn.liora.payment.PaymentProvider;
+import vn.liora.payment.api.PaymentStatusQuerier;
+import vn.liora.payment.registry.PaymentGatewayFactoryRegistry;
+import vn.liora.repository.MomoPaymentRepository;
+import vn.liora.repository.VnpayPaymentRepository;
+import vn.liora.service.PaymentService;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đối soát các giao dịch VNPAY / MOMO mà IPN không bao giờ đến.
+ * <p>
+ * Định kỳ duyệt (keyset theo id) các giao dịch của đơn còn PENDING, tạo cách đây hơn
+ * {@code payment.reconcile.pending-after-minutes} phút, và hỏi trạng thái từ cổng thanh toán.
+ * Mỗi lần hỏi chạy trên một virtual thread, số lời gọi đồng thời bị chặn bởi
+ * {@code payment.reconcile.max-concurrency}. Kết quả cuối được đưa vào {@link PaymentService}
+ * như một IPN, nên đi qua cùng processor, bộ chống trùng và các event như luồng IPN thật.
+ */
+@Component
+@Slf4j
+public class PaymentReconciliationJob {
+
+    private final VnpayPaymentRepository vnpayPaymentRepository;
+    private final MomoPaymentRepository momoPaymentRepository;
+    private final PaymentGatewayFactoryRegistry paymentGatewayFactoryRegistry;
+    private final PaymentService paymentService;
+    private final boolean enabled;
+    private final long pendingAfterMinutes;
+    private final long lookbackHours;
+    private final int pageSize;
+    private final int maxConcurrency;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PaymentReconciliationJob(
+            VnpayPaymentRepository vnpayPaymentRepository,
+            MomoPaymentRepository momoPaymentRepository,
+            PaymentGatewayFactoryRegistry paymentGatewayFactoryRegistry,
+            PaymentService paymentService,
+            @Value("${payment.reconcile.enabled:false}") boolean enabled,
+            @Value("${payment.reconcile.pending-after-minutes:15}") long pendingAfterMinutes,
+            @Value("${payment.reconcile.lookback-hours:48}") long lookbackHours,
+            @Value("${payment.reconcile.page-size:100}") int pageSize,
+            @Value("${payment.reconcile.max-concurrency:8}") int maxConcurrency) {
+        this.vnpayPaymentRepository = vnpayPaymentRepository;
+        this.momoPaymentRepository = momoPaymentRepository;
+        this.paymentGatewayFactoryRegistry = paymentGatewayFactoryRegistry;
+        this.paymentService = paymentService;
+        this.enabled = enabled;
+        this.pendingAfterMinutes = pendingAfterMinutes;
+        this.lookbackHours = lookbackHours;
+        this.pageSize = pageSize;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.reconcile.interval-ms:300000}",
+            initialDelayString = "${payment.reconcile.initial-delay-ms:60000}")
+    public void reconcile() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdBefore = now.minusMinutes(pendingAfterMinutes);
+        LocalDateTime createdAfter = now.minusHours(lookbackHours);
+        Run run = new Run();
+
+        // close() của executor chờ mọi lời gọi gateway xong
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Semaphore permits = new Semaphore(maxConcurrency);
+            reconcileVnpay(executor, permits, run, createdAfter, createdBefore);
+            reconcileMomo(executor, permits, run, createdAfter, createdBefore);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Payment reconciliation interrupted");
+        } finally {
+            running.set(false);
+        }
+
+        if (run.checked.get() > 0) {
+            log.info("Payment reconciliation: checked={}, resolved={}, errors={}",
+                    run.checked.get(), run.resolved.get(), run.errors.get());
+        }
+    }
+
+    private void reconcileVnpay(ExecutorService executor, Semaphore permits, Run run,
+            LocalDateTime createdAfter, LocalDateTime createdBefore) throws InterruptedException {
+        PaymentStatusQuerier querier = paymentGatewayFactoryRegistry.get(PaymentProvider.VNPAY).statusQuerier();
+        long lastId = 0L;
+        Slice<VnpayPayment> page;
+        do {
+            page = vnpayPaymentRepository.findPendingForReconciliation(
+                    lastId, createdAfter, createdBefore, PageRequest.of(0, pageSize));
+            for (VnpayPayment payment : page) {
+                lastId = payment.getIdVnpayPayment();
+                submit(executor, permits, run, () -> querier
+                        .queryStatus(payment.getVnpTxnRef(), payment.getCreatedAt())
+                        .map(params -> {
+                            paymentService.handleVnpayIpn(params);
+                            return true;
+                        })
+                        .orElse(false));
+            }
+        } while (page.hasNext());
+    }
+
+    private void reconcileMomo(ExecutorService executor, Semaphore permits, Run run,
+            LocalDateTime createdAfter, LocalDateTime createdBefore) throws InterruptedException {
+        PaymentStatusQuerier querier = paymentGatewayFactoryRegistry.get(PaymentProvider.MOMO).statusQuerier();
+        long lastId = 0L;
+        Slice<MomoPayment> page;
+        do {
+            page = momoPaymentRepository.findPendingForReconciliation(
+                    lastId, createdAfter, createdBefore, PageRequest.of(0, pageSize));
+            for (MomoPayment payment : page) {
+                lastId = payment.getIdMomoPayment();
+                submit(executor, permits, run, () -> querier
+                        .queryStatus(payment.getOrderId(), payment.getCreatedAt())
+                        .map(params -> {
+                            paymentService.handleMomoIpn(new HashMap<String, Object>(params));
+                            return true;
+                        })
+                        .orElse(false));
+            }
+        } while (page.hasNext());
+    }
+
+    // Lấy permit trước khi tạo virtual thread: vừa giới hạn số lời gọi gateway đồng thời,
+    // vừa để việc duyệt trang chờ khi các lời gọi trước chưa xong
+    private void submit(ExecutorService executor, Semaphore permits, Run run, ReconcileTask task)
+            throws InterruptedException {
+        permits.acquire();
+        run.checked.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                if (task.run()) {
+                    run.resolved.incrementAndGet();
+                }
+            } catch (Exception e) {
+                run.errors.incrementAndGet();
+                log.warn("Payment reconciliation call failed: {}", e.getMessage());
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ReconcileTask {
+        boolean run();
+    }
+
+    private static final class Run {
+        final AtomicInteger checked = new AtomicInteger();
+        final AtomicInteger resolved = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+    }
+}
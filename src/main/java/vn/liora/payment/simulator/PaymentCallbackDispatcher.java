@@ -0,0 +1,161 @@
+package vn.liora.payment.simulator;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import vn.liora.payment.PaymentProvider;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gửi IPN giả lập về ứng dụng với các lỗi mạng thường gặp của cổng thanh toán thật:
+ * trễ ngẫu nhiên, gửi trùng (đồng thời), mất IPN và chữ ký sai, theo tỉ lệ cấu hình
+ * {@code payment.sim.*}. Đồng thời đo thời gian xử lý IPN của ứng dụng để xem qua
+ * {@code /payment/sim/stats}.
+ */
+@Component
+@Profile("payment-sim")
+@Slf4j
+public class PaymentCallbackDispatcher {
+
+    private final RestTemplate restTemplate;
+    private final ScheduledExecutorService scheduler;
+    private final double dropRate;
+    private final double duplicateRate;
+    private final int duplicateCopies;
+    private final double tamperRate;
+    private final long delayMinMs;
+    private final long delayMaxMs;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder duplicated = new LongAdder();
+    private final LongAdder tampered = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+
+    public PaymentCallbackDispatcher(
+            RestTemplate restTemplate,
+            @Value("${payment.sim.dispatcher-threads:8}") int dispatcherThreads,
+            @Value("${payment.sim.ipn-drop-rate:0.0}") double dropRate,
+            @Value("${payment.sim.ipn-duplicate-rate:0.0}") double duplicateRate,
+            @Value("${payment.sim.ipn-duplicate-copies:1}") int duplicateCopies,
+            @Value("${payment.sim.ipn-tamper-rate:0.0}") double tamperRate,
+            @Value("${payment.sim.ipn-delay-min-ms:0}") long delayMinMs,
+            @Value("${payment.sim.ipn-delay-max-ms:0}") long delayMaxMs) {
+        this.restTemplate = restTemplate;
+        this.scheduler = Executors.newScheduledThreadPool(dispatcherThreads);
+        this.dropRate = dropRate;
+        this.duplicateRate = duplicateRate;
+        this.duplicateCopies = duplicateCopies;
+        this.tamperRate = tamperRate;
+        this.delayMinMs = delayMinMs;
+        this.delayMaxMs = Math.max(delayMinMs, delayMaxMs);
+    }
+
+    public void dispatchVnpayIpn(String ipnUrl, Map<String, String> params) {
+        dispatch(PaymentProvider.VNPAY, params, "vnp_SecureHash", signed -> {
+            StringBuilder url = new StringBuilder(ipnUrl).append(ipnUrl.contains("?") ? '&' : '?');
+            signed.forEach((key, value) -> url.append(URLEncoder.encode(key, StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&'));
+            url.setLength(url.length() - 1);
+            restTemplate.getForEntity(URI.create(url.toString()), String.class);
+        });
+    }
+
+    public void dispatchMomoIpn(String notifyUrl, Map<String, String> body) {
+        dispatch(PaymentProvider.MOMO, body, "signature", signed -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            restTemplate.postForEntity(notifyUrl, new HttpEntity<>(signed, headers), String.class);
+        });
+    }
+
+    public Map<String, Object> stats() {
+        long completed = succeeded.sum() + failed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sent.sum());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("duplicated", duplicated.sum());
+        stats.put("tampered", tampered.sum());
+        stats.put("avgLatencyMs", completed == 0 ? 0 : totalLatencyMs.sum() / completed);
+        stats.put("maxLatencyMs", maxLatencyMs.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void dispatch(PaymentProvider provider, Map<String, String> params, String signatureField,
+            IpnCall call) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < dropRate) {
+            dropped.increment();
+            log.info("[SIM {}] Dropping IPN {}", provider, params);
+            return;
+        }
+
+        Map<String, String> payload = new LinkedHashMap<>(params);
+        if (random.nextDouble() < tamperRate) {
+            tampered.increment();
+            String signature = payload.get(signatureField);
+            char flipped = signature.charAt(0) == '0' ? '1' : '0';
+            payload.put(signatureField, flipped + signature.substring(1));
+        }
+
+        int copies = 1;
+        if (random.nextDouble() < duplicateRate) {
+            copies += duplicateCopies;
+            duplicated.add(duplicateCopies);
+        }
+
+        long delay = delayMaxMs > delayMinMs ? random.nextLong(delayMinMs, delayMaxMs + 1) : delayMinMs;
+        for (int i = 0; i < copies; i++) {
+            // Các bản trùng được gửi cùng lúc để thử đúng tình huống IPN đến đồng thời
+            scheduler.schedule(() -> send(provider, payload, call), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(PaymentProvider provider, Map<String, String> payload, IpnCall call) {
+        sent.increment();
+        long start = System.nanoTime();
+        try {
+            call.send(payload);
+            succeeded.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.debug("[SIM {}] IPN rejected: {}", provider, e.getMessage());
+        } finally {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            totalLatencyMs.add(elapsedMs);
+            maxLatencyMs.accumulateAndGet(elapsedMs, Math::max);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IpnCall {
+        void send(Map<String, String> payload);
+    }
+}
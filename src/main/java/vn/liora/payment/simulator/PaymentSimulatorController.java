@@ -0,0 +1,300 @@
+package vn.liora.payment.simulator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.view.RedirectView;
+import vn.liora.util.HmacSigner;
+import vn.liora.util.MomoUtil;
+import vn.liora.util.VnpayUtil;
+
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cổng VNPAY / MOMO giả lập chạy ngay trong ứng dụng (profile {@code payment-sim}),
+ * để load-test luồng checkout → thanh toán → IPN mà không gọi sandbox thật.
+ * <p>
+ * {@code vnpay.payUrl} và {@code momo.api.endpoint} trỏ về đây. Simulator kiểm tra chữ ký
+ * của request, chọn kết quả (thành công / hủy / lỗi) theo tỉ lệ cấu hình, ký response bằng
+ * chính secret đã cấu hình, redirect về returnUrl và gửi IPN qua {@link PaymentCallbackDispatcher}.
+ */
+@RestController
+@RequestMapping("/payment/sim")
+@Profile("payment-sim")
+@Slf4j
+public class PaymentSimulatorController {
+
+    private static final DateTimeFormatter VNP_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final PaymentCallbackDispatcher dispatcher;
+    private final String vnpHashSecret;
+    private final String vnpReturnUrl;
+    private final String vnpIpnUrl;
+    private final String momoAccessKey;
+    private final String momoSecretKey;
+    private final String momoReturnUrl;
+    private final String momoNotifyUrl;
+    private final String simBaseUrl;
+    private final double successRate;
+    private final double cancelRate;
+    private final AtomicLong transactionNo = new AtomicLong(System.currentTimeMillis() % 100_000_000L);
+
+    // Kết quả đã chọn cho từng giao dịch, để API query trả lời đúng kể cả khi IPN bị "mất"
+    private final Map<String, Map<String, String>> vnpayResults = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> momoResults = new ConcurrentHashMap<>();
+
+    public PaymentSimulatorController(
+            PaymentCallbackDispatcher dispatcher,
+            @Value("${vnpay.hashSecret}") String vnpHashSecret,
+            @Value("${vnpay.returnUrl}") String vnpReturnUrl,
+            @Value("${vnpay.ipnUrl}") String vnpIpnUrl,
+            @Value("${momo.accessKey}") String momoAccessKey,
+            @Value("${momo.secretKey}") String momoSecretKey,
+            @Value("${momo.returnUrl}") String momoReturnUrl,
+            @Value("${momo.notifyUrl}") String momoNotifyUrl,
+            @Value("${payment.sim.base-url:http://localhost:8080/payment/sim}") String simBaseUrl,
+            @Value("${payment.sim.success-rate:0.9}") double successRate,
+            @Value("${payment.sim.cancel-rate:0.05}") double cancelRate) {
+        this.dispatcher = dispatcher;
+        this.vnpHashSecret = vnpHashSecret;
+        this.vnpReturnUrl = vnpReturnUrl;
+        this.vnpIpnUrl = vnpIpnUrl;
+        this.momoAccessKey = momoAccessKey;
+        this.momoSecretKey = momoSecretKey;
+        this.momoReturnUrl = momoReturnUrl;
+        this.momoNotifyUrl = momoNotifyUrl;
+        this.simBaseUrl = simBaseUrl;
+        this.successRate = successRate;
+        this.cancelRate = cancelRate;
+    }
+
+    // ======================== VNPAY ========================
+
+    // Thay cho trang thanh toán VNPAY: khách "thanh toán" ngay và được redirect về returnUrl
+    @GetMapping("/vnpay/pay")
+    public Object vnpayPay(@RequestParam Map<String, String> params) {
+        if (!verifyVnpayPaymentUrl(params)) {
+            log.warn("[SIM VNPAY] Invalid payment URL signature for {}", params.get("vnp_TxnRef"));
+            return ResponseEntity.badRequest().body("Invalid signature (code=97)");
+        }
+
+        String responseCode = switch (pickOutcome()) {
+            case SUCCESS -> "00";
+            case CANCELLED -> "24";
+            case FAILED -> "51";
+        };
+
+        Map<String, String> result = new TreeMap<>();
+        result.put("vnp_Amount", params.get("vnp_Amount"));
+        result.put("vnp_BankCode", "NCB");
+        result.put("vnp_OrderInfo", params.get("vnp_OrderInfo"));
+        result.put("vnp_PayDate", LocalDateTime.now().format(VNP_DATE));
+        result.put("vnp_ResponseCode", responseCode);
+        result.put("vnp_TmnCode", params.get("vnp_TmnCode"));
+        result.put("vnp_TransactionNo", String.valueOf(transactionNo.incrementAndGet()));
+        result.put("vnp_TransactionStatus", responseCode);
+        result.put("vnp_TxnRef", params.get("vnp_TxnRef"));
+        result.put("vnp_SecureHash", VnpayUtil.hmacSHA512(vnpHashSecret, VnpayUtil.buildSignData(result)));
+
+        vnpayResults.put(result.get("vnp_TxnRef"), result);
+        dispatcher.dispatchVnpayIpn(vnpIpnUrl, result);
+        return new RedirectView(withQuery(vnpReturnUrl, result));
+    }
+
+    // Cách VnpayUrlCreator ký: sắp theo key, value mã hóa US_ASCII (khoảng trắng thành '+')
+    private boolean verifyVnpayPaymentUrl(Map<String, String> params) {
+        StringBuilder signData = new StringBuilder(512);
+        for (Map.Entry<String, String> e : new TreeMap<>(params).entrySet()) {
+            if ("vnp_SecureHash".equals(e.getKey()) || e.getValue() == null || e.getValue().isEmpty()) {
+                continue;
+            }
+            if (signData.length() > 0) {
+                signData.append('&');
+            }
+            VnpayUtil.appendFormEncodedAscii(signData.append(e.getKey()).append('='), e.getValue());
+        }
+        return HmacSigner.hmacSha512(vnpHashSecret).verify(signData.toString(), params.get("vnp_SecureHash"));
+    }
+
+    // API querydr giả lập cho job đối soát
+    @PostMapping("/vnpay/query")
+    public Map<String, Object> vnpayQuery(@RequestBody Map<String, String> request) {
+        String expected = HmacSigner.hmacSha512(vnpHashSecret).sign(String.join("|",
+                request.get("vnp_RequestId"), request.get("vnp_Version"), request.get("vnp_Command"),
+                request.get("vnp_TmnCode"), request.get("vnp_TxnRef"), request.get("vnp_TransactionDate"),
+                request.get("vnp_CreateDate"), request.get("vnp_IpAddr"), request.get("vnp_OrderInfo")));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("vnp_ResponseId", request.get("vnp_RequestId"));
+        response.put("vnp_Command", "querydr");
+        response.put("vnp_TmnCode", request.get("vnp_TmnCode"));
+        response.put("vnp_TxnRef", request.get("vnp_TxnRef"));
+        Map<String, String> result = vnpayResults.get(request.get("vnp_TxnRef"));
+        if (!HmacSigner.hexEquals(expected, request.get("vnp_SecureHash"))) {
+            response.put("vnp_ResponseCode", "97");
+            response.put("vnp_Message", "Invalid signature");
+        } else if (result == null) {
+            response.put("vnp_ResponseCode", "91");
+            response.put("vnp_Message", "Transaction not found");
+        } else {
+            response.put("vnp_ResponseCode", "00");
+            response.put("vnp_Message", "QueryDR Success");
+            response.put("vnp_Amount", result.get("vnp_Amount"));
+            response.put("vnp_BankCode", result.get("vnp_BankCode"));
+            response.put("vnp_PayDate", result.get("vnp_PayDate"));
+            response.put("vnp_TransactionNo", result.get("vnp_TransactionNo"));
+            response.put("vnp_TransactionType", "01");
+            response.put("vnp_TransactionStatus", result.get("vnp_TransactionStatus"));
+            response.put("vnp_OrderInfo", result.get("vnp_OrderInfo"));
+        }
+        response.put("vnp_SecureHash", HmacSigner.hmacSha512(vnpHashSecret)
+                .sign(VnpayUtil.buildQueryDrResponseSignData(response)));
+        return response;
+    }
+
+    // ======================== MOMO ========================
+
+    // Thay cho API tạo giao dịch của MOMO: trả payUrl trỏ về trang thanh toán giả lập
+    @PostMapping("/momo/create")
+    public Map<String, Object> momoCreate(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        String expected = MomoUtil.createSignature(
+                momoAccessKey, momoSecretKey, str(request.get("partnerCode")),
+                str(request.get("orderId")), str(request.get("requestId")),
+                new BigDecimal(str(request.get("amount"))), str(request.get("orderInfo")),
+                str(request.get("returnUrl")), str(request.get("notifyUrl")),
+                str(request.get("requestType")), str(request.get("extraData")));
+        if (!HmacSigner.hexEquals(expected, str(request.get("signature")))) {
+            response.put("errorCode", 5);
+            response.put("message", "Invalid signature");
+            return response;
+        }
+
+        Map<String, String> payParams = new LinkedHashMap<>();
+        payParams.put("partnerCode", str(request.get("partnerCode")));
+        payParams.put("orderId", str(request.get("orderId")));
+        payParams.put("requestId", str(request.get("requestId")));
+        payParams.put("amount", str(request.get("amount")));
+        payParams.put("orderInfo", str(request.get("orderInfo")));
+        payParams.put("extraData", str(request.get("extraData")));
+
+        response.put("errorCode", 0);
+        response.put("message", "Success");
+        response.put("payUrl", withQuery(simBaseUrl + "/momo/pay", payParams));
+        return response;
+    }
+
+    @GetMapping("/momo/pay")
+    public RedirectView momoPay(@RequestParam Map<String, String> params) {
+        Outcome outcome = pickOutcome();
+        String errorCode = switch (outcome) {
+            case SUCCESS -> "0";
+            case CANCELLED -> "42";
+            case FAILED -> "1001";
+        };
+
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("partnerCode", params.get("partnerCode"));
+        result.put("accessKey", momoAccessKey);
+        result.put("requestId", params.get("requestId"));
+        result.put("amount", params.get("amount"));
+        result.put("orderId", params.get("orderId"));
+        result.put("orderInfo", params.get("orderInfo"));
+        result.put("orderType", "momo_wallet");
+        result.put("transId", String.valueOf(transactionNo.incrementAndGet()));
+        result.put("errorCode", errorCode);
+        result.put("message", outcome == Outcome.SUCCESS ? "Success" : "Simulated " + outcome.name().toLowerCase());
+        result.put("localMessage", outcome == Outcome.SUCCESS ? "Thành công" : "Giả lập " + outcome.name().toLowerCase());
+        result.put("payType", "qr");
+        result.put("responseTime", String.valueOf(System.currentTimeMillis()));
+        result.put("extraData", params.getOrDefault("extraData", ""));
+        result.put("signature", MomoUtil.createIpnSignature(momoAccessKey, momoSecretKey, result));
+
+        momoResults.put(result.get("orderId"), result);
+        dispatcher.dispatchMomoIpn(momoNotifyUrl, result);
+
+        // Trang return đọc resultCode, còn IPN processor đọc errorCode
+        Map<String, String> returnParams = new LinkedHashMap<>(result);
+        returnParams.put("resultCode", errorCode);
+        return new RedirectView(withQuery(momoReturnUrl, returnParams));
+    }
+
+    // API query trạng thái giả lập cho job đối soát; giao dịch chưa "thanh toán" trả 1000 (chưa hoàn tất)
+    @PostMapping("/momo/query")
+    public Map<String, Object> momoQuery(@RequestBody Map<String, Object> request) {
+        String orderId = str(request.get("orderId"));
+        String expected = MomoUtil.createQuerySignature(momoAccessKey, momoSecretKey,
+                str(request.get("partnerCode")), orderId, str(request.get("requestId")));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("partnerCode", str(request.get("partnerCode")));
+        response.put("orderId", orderId);
+        response.put("requestId", str(request.get("requestId")));
+        response.put("responseTime", System.currentTimeMillis());
+        Map<String, String> result = momoResults.get(orderId);
+        if (!HmacSigner.hexEquals(expected, str(request.get("signature")))) {
+            response.put("resultCode", 11);
+            response.put("message", "Invalid signature");
+        } else if (result == null) {
+            response.put("resultCode", 1000);
+            response.put("message", "Transaction initiated");
+        } else {
+            response.put("resultCode", Integer.parseInt(result.get("errorCode")));
+            response.put("message", result.get("message"));
+            response.put("amount", result.get("amount"));
+            response.put("transId", result.get("transId"));
+            response.put("orderType", result.get("orderType"));
+            response.put("payType", result.get("payType"));
+            response.put("orderInfo", result.get("orderInfo"));
+            response.put("extraData", result.get("extraData"));
+        }
+        response.put("signature", MomoUtil.createQueryResponseSignature(momoAccessKey, momoSecretKey, response));
+        return response;
+    }
+
+    // ======================== THỐNG KÊ ========================
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return dispatcher.stats();
+    }
+
+    private Outcome pickOutcome() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < successRate) {
+            return Outcome.SUCCESS;
+        }
+        return roll < successRate + cancelRate ? Outcome.CANCELLED : Outcome.FAILED;
+    }
+
+    private static String withQuery(String baseUrl, Map<String, String> params) {
+        StringBuilder url = new StringBuilder(baseUrl).append(baseUrl.contains("?") ? '&' : '?');
+        params.forEach((key, value) -> url.append(URLEncoder.encode(key, StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(value != null ? value : "", StandardCharsets.UTF_8)).append('&'));
+        url.setLength(url.length() - 1);
+        return url.toString();
+    }
+
+    private static String str(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        CANCELLED,
+        FAILED
+    }
+}
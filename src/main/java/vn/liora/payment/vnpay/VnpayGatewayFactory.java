@@ -2,9 +2,11 @@ package vn.liora.payment.vnpay;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
 import vn.liora.payment.PaymentProvider;
 import vn.liora.payment.api.PaymentGatewayFactory;
 import vn.liora.payment.api.PaymentIpnProcessor;
+import vn.liora.payment.api.PaymentStatusQuerier;
 import vn.liora.payment.api.PaymentUrlCreator;
 import vn.liora.repository.OrderRepository;
 import vn.liora.repository.VnpayPaymentRepository;
@@ -13,10 +15,12 @@ import vn.liora.repository.VnpayPaymentRepository;
 public class VnpayGatewayFactory implements PaymentGatewayFactory {
     private final PaymentUrlCreator urlCreator;
     private final PaymentIpnProcessor ipnProcessor;
+    private final PaymentStatusQuerier statusQuerier;
 
     public VnpayGatewayFactory(
             VnpayPaymentRepository vnpayPaymentRepository,
             OrderRepository orderRepository,
+            RestTemplate restTemplate,
             @Value("${vnpay.tmnCode}") String vnpTmnCode,
             @Value("${vnpay.hashSecret}") String vnpHashSecret,
             @Value("${vnpay.payUrl}") String vnpPayUrl,
@@ -26,7 +30,8 @@ public class VnpayGatewayFactory implements PaymentGatewayFactory {
             @Value("${vnpay.command}") String vnpCommand,
             @Value("${vnpay.currCode}") String vnpCurrCode,
             @Value("${vnpay.locale:vn}") String vnpLocale,
-            @Value("${vnpay.sendIpnParam:false}") boolean vnpSendIpnParam
+            @Value("${vnpay.sendIpnParam:false}") boolean vnpSendIpnParam,
+            @Value("${vnpay.queryUrl:https://sandbox.vnpayment.vn/merchant_webapi/api/transaction}") String vnpQueryUrl
     ) {
         this.urlCreator = new VnpayUrlCreator(
                 vnpayPaymentRepository,
@@ -42,6 +47,7 @@ public class VnpayGatewayFactory implements PaymentGatewayFactory {
                 vnpSendIpnParam
         );
         this.ipnProcessor = new VnpayIpnProcessor(orderRepository, vnpayPaymentRepository, vnpHashSecret);
+        this.statusQuerier = new VnpayStatusQuerier(restTemplate, vnpTmnCode, vnpHashSecret, vnpQueryUrl, vnpVersion);
     }
 
     @Override
@@ -58,5 +64,10 @@ public class VnpayGatewayFactory implements PaymentGatewayFactory {
     public PaymentIpnProcessor ipnProcessor() {
         return ipnProcessor;
     }
+
+    @Override
+    public PaymentStatusQuerier statusQuerier() {
+        return statusQuerier;
+    }
 }
 
@@ -10,11 +10,11 @@ import vn.liora.payment.api.PaymentIpnProcessor;
 import vn.liora.payment.api.PaymentIpnResult;
 import vn.liora.repository.OrderRepository;
 import vn.liora.repository.VnpayPaymentRepository;
+import vn.liora.util.HmacSigner;
 import vn.liora.util.VnpayUtil;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -45,10 +45,7 @@ class VnpayIpnProcessor implements PaymentIpnProcessor {
         Map<String, String> p = (Map<String, String>) params;
 
         String receivedHash = p.get("vnp_SecureHash");
-        Map<String, String> dataForSign = new HashMap<>(p);
-        dataForSign.remove("vnp_SecureHash");
-        dataForSign.remove("vnp_SecureHashType");
-        String signData = VnpayUtil.buildQuery(dataForSign);
+        String signData = VnpayUtil.buildSignData(p);
         String expectedHash = VnpayUtil.hmacSHA512(vnpHashSecret, signData);
 
         if (log.isInfoEnabled()) {
@@ -62,7 +59,7 @@ class VnpayIpnProcessor implements PaymentIpnProcessor {
             }
         }
 
-        if (receivedHash == null || !receivedHash.equalsIgnoreCase(expectedHash)) {
+        if (!HmacSigner.hexEquals(expectedHash, receivedHash)) {
             throw new AppException(ErrorCode.UNAUTHORIZED);
         }
 
@@ -0,0 +1,114 @@
+package vn.liora.payment.vnpay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import vn.liora.payment.PaymentProvider;
+import vn.liora.payment.api.PaymentStatusQuerier;
+import vn.liora.util.HmacSigner;
+import vn.liora.util.VnpayUtil;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Gọi API querydr của VNPAY. Response được kiểm tra chữ ký theo định dạng của querydr,
+ * sau đó chuyển thành tham số IPN và ký lại bằng cùng secret để đi qua {@link VnpayIpnProcessor}.
+ */
+@Slf4j
+class VnpayStatusQuerier implements PaymentStatusQuerier {
+    private static final DateTimeFormatter VNP_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final RestTemplate restTemplate;
+    private final String vnpTmnCode;
+    private final String vnpHashSecret;
+    private final String vnpQueryUrl;
+    private final String vnpVersion;
+
+    VnpayStatusQuerier(
+            RestTemplate restTemplate,
+            String vnpTmnCode,
+            String vnpHashSecret,
+            String vnpQueryUrl,
+            String vnpVersion
+    ) {
+        this.restTemplate = restTemplate;
+        this.vnpTmnCode = vnpTmnCode;
+        this.vnpHashSecret = vnpHashSecret;
+        this.vnpQueryUrl = vnpQueryUrl;
+        this.vnpVersion = vnpVersion;
+    }
+
+    @Override
+    public PaymentProvider provider() {
+        return PaymentProvider.VNPAY;
+    }
+
+    @Override
+    public Optional<Map<String, String>> queryStatus(String txnRef, LocalDateTime createdAt) {
+        String requestId = UUID.randomUUID().toString().replace("-", "");
+        String createDate = LocalDateTime.now().format(VNP_DATE);
+        String transactionDate = (createdAt != null ? createdAt : LocalDateTime.now()).format(VNP_DATE);
+        String orderInfo = "Truy van giao dich " + txnRef;
+        String ipAddr = "127.0.0.1";
+
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("vnp_RequestId", requestId);
+        request.put("vnp_Version", vnpVersion);
+        request.put("vnp_Command", "querydr");
+        request.put("vnp_TmnCode", vnpTmnCode);
+        request.put("vnp_TxnRef", txnRef);
+        request.put("vnp_OrderInfo", orderInfo);
+        request.put("vnp_TransactionDate", transactionDate);
+        request.put("vnp_CreateDate", createDate);
+        request.put("vnp_IpAddr", ipAddr);
+        request.put("vnp_SecureHash", HmacSigner.hmacSha512(vnpHashSecret).sign(String.join("|",
+                requestId, vnpVersion, "querydr", vnpTmnCode, txnRef, transactionDate, createDate, ipAddr, orderInfo)));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> response = restTemplate.postForObject(vnpQueryUrl, new HttpEntity<>(request, headers), Map.class);
+        if (response == null) {
+            return Optional.empty();
+        }
+
+        String responseSignData = VnpayUtil.buildQueryDrResponseSignData(response);
+        if (!HmacSigner.hmacSha512(vnpHashSecret).verify(responseSignData, str(response, "vnp_SecureHash"))) {
+            log.warn("[VNPAY querydr] Invalid response signature for {}", txnRef);
+            return Optional.empty();
+        }
+
+        String responseCode = str(response, "vnp_ResponseCode");
+        String transactionStatus = str(response, "vnp_TransactionStatus");
+        // 00: truy vấn thành công; 01 (transactionStatus): giao dịch chưa hoàn tất
+        if (!"00".equals(responseCode) || transactionStatus.isEmpty() || "01".equals(transactionStatus)) {
+            log.debug("[VNPAY querydr] {} not final: responseCode={}, status={}", txnRef, responseCode, transactionStatus);
+            return Optional.empty();
+        }
+
+        Map<String, String> ipn = new HashMap<>();
+        ipn.put("vnp_TxnRef", txnRef);
+        ipn.put("vnp_TmnCode", str(response, "vnp_TmnCode"));
+        ipn.put("vnp_Amount", str(response, "vnp_Amount"));
+        ipn.put("vnp_BankCode", str(response, "vnp_BankCode"));
+        ipn.put("vnp_PayDate", str(response, "vnp_PayDate"));
+        ipn.put("vnp_TransactionNo", str(response, "vnp_TransactionNo"));
+        ipn.put("vnp_TransactionStatus", transactionStatus);
+        ipn.put("vnp_ResponseCode", transactionStatus);
+        ipn.put("vnp_SecureHash", VnpayUtil.hmacSHA512(vnpHashSecret, VnpayUtil.buildSignData(ipn)));
+        return Optional.of(ipn);
+    }
+
+    private static String str(Map<String, ?> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : "";
+    }
+}
@@ -86,29 +86,22 @@ class VnpayUrlCreator implements PaymentUrlCreator {
         fields.put("vnp_CreateDate", LocalDateTime.now().format(formatter));
         fields.put("vnp_ExpireDate", LocalDateTime.now().plusMinutes(15).format(formatter));
 
-        StringBuilder hashData = new StringBuilder();
-        StringBuilder querySb = new StringBuilder();
+        // Key vnp_* không có ký tự cần mã hóa nên chuỗi ký và query string trùng nhau: dựng một lần
+        StringBuilder hashData = new StringBuilder(512);
         for (Map.Entry<String, String> e : fields.entrySet()) {
-            String k = e.getKey();
             String v = e.getValue();
             if (v == null || v.isEmpty()) {
                 continue;
             }
             if (hashData.length() > 0) {
                 hashData.append('&');
-                querySb.append('&');
             }
-            hashData.append(k).append('=')
-                    .append(java.net.URLEncoder.encode(v, java.nio.charset.StandardCharsets.US_ASCII));
-            querySb.append(java.net.URLEncoder.encode(k, java.nio.charset.StandardCharsets.US_ASCII))
-                    .append('=')
-                    .append(java.net.URLEncoder.encode(v, java.nio.charset.StandardCharsets.US_ASCII));
+            VnpayUtil.appendFormEncodedAscii(hashData.append(e.getKey()).append('='), v);
         }
 
         String signData = hashData.toString();
-        String query = querySb.toString();
         String secureHash = VnpayUtil.hmacSHA512(vnpHashSecret, signData);
-        String paymentUrl = vnpPayUrl + "?" + query + "&vnp_SecureHash=" + secureHash;
+        String paymentUrl = vnpPayUrl + "?" + signData + "&vnp_SecureHash=" + secureHash;
 
         if (log.isInfoEnabled()) {
             try {
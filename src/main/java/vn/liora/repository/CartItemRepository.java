@@ -1,6 +1,7 @@
 package vn.liora.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,6 +10,8 @@ import vn.liora.entity.CartItem;
 import vn.liora.entity.User;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +27,20 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product p JOIN FETCH p.images WHERE ci.cart = :cart")
     List<CartItem> findByCartWithProduct(@Param("cart") Cart cart);
 
+    // Item của nhiều cart (kèm product) trong một query, dùng khi gộp cart guest vào cart user
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart.idCart IN :cartIds ORDER BY ci.idCartItem")
+    List<CartItem> findByCartIdsWithProduct(@Param("cartIds") Collection<Long> cartIds);
+
+    // Item của các giỏ guest sắp bị dọn (cùng điều kiện idle với CartRepository#deleteIdleGuestCarts)
+    @Modifying
+    @Query("""
+            DELETE FROM CartItem ci
+            WHERE ci.cart.idCart IN (
+                SELECT c.idCart FROM Cart c
+                WHERE c.idCart IN :cartIds AND c.user IS NULL AND c.lastActivityAt < :cutoff)
+            """)
+    int deleteByIdleGuestCartIds(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") LocalDateTime cutoff);
+
     @Query("SELECT SUM(ci.totalPrice) FROM CartItem ci WHERE ci.cart = :cart")
     BigDecimal getCartTotalAmount(@Param("cart") Cart cart);
 
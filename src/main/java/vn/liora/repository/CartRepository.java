@@ -1,9 +1,16 @@
 package vn.liora.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.Cart;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +18,17 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser_UserId(Long userId);
 
     Optional<Cart> findByGuestId(String guestId);
-}
\ No newline at end of file
+
+    // Giỏ tạo trước khi có cột LastActivityAt: coi như vừa hoạt động để được giữ thêm một vòng đời cookie
+    @Modifying
+    @Query("UPDATE Cart c SET c.lastActivityAt = :now WHERE c.lastActivityAt IS NULL")
+    int backfillLastActivity(@Param("now") LocalDateTime now);
+
+    @Query("SELECT c.idCart FROM Cart c WHERE c.user IS NULL AND c.lastActivityAt < :cutoff ORDER BY c.idCart")
+    List<Long> findIdleGuestCartIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Điều kiện idle được kiểm lại lúc xóa, bỏ qua giỏ vừa có hoạt động sau khi lô id được đọc
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.idCart IN :ids AND c.user IS NULL AND c.lastActivityAt < :cutoff")
+    int deleteIdleGuestCarts(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,6 +3,7 @@ package vn.liora.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -58,4 +59,17 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
        "AND d.startDate <= :now AND d.endDate >= :now " +
        "AND (d.usageLimit IS NULL OR d.usedCount < d.usageLimit)")
     Optional<Discount> findAvailableDiscountByName(@Param("name") String name, @Param("now") LocalDateTime now);
-}
\ No newline at end of file
+
+    // ====== USAGE COUNTING (nguyên tử) ======
+    // Số dòng bị ảnh hưởng = 1 nghĩa là đã giành được một lượt dùng, 0 là đã hết lượt
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = COALESCE(d.usedCount, 0) + 1 " +
+           "WHERE d.discountId = :discountId " +
+           "AND (d.usageLimit IS NULL OR COALESCE(d.usedCount, 0) < d.usageLimit)")
+    int claimUsage(@Param("discountId") Long discountId);
+
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = d.usedCount - 1 " +
+           "WHERE d.discountId = :discountId AND d.usedCount > 0")
+    int releaseUsage(@Param("discountId") Long discountId);
+}
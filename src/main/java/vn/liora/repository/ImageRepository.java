@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import vn.liora.entity.Image;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,10 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByProductProductIdOrderByDisplayOrder(Long productId);
     Optional<Image> findByProductProductIdAndIsMainTrue(Long productId);
     List<Image> findByProductProductIdAndIsMainFalse(Long productId);
+
+    // Ảnh của nhiều sản phẩm trong một query (danh sách sản phẩm đã xem gần đây)
+    @Query("SELECT i FROM Image i WHERE i.product.productId IN :productIds ORDER BY i.imageId")
+    List<Image> findByProductIds(@Param("productIds") Collection<Long> productIds);
     
     // Count queries
     Long countByProductProductId(Long productId);
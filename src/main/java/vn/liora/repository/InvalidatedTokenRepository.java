@@ -1,9 +1,20 @@
 package vn.liora.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.InvalidatedToken;
 
+import java.util.Date;
+import java.util.List;
+
 @Repository
 public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
+    List<InvalidatedToken> findByExpiryTimeAfter(Date time);
+
+    // Lấy từng lô id đã hết hạn (dùng index expiryTime) để xóa theo lô
+    @Query("SELECT t.id FROM InvalidatedToken t WHERE t.expiryTime < :time")
+    List<String> findExpiredIds(@Param("time") Date time, Pageable pageable);
 }
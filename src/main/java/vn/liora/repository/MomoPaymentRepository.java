@@ -1,9 +1,14 @@
 package vn.liora.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.MomoPayment;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -33,4 +38,15 @@ public interface MomoPaymentRepository extends JpaRepository<MomoPayment, Long>
      * Kiểm tra xem requestId đã tồn tại chưa
      */
     boolean existsByRequestId(String requestId);
+
+    // Đối soát: giao dịch của đơn còn PENDING trong khoảng [createdAfter, createdBefore),
+    // phân trang theo id (keyset) vì trạng thái đổi ngay trong lúc duyệt
+    @Query("SELECT m FROM MomoPayment m JOIN Order o ON o.idOrder = m.idOrder " +
+           "WHERE o.paymentStatus = 'PENDING' AND o.orderStatus <> 'CANCELLED' " +
+           "AND m.createdAt >= :createdAfter AND m.createdAt < :createdBefore AND m.idMomoPayment > :afterId " +
+           "ORDER BY m.idMomoPayment")
+    Slice<MomoPayment> findPendingForReconciliation(@Param("afterId") Long afterId,
+                                                    @Param("createdAfter") LocalDateTime createdAfter,
+                                                    @Param("createdBefore") LocalDateTime createdBefore,
+                                                    Pageable pageable);
 }
@@ -97,4 +97,31 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate
     );
+
+    // ======================== ORDER ITEM FACTS (in-memory analytics) ========================
+    // Trả về (idOrder, categoryId, brandId, price) của từng item thuộc đơn COMPLETED
+    @Query("""
+        SELECT o.idOrder, c.categoryId, b.brandId, p.price
+        FROM OrderItem oi
+        JOIN oi.order o
+        JOIN oi.productItem pi
+        JOIN pi.product p
+        LEFT JOIN p.category c
+        LEFT JOIN p.brand b
+        WHERE o.orderStatus = 'COMPLETED'
+    """)
+    List<Object[]> findCompletedOrderItemFacts();
+
+    @Query("""
+        SELECT o.idOrder, c.categoryId, b.brandId, p.price
+        FROM OrderItem oi
+        JOIN oi.order o
+        JOIN oi.productItem pi
+        JOIN pi.product p
+        LEFT JOIN p.category c
+        LEFT JOIN p.brand b
+        WHERE o.idOrder = :orderId
+          AND o.orderStatus = 'COMPLETED'
+    """)
+    List<Object[]> findOrderItemFactsByOrderId(@Param("orderId") Long orderId);
 }
@@ -1,8 +1,11 @@
 package vn.liora.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.dto.response.TopCustomerResponse;
@@ -11,7 +14,9 @@ import vn.liora.entity.User;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -27,6 +32,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     long countByUser(User user);
 
+    long countByOrderStatus(String orderStatus);
+
+    long countByOrderStatusIn(Collection<String> orderStatuses);
+
     List<Order> findByUserOrderByOrderDateDesc(User user);
 
     List<Order> findByOrderByOrderDateDesc();
@@ -145,5 +154,53 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.user.userId = :userId AND o.discount.discountId = :discountId AND o.orderStatus != 'CANCELLED'")
     Long countOrdersByUserAndDiscount(@Param("userId") Long userId, @Param("discountId") Long discountId);
 
+    // Bản batch của countOrdersByUserAndDiscount: [discountId, count] cho nhiều mã trong một truy vấn
+    @Query("SELECT o.discount.discountId, COUNT(o) FROM Order o WHERE o.user.userId = :userId " +
+           "AND o.discount.discountId IN :discountIds AND o.orderStatus != 'CANCELLED' GROUP BY o.discount.discountId")
+    List<Object[]> countOrdersByUserGroupedByDiscount(@Param("userId") Long userId,
+                                                      @Param("discountIds") Collection<Long> discountIds);
+
     long countByDiscount_DiscountId(Long discountId);
+
+    // ======================== ORDER FACTS (in-memory analytics) ========================
+    // Trả về (idOrder, orderDate, total, userId) của đơn COMPLETED, không hydrate entity
+    @Query("""
+        SELECT o.idOrder, o.orderDate, o.total, u.userId
+        FROM Order o
+        LEFT JOIN o.user u
+        WHERE o.orderStatus = 'COMPLETED'
+        ORDER BY o.idOrder
+    """)
+    List<Object[]> findCompletedOrderFacts();
+
+    @Query("""
+        SELECT o.idOrder, o.orderDate, o.total, u.userId
+        FROM Order o
+        LEFT JOIN o.user u
+        WHERE o.idOrder = :orderId
+          AND o.orderStatus = 'COMPLETED'
+    """)
+    List<Object[]> findOrderFactsById(@Param("orderId") Long orderId);
+
+    // ======================== CSV EXPORT ========================
+    // Fetch size Integer.MIN_VALUE bật chế độ streaming từng dòng của MySQL Connector/J,
+    // cần gọi trong transaction và đóng Stream sau khi dùng
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT o.idOrder, o.orderDate, o.name, o.phone, o.email, o.paymentMethod,
+               o.orderStatus, o.paymentStatus, o.totalDiscount, o.shippingFee, o.total
+        FROM Order o
+        WHERE (:startDate IS NULL OR o.orderDate >= :startDate)
+          AND (:endDate IS NULL OR o.orderDate <= :endDate)
+          AND (:orderStatus IS NULL OR o.orderStatus = :orderStatus)
+        ORDER BY o.idOrder DESC
+    """)
+    Stream<Object[]> streamOrdersForExport(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("orderStatus") String orderStatus
+    );
 }
@@ -0,0 +1,26 @@
+package vn.liora.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.liora.entity.OtpCode;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface OtpCodeRepository extends JpaRepository<OtpCode, String> {
+
+    // Khóa dòng khi xác thực để hai instance không cùng dùng một mã
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OtpCode o WHERE o.id = :id")
+    Optional<OtpCode> findByIdForUpdate(@Param("id") String id);
+
+    @Modifying
+    @Query("DELETE FROM OtpCode o WHERE o.expiresAt < :time")
+    int deleteExpired(@Param("time") LocalDateTime time);
+}
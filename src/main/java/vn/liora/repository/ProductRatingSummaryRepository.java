@@ -0,0 +1,9 @@
+package vn.liora.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import vn.liora.entity.ProductRatingSummary;
+
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Long> {
+}
@@ -1,19 +1,35 @@
 package vn.liora.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.Product;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product,Long> {
+    // Khóa dòng sản phẩm để các thay đổi review cùng sản phẩm cập nhật tổng hợp đánh giá tuần tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.productId = :productId")
+    Optional<Product> findByIdForUpdate(@Param("productId") Long productId);
+
+    // Nạp nhiều sản phẩm kèm brand / category trong một query
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category WHERE p.productId IN :productIds")
+    List<Product> findAllWithBrandAndCategoryByIdIn(@Param("productIds") Collection<Long> productIds);
+
     // ====== BASIC SEARCH ======
     List<Product> findByNameContaining(String name);
     Page<Product> findByNameContaining(String name, Pageable pageable);
@@ -135,4 +151,17 @@ public interface ProductRepository extends JpaRepository<Product,Long> {
            "AND p.soldCount > 0 AND p.brand.brandId = :brandId " +
            "ORDER BY p.soldCount DESC")
     List<Product> findBestSellingByBrand(@Param("brandId") Long brandId, Pageable pageable);
+
+    // ====== CSV EXPORT ======
+    // Streaming theo từng dòng (MySQL fetch size Integer.MIN_VALUE), dùng trong transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.productId, p.name, c.name, b.name, p.price, " +
+           "(SELECT COUNT(pi) FROM ProductItem pi WHERE pi.product = p " +
+           "AND pi.status = vn.liora.enums.ProductItemStatus.IN_STOCK), " +
+           "p.soldCount, p.averageRating, p.isActive, p.available, p.createdDate " +
+           "FROM Product p LEFT JOIN p.category c LEFT JOIN p.brand b ORDER BY p.productId")
+    Stream<Object[]> streamProductsForExport();
 }
@@ -37,10 +37,26 @@ public interface RecentlyViewedRepository extends JpaRepository<RecentlyViewed,
     @Query("SELECT COUNT(rv) FROM RecentlyViewed rv WHERE rv.guestId = :guestId AND rv.user IS NULL")
     Long countByGuestId(@Param("guestId") String guestId);
     
-    // Xóa các bản ghi cũ hơn 30 ngày
-    @Modifying
-    @Query("DELETE FROM RecentlyViewed rv WHERE rv.viewedAt < :cutoffDate")
-    int deleteOldRecords(@Param("cutoffDate") LocalDateTime cutoffDate);
+    // ====== RETENTION (RecentlyViewedRetentionJob) ======
+    // Id các bản ghi guest / user quá hạn, theo index ViewedAt, để xóa theo lô
+    @Query("SELECT rv.idRecentlyViewed FROM RecentlyViewed rv WHERE rv.user IS NULL AND rv.viewedAt < :cutoffDate ORDER BY rv.viewedAt")
+    List<Long> findExpiredGuestIds(@Param("cutoffDate") LocalDateTime cutoffDate, Pageable pageable);
+
+    @Query("SELECT rv.idRecentlyViewed FROM RecentlyViewed rv WHERE rv.user IS NOT NULL AND rv.viewedAt < :cutoffDate ORDER BY rv.viewedAt")
+    List<Long> findExpiredUserIds(@Param("cutoffDate") LocalDateTime cutoffDate, Pageable pageable);
+
+    // User / guest có nhiều hơn :max bản ghi
+    @Query("SELECT rv.user.userId FROM RecentlyViewed rv WHERE rv.user IS NOT NULL GROUP BY rv.user.userId HAVING COUNT(rv) > :max")
+    List<Long> findUserIdsOverLimit(@Param("max") long max, Pageable pageable);
+
+    @Query("SELECT rv.guestId FROM RecentlyViewed rv WHERE rv.user IS NULL AND rv.guestId IS NOT NULL GROUP BY rv.guestId HAVING COUNT(rv) > :max")
+    List<String> findGuestIdsOverLimit(@Param("max") long max, Pageable pageable);
+
+    @Query("SELECT rv.idRecentlyViewed FROM RecentlyViewed rv WHERE rv.user.userId = :userId ORDER BY rv.viewedAt DESC, rv.idRecentlyViewed DESC")
+    List<Long> findIdsByUserIdNewestFirst(@Param("userId") Long userId);
+
+    @Query("SELECT rv.idRecentlyViewed FROM RecentlyViewed rv WHERE rv.guestId = :guestId AND rv.user IS NULL ORDER BY rv.viewedAt DESC, rv.idRecentlyViewed DESC")
+    List<Long> findIdsByGuestIdNewestFirst(@Param("guestId") String guestId);
     
     // Xóa tất cả lịch sử của user
     @Modifying
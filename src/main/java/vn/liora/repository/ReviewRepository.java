@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.Review;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,6 +45,14 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     Optional<Review> findByOrderItemIdOrderItemAndUserId(Long orderItemId, Long userId);
     
     // ====== CUSTOM QUERIES ======
+    // Dựng lại tổng hợp đánh giá: mỗi dòng là (productId, rating, isVisible, count)
+    @Query("SELECT r.productId, r.rating, r.isVisible, COUNT(r) FROM Review r GROUP BY r.productId, r.rating, r.isVisible")
+    List<Object[]> countGroupedByProductRatingAndVisibility();
+
+    @Query("SELECT r.productId, r.rating, r.isVisible, COUNT(r) FROM Review r WHERE r.productId = :productId " +
+           "GROUP BY r.productId, r.rating, r.isVisible")
+    List<Object[]> countGroupedByRatingAndVisibility(@Param("productId") Long productId);
+
     @Query("SELECT AVG(r.rating) FROM Review r WHERE r.productId = :productId")
     Double getAverageRatingByProductId(@Param("productId") Long productId);
     
@@ -73,6 +82,20 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE LOWER(r.content) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<Review> findByContentContainingIgnoreCase(@Param("keyword") String keyword, Pageable pageable);
 
+    // Nạp chỉ mục tìm kiếm review: (reviewId, productId, productId qua orderItem, brandId, categoryId, rating,
+    // isVisible, createdAt, content). Sản phẩm lấy theo orderItem -> productItem -> product như findAllReviewsWithFilters
+    @Query("SELECT r.reviewId, r.productId, p.productId, b.brandId, c.categoryId, r.rating, r.isVisible, r.createdAt, r.content " +
+            "FROM Review r LEFT JOIN r.orderItem oi LEFT JOIN oi.productItem pi LEFT JOIN pi.product p " +
+            "LEFT JOIN p.brand b LEFT JOIN p.category c " +
+            "WHERE r.reviewId > :afterId ORDER BY r.reviewId")
+    List<Object[]> findSearchDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT r.reviewId, r.productId, p.productId, b.brandId, c.categoryId, r.rating, r.isVisible, r.createdAt, r.content " +
+            "FROM Review r LEFT JOIN r.orderItem oi LEFT JOIN oi.productItem pi LEFT JOIN pi.product p " +
+            "LEFT JOIN p.brand b LEFT JOIN p.category c " +
+            "WHERE r.reviewId IN :ids")
+    List<Object[]> findSearchDocumentsByIds(@Param("ids") Collection<Long> ids);
+
     // ====== ADMIN FILTER QUERIES ======
     @Query("SELECT r FROM Review r " +
             "JOIN r.orderItem oi " +
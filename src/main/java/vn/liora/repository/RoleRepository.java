@@ -1,10 +1,16 @@
 package vn.liora.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.Permission;
 import vn.liora.entity.Role;
 
+import java.util.List;
+
 @Repository
 public interface RoleRepository extends JpaRepository<Role, String> {
+    // Nạp mọi role kèm permissions trong một query (tránh N+1 qua Role.permissions)
+    @Query("SELECT DISTINCT r FROM Role r LEFT JOIN FETCH r.permissions")
+    List<Role> findAllWithPermissions();
 }
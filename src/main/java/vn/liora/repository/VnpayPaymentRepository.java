@@ -1,9 +1,14 @@
 package vn.liora.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.liora.entity.VnpayPayment;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +16,15 @@ public interface VnpayPaymentRepository extends JpaRepository<VnpayPayment, Long
     Optional<VnpayPayment> findByVnpTxnRef(String vnpTxnRef);
 
     Optional<VnpayPayment> findByIdOrder(Long idOrder);
+
+    // Đối soát: giao dịch của đơn còn PENDING trong khoảng [createdAfter, createdBefore),
+    // phân trang theo id (keyset) vì trạng thái đổi ngay trong lúc duyệt
+    @Query("SELECT v FROM VnpayPayment v JOIN Order o ON o.idOrder = v.idOrder " +
+           "WHERE o.paymentStatus = 'PENDING' AND o.orderStatus <> 'CANCELLED' " +
+           "AND v.createdAt >= :createdAfter AND v.createdAt < :createdBefore AND v.idVnpayPayment > :afterId " +
+           "ORDER BY v.idVnpayPayment")
+    Slice<VnpayPayment> findPendingForReconciliation(@Param("afterId") Long afterId,
+                                                     @Param("createdAfter") LocalDateTime createdAfter,
+                                                     @Param("createdBefore") LocalDateTime createdBefore,
+                                                     Pageable pageable);
 }
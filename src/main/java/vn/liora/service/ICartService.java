@@ -3,6 +3,11 @@ package vn.liora.service;
 import vn.liora.dto.response.CartResponse;
 
 public interface ICartService {
-    CartResponse getCart(String guestCartId, Long userId);
+    /**
+     * Giỏ của user (luôn được tạo nếu chưa có, kèm gộp giỏ guest) hoặc của guest.
+     * Với guest, giỏ chỉ được tạo khi {@code create} = true (lần thêm sản phẩm đầu tiên);
+     * nếu chưa có giỏ thì trả về giỏ rỗng với idCart = null.
+     */
+    CartResponse getCart(String guestCartId, Long userId, boolean create);
 
 }
@@ -8,6 +8,9 @@ import java.util.List;
 import java.util.Map;
 
 public interface IDashboardService {
+    // Ngưỡng "sắp hết hàng" của thẻ và bảng tồn kho trên dashboard
+    int LOW_STOCK_THRESHOLD = 10;
+
     BigDecimal getTotalRevenue();
     BigDecimal getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate);
     long getTotalOrders();
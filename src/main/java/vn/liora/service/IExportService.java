@@ -0,0 +1,13 @@
+package vn.liora.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface IExportService {
+    void exportOrdersCsv(LocalDateTime startDate, LocalDateTime endDate, String orderStatus, OutputStream out)
+            throws IOException;
+    void exportRevenueCsv(String type, String groupType, LocalDateTime startDate, LocalDateTime endDate,
+            OutputStream out) throws IOException;
+    void exportProductsCsv(OutputStream out) throws IOException;
+}
@@ -9,17 +9,25 @@ import org.springframework.transaction.annotation.Transactional;
 import vn.liora.dto.RecentlyViewedDTO;
 import vn.liora.entity.Image;
 import vn.liora.entity.Product;
+import vn.liora.entity.ProductRatingSummary;
 import vn.liora.entity.RecentlyViewed;
 import vn.liora.entity.User;
 import vn.liora.repository.ImageRepository;
 import vn.liora.repository.ProductRepository;
 import vn.liora.repository.RecentlyViewedRepository;
-import vn.liora.repository.ReviewRepository;
 import vn.liora.repository.UserRepository;
+import vn.liora.service.recent.RecentlyViewedBuffer;
+import vn.liora.service.review.ProductRatingAggregator;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,14 +39,17 @@ public class RecentlyViewedService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
-    private final ReviewRepository reviewRepository;
-    
-    private static final int MAX_RECENTLY_VIEWED = 20;  // Giới hạn số lượng sản phẩm gần đây
-    private static final int GUEST_RETENTION_DAYS = 30;  // Guest: giữ 30 ngày
-    private static final int USER_RETENTION_DAYS = 90;   // User: giữ 90 ngày (hoặc giới hạn theo số lượng)
+    private final ProductRatingAggregator productRatingAggregator;
+    private final RecentlyViewedBuffer recentlyViewedBuffer;
+
+    private static final String DEFAULT_PRODUCT_IMAGE = "/user/img/default-product.jpg";
     
     @Transactional
     public RecentlyViewedDTO trackProductView(Long productId, Long userId, String guestId) {
+        if (recentlyViewedBuffer.isEnabled()) {
+            return trackBuffered(productId, userId, guestId);
+        }
+
         Product product = productRepository.findById(productId).orElse(null);
         if (product == null) {
             log.warn("Product not found: {}", productId);
@@ -84,9 +95,6 @@ public class RecentlyViewedService {
             // Save - giống CartItem
             recentlyViewed = recentlyViewedRepository.save(recentlyViewed);
             log.debug("Saved successfully: id={}", recentlyViewed.getIdRecentlyViewed());
-            
-            // Cleanup: Giới hạn số lượng records và xóa records cũ
-            cleanupOldRecords(userId, guestId);
         } catch (DataIntegrityViolationException e) {
             // Duplicate key - find và update lại
             log.warn("Duplicate key detected, finding existing record: userId={}, guestId={}, productId={}", userId, guestId, productId);
@@ -109,6 +117,21 @@ public class RecentlyViewedService {
         return convertToDTO(recentlyViewed);
     }
     
+    // Lượt xem chỉ ghi vào bộ đệm, bảng RecentlyViewed được cập nhật theo lô khi flush
+    private RecentlyViewedDTO trackBuffered(Long productId, Long userId, String guestId) {
+        if (productId == null || !productRepository.existsById(productId)) {
+            log.warn("Product not found: {}", productId);
+            return null;
+        }
+        LocalDateTime viewedAt = recentlyViewedBuffer.record(productId, userId, guestId);
+        return RecentlyViewedDTO.builder()
+            .productId(productId)
+            .userId(userId)
+            .guestId(userId == null ? guestId : null)
+            .viewedAt(viewedAt)
+            .build();
+    }
+
     public List<RecentlyViewedDTO> getRecentlyViewed(Long userId, String guestId, int limit) {
         List<RecentlyViewed> list;
             if (userId != null) {
@@ -116,131 +139,152 @@ public class RecentlyViewedService {
         } else {
             list = recentlyViewedRepository.findByGuestIdOrderByViewedAtDesc(guestId, PageRequest.of(0, limit));
         }
+        list = mergePending(list, userId, guestId, limit);
         
-        return list.stream()
-                .map(this::convertToDTO)
-            .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        return convertToDTOs(list);
     }
     
     @Transactional
     public boolean clearRecentlyViewed(Long userId, String guestId) {
+        return recentlyViewedBuffer.discard(userId, guestId, null, () -> {
             if (userId != null) {
                 recentlyViewedRepository.deleteByUserId(userId);
-        } else {
+            } else {
                 recentlyViewedRepository.deleteByGuestId(guestId);
             }
             return true;
+        });
     }
     
     @Transactional
     public boolean removeFromRecentlyViewed(Long productId, Long userId, String guestId) {
-        Optional<RecentlyViewed> existing;
+        boolean buffered = recentlyViewedBuffer.pending(userId, guestId).containsKey(productId);
+        return recentlyViewedBuffer.discard(userId, guestId, productId, () -> {
+            Optional<RecentlyViewed> existing;
             if (userId != null) {
-            existing = recentlyViewedRepository.findByUser_UserIdAndProduct_ProductId(userId, productId);
-                } else {
-            existing = recentlyViewedRepository.findByGuestIdAndProduct_ProductIdAndUserIsNull(guestId, productId);
+                existing = recentlyViewedRepository.findByUser_UserIdAndProduct_ProductId(userId, productId);
+            } else {
+                existing = recentlyViewedRepository.findByGuestIdAndProduct_ProductIdAndUserIsNull(guestId, productId);
+            }
+
+            if (existing.isPresent()) {
+                recentlyViewedRepository.delete(existing.get());
+                return true;
+            }
+            return buffered;
+        });
+    }
+
+    /**
+     * Gộp các lượt xem còn trong bộ đệm (chưa flush) vào danh sách đọc từ DB: cùng sản phẩm thì lấy
+     * thời điểm xem mới hơn, sản phẩm chỉ có trong bộ đệm được thêm vào như một bản ghi chưa lưu.
+     */
+    private List<RecentlyViewed> mergePending(List<RecentlyViewed> fromDb, Long userId, String guestId, int limit) {
+        Map<Long, LocalDateTime> pending = recentlyViewedBuffer.pending(userId, guestId);
+        if (pending.isEmpty()) {
+            return fromDb;
         }
-        
-        if (existing.isPresent()) {
-            recentlyViewedRepository.delete(existing.get());
-            return true;
+
+        Map<Long, RecentlyViewed> byProduct = new HashMap<>();
+        for (RecentlyViewed rv : fromDb) {
+            byProduct.put(rv.getProduct().getProductId(), rv);
         }
-        return false;
-    }
-    
-    private RecentlyViewedDTO convertToDTO(RecentlyViewed rv) {
-        if (rv == null || rv.getProduct() == null) return null;
-        
-        Product p = rv.getProduct();
-        
-        // Lấy main image URL
-        String mainImageUrl = "/user/img/default-product.jpg";
-        Optional<Image> mainImage = imageRepository.findByProductProductIdAndIsMainTrue(p.getProductId());
-        if (mainImage.isPresent()) {
-            mainImageUrl = mainImage.get().getImageUrl();
-            } else {
-            // Fallback: lấy ảnh đầu tiên nếu không có ảnh chính
-            List<Image> images = imageRepository.findByProductProductId(p.getProductId());
-            if (images != null && !images.isEmpty()) {
-                mainImageUrl = images.get(0).getImageUrl();
+        List<Long> missing = new ArrayList<>();
+        pending.forEach((productId, viewedAt) -> {
+            RecentlyViewed rv = byProduct.get(productId);
+            if (rv == null) {
+                missing.add(productId);
+            } else if (viewedAt.isAfter(rv.getViewedAt())) {
+                // Bản sao, không sửa entity đang được quản lý để không bị ghi xuống DB ngoài ý muốn
+                byProduct.put(productId, RecentlyViewed.builder()
+                    .idRecentlyViewed(rv.getIdRecentlyViewed())
+                    .user(rv.getUser())
+                    .product(rv.getProduct())
+                    .guestId(rv.getGuestId())
+                    .viewedAt(viewedAt)
+                    .build());
+            }
+        });
+        if (!missing.isEmpty()) {
+            for (Product product : productRepository.findAllWithBrandAndCategoryByIdIn(missing)) {
+                byProduct.put(product.getProductId(), RecentlyViewed.builder()
+                    .product(product)
+                    .guestId(userId == null ? guestId : null)
+                    .viewedAt(pending.get(product.getProductId()))
+                    .build());
             }
         }
-        
-        // Lấy tất cả ảnh của sản phẩm
-        List<String> productImages = imageRepository.findByProductProductId(p.getProductId())
-            .stream()
-            .map(Image::getImageUrl)
-            .collect(Collectors.toList());
-        
-        // Lấy rating count từ ReviewRepository
-        Long ratingCountLong = reviewRepository.getTotalReviewCountByProductId(p.getProductId());
-        Integer ratingCount = ratingCountLong != null ? ratingCountLong.intValue() : 0;
-        
-        return RecentlyViewedDTO.builder()
-            .idRecentlyViewed(rv.getIdRecentlyViewed())
-            .productId(p.getProductId())
-            .productName(p.getName())
-            .productDescription(p.getDescription())
-            .price(p.getPrice())
-            .mainImageUrl(mainImageUrl)
-            .productImages(productImages)
-            .brandId(p.getBrand() != null ? p.getBrand().getBrandId() : null)
-            .brandName(p.getBrand() != null ? p.getBrand().getName() : null)
-            .categoryId(p.getCategory() != null ? p.getCategory().getCategoryId() : null)
-            .categoryName(p.getCategory() != null ? p.getCategory().getName() : null)
-            .stock(p.getStock())
-            .soldCount(p.getSoldCount())
-            .averageRating(p.getAverageRating())
-            .ratingCount(ratingCount)
-            .available(p.getAvailable())
-            .isActive(p.getIsActive())
-            .viewedAt(rv.getViewedAt())
-            .build();
+
+        return byProduct.values().stream()
+            .sorted(Comparator.comparing(RecentlyViewed::getViewedAt).reversed())
+            .limit(limit)
+            .toList();
     }
     
+    private RecentlyViewedDTO convertToDTO(RecentlyViewed rv) {
+        List<RecentlyViewedDTO> dtos = convertToDTOs(List.of(rv));
+        return dtos.isEmpty() ? null : dtos.get(0);
+    }
+
     /**
-     * Cleanup old records để tránh database phình to
-     * - Guest: Xóa records cũ hơn 30 ngày
-     * - User: Giữ tối đa MAX_RECENTLY_VIEWED records (xóa các records cũ nhất)
+     * Chuyển cả danh sách sang DTO với số query cố định: một query ảnh và một query tổng hợp
+     * đánh giá cho tất cả sản phẩm, thay vì 3-4 query cho mỗi sản phẩm.
+     * Product (kèm brand / category) phải được nạp sẵn bởi query gọi trước.
      */
-    @Transactional
-    private void cleanupOldRecords(Long userId, String guestId) {
-        try {
-            if (userId != null) {
-                // USER: Giữ tối đa MAX_RECENTLY_VIEWED records
-                List<RecentlyViewed> allUserRecords = recentlyViewedRepository
-                    .findByUserIdOrderByViewedAtDesc(userId, PageRequest.of(0, 1000));
-                
-                if (allUserRecords.size() > MAX_RECENTLY_VIEWED) {
-                    // Xóa các records cũ nhất (giữ lại MAX_RECENTLY_VIEWED records mới nhất)
-                    List<RecentlyViewed> toDelete = allUserRecords.subList(
-                        MAX_RECENTLY_VIEWED, allUserRecords.size());
-                    recentlyViewedRepository.deleteAll(toDelete);
-                    log.debug("Cleaned up {} old user records for userId={}", 
-                        toDelete.size(), userId);
-                }
-                
-                // Xóa records cũ hơn USER_RETENTION_DAYS ngày
-                LocalDateTime cutoffDate = LocalDateTime.now().minusDays(USER_RETENTION_DAYS);
-                int deletedCount = recentlyViewedRepository.deleteOldRecords(cutoffDate);
-                if (deletedCount > 0) {
-                    log.debug("Deleted {} user records older than {} days", 
-                        deletedCount, USER_RETENTION_DAYS);
-                }
-            } else {
-                // GUEST: Xóa records cũ hơn GUEST_RETENTION_DAYS ngày
-                LocalDateTime cutoffDate = LocalDateTime.now().minusDays(GUEST_RETENTION_DAYS);
-                int deletedCount = recentlyViewedRepository.deleteOldRecords(cutoffDate);
-                if (deletedCount > 0) {
-                    log.debug("Deleted {} guest records older than {} days", 
-                        deletedCount, GUEST_RETENTION_DAYS);
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Error during cleanup old records: {}", e.getMessage());
-            // Không throw exception để không ảnh hưởng đến flow chính
+    private List<RecentlyViewedDTO> convertToDTOs(List<RecentlyViewed> list) {
+        List<RecentlyViewed> withProduct = list.stream()
+            .filter(rv -> rv != null && rv.getProduct() != null)
+            .toList();
+        if (withProduct.isEmpty()) {
+            return List.of();
         }
+
+        Set<Long> productIds = withProduct.stream()
+            .map(rv -> rv.getProduct().getProductId())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // Ảnh theo sản phẩm, giữ thứ tự imageId như query cũ
+        Map<Long, List<Image>> imagesByProduct = imageRepository.findByProductIds(productIds).stream()
+            .collect(Collectors.groupingBy(image -> image.getProduct().getProductId()));
+        Map<Long, ProductRatingSummary> ratings = productRatingAggregator.findAll(productIds);
+
+        List<RecentlyViewedDTO> result = new ArrayList<>(withProduct.size());
+        for (RecentlyViewed rv : withProduct) {
+            Product p = rv.getProduct();
+            List<Image> images = imagesByProduct.getOrDefault(p.getProductId(), List.of());
+
+            // Ảnh chính, không có thì lấy ảnh đầu tiên
+            String mainImageUrl = images.stream()
+                .filter(image -> Boolean.TRUE.equals(image.getIsMain()))
+                .findFirst()
+                .or(() -> images.stream().findFirst())
+                .map(Image::getImageUrl)
+                .orElse(DEFAULT_PRODUCT_IMAGE);
+
+            // Số review gồm cả review bị ẩn, như getTotalReviewCountByProductId
+            int ratingCount = (int) ratings.get(p.getProductId()).getReviewCount();
+
+            result.add(RecentlyViewedDTO.builder()
+                .idRecentlyViewed(rv.getIdRecentlyViewed())
+                .productId(p.getProductId())
+                .productName(p.getName())
+                .productDescription(p.getDescription())
+                .price(p.getPrice())
+                .mainImageUrl(mainImageUrl)
+                .productImages(images.stream().map(Image::getImageUrl).toList())
+                .brandId(p.getBrand() != null ? p.getBrand().getBrandId() : null)
+                .brandName(p.getBrand() != null ? p.getBrand().getName() : null)
+                .categoryId(p.getCategory() != null ? p.getCategory().getCategoryId() : null)
+                .categoryName(p.getCategory() != null ? p.getCategory().getName() : null)
+                .stock(p.getStock())
+                .soldCount(p.getSoldCount())
+                .averageRating(p.getAverageRating())
+                .ratingCount(ratingCount)
+                .available(p.getAvailable())
+                .isActive(p.getIsActive())
+                .viewedAt(rv.getViewedAt())
+                .build());
+        }
+        return result;
     }
 }
-
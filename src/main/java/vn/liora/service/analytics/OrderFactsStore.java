@@ -0,0 +1,530 @@
+package vn.liora.service.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.liora.repository.OrderItemRepository;
+import vn.liora.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ nhớ đệm dạng cột cho các đơn hàng COMPLETED, phục vụ các màn hình analytics của admin.
+ * <p>
+ * Mỗi đơn hàng / order item được lưu thành một vị trí trong các mảng nguyên thủy
+ * (epoch-day, số tiền tính bằng đồng, id danh mục / thương hiệu), nên các phép group-by
+ * chỉ là các vòng lặp trên mảng thay vì truy vấn SQL. Dữ liệu được nạp lười ở lần đọc
+ * đầu tiên và cập nhật tăng dần khi đơn hàng chuyển vào / ra khỏi trạng thái COMPLETED.
+ * Thay đổi đến trong lúc đang nạp lần đầu được xếp hàng và áp dụng lại ngay sau khi nạp xong;
+ * các vị trí của đơn đã rời COMPLETED được dồn lại khi chiếm quá một phần tư bảng.
+ * Tắt bằng {@code analytics.in-memory.enabled=false} để quay về SQL.
+ */
+@Component
+@Slf4j
+public class OrderFactsStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    // orderId -> true (COMPLETED) / false (rời COMPLETED), nhận trong lúc nạp lần đầu; khóa bằng chính map
+    private final Map<Long, Boolean> changesDuringLoad = new LinkedHashMap<>();
+    private boolean loading;
+
+    // ===== Cột theo đơn hàng =====
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    private long[] orderedAt = new long[INITIAL_CAPACITY]; // epoch second (giờ địa phương, không offset)
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private short[] years = new short[INITIAL_CAPACITY];
+    private byte[] months = new byte[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] userIds = new long[INITIAL_CAPACITY]; // 0 = khách vãng lai
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private int orderSize;
+    private int deadOrders;
+    private final Map<Long, Integer> orderIndex = new HashMap<>();
+
+    // ===== Cột theo order item =====
+    private int[] itemOrderIndex = new int[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int[] brandIds = new int[INITIAL_CAPACITY];
+    private long[] itemAmounts = new long[INITIAL_CAPACITY];
+    private int itemSize;
+    private int maxCategoryId;
+    private int maxBrandId;
+
+    public OrderFactsStore(OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository,
+            @Value("${analytics.in-memory.enabled:false}") boolean enabled) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ======================== CẬP NHẬT TĂNG DẦN ========================
+
+    public void recordCompleted(Long orderId) {
+        if (enabled && orderId != null) {
+            runAfterCommit(() -> appendOrder(orderId));
+        }
+    }
+
+    public void recordReverted(Long orderId) {
+        if (enabled && orderId != null) {
+            runAfterCommit(() -> removeOrder(orderId));
+        }
+    }
+
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            long startedAt = System.currentTimeMillis();
+            synchronized (changesDuringLoad) {
+                loading = true;
+            }
+            try {
+                clear();
+                for (Object[] row : orderRepository.findCompletedOrderFacts()) {
+                    addOrderRow(row);
+                }
+                for (Object[] row : orderItemRepository.findCompletedOrderItemFacts()) {
+                    addItemRow(row);
+                }
+                // Đơn đổi trạng thái sau khi snapshot được đọc: áp dụng lại rồi mới mở cho cập nhật trực tiếp
+                synchronized (changesDuringLoad) {
+                    changesDuringLoad.forEach((orderId, completed) -> {
+                        if (completed) {
+                            applyAppend(orderId);
+                        } else {
+                            applyRemove(orderId);
+                        }
+                    });
+                    changesDuringLoad.clear();
+                    loading = false;
+                    loaded = true;
+                }
+            } catch (RuntimeException e) {
+                synchronized (changesDuringLoad) {
+                    // Lần nạp sau đọc lại từ DB nên không cần giữ các thay đổi đã xếp hàng
+                    changesDuringLoad.clear();
+                    loading = false;
+                    loaded = false;
+                }
+                throw e;
+            }
+            log.info("Loaded {} order facts and {} order item facts in {} ms",
+                    orderSize, itemSize, System.currentTimeMillis() - startedAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendOrder(Long orderId) {
+        if (acceptChange(orderId, true)) {
+            applyAppend(orderId);
+        }
+    }
+
+    private void removeOrder(Long orderId) {
+        if (acceptChange(orderId, false)) {
+            applyRemove(orderId);
+        }
+    }
+
+    /**
+     * true nếu thay đổi được áp dụng trực tiếp. Chưa nạp lần nào thì bỏ qua (lần nạp đầu sẽ đọc từ DB);
+     * đang nạp thì xếp hàng để {@link #reload()} áp dụng sau khi đổi snapshot.
+     */
+    private boolean acceptChange(Long orderId, boolean completed) {
+        synchronized (changesDuringLoad) {
+            if (loaded) {
+                return true;
+            }
+            if (loading) {
+                changesDuringLoad.put(orderId, completed);
+            }
+            return false;
+        }
+    }
+
+    private void applyAppend(Long orderId) {
+        try {
+            List<Object[]> orderRows = orderRepository.findOrderFactsById(orderId);
+            if (orderRows.isEmpty()) {
+                return;
+            }
+            List<Object[]> itemRows = orderItemRepository.findOrderItemFactsByOrderId(orderId);
+            lock.writeLock().lock();
+            try {
+                Integer existing = orderIndex.get(orderId);
+                if (existing != null && live[existing]) {
+                    return;
+                }
+                addOrderRow(orderRows.get(0));
+                for (Object[] row : itemRows) {
+                    addItemRow(row);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to append order {} to analytics facts: {}", orderId, e.getMessage());
+        }
+    }
+
+    private void applyRemove(Long orderId) {
+        lock.writeLock().lock();
+        try {
+            Integer index = orderIndex.remove(orderId);
+            if (index != null) {
+                live[index] = false;
+                deadOrders++;
+                if (deadOrders >= MIN_DEAD_TO_COMPACT && deadOrders * 4 > orderSize) {
+                    compact();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ======================== TRUY VẤN ========================
+
+    /** Doanh thu theo ngày, key theo thứ tự ngày tăng dần. */
+    public Map<LocalDate, Long> revenueByDay(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    minDay = Math.min(minDay, epochDays[i]);
+                    maxDay = Math.max(maxDay, epochDays[i]);
+                }
+            }
+            Map<LocalDate, Long> result = new LinkedHashMap<>();
+            if (minDay > maxDay) {
+                return result;
+            }
+            long[] sums = new long[maxDay - minDay + 1];
+            boolean[] present = new boolean[sums.length];
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    sums[epochDays[i] - minDay] += amounts[i];
+                    present[epochDays[i] - minDay] = true;
+                }
+            }
+            for (int d = 0; d < sums.length; d++) {
+                if (present[d]) {
+                    result.put(LocalDate.ofEpochDay(minDay + d), sums[d]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Doanh thu theo tháng (1-12), gộp các năm giống truy vấn SQL {@code MONTH(orderDate)}. */
+    public Map<Integer, Long> revenueByMonth(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            long[] sums = new long[13];
+            boolean[] present = new boolean[13];
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    sums[months[i]] += amounts[i];
+                    present[months[i]] = true;
+                }
+            }
+            Map<Integer, Long> result = new LinkedHashMap<>();
+            for (int m = 1; m <= 12; m++) {
+                if (present[m]) {
+                    result.put(m, sums[m]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Integer, Long> revenueByYear(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            Map<Integer, Long> result = new TreeMap<>();
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    result.merge((int) years[i], amounts[i], Long::sum);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Doanh thu theo categoryId (tổng giá sản phẩm của từng item). */
+    public Map<Long, Long> revenueByCategory(LocalDateTime startDate, LocalDateTime endDate) {
+        return revenueByItemDimension(startDate, endDate, true);
+    }
+
+    /** Doanh thu theo brandId (tổng giá sản phẩm của từng item). */
+    public Map<Long, Long> revenueByBrand(LocalDateTime startDate, LocalDateTime endDate) {
+        return revenueByItemDimension(startDate, endDate, false);
+    }
+
+    /** Tổng số đơn và tổng chi tiêu theo userId: value = {ordersCount, totalSpent}. */
+    public Map<Long, long[]> totalsByCustomer(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            Map<Long, long[]> result = new HashMap<>();
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && userIds[i] != 0 && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    long[] totals = result.computeIfAbsent(userIds[i], k -> new long[2]);
+                    totals[0]++;
+                    totals[1] += amounts[i];
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long totalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            long sum = 0;
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    sum += amounts[i];
+                }
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long orderCount(LocalDateTime startDate, LocalDateTime endDate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            long count = 0;
+            for (int i = 0; i < orderSize; i++) {
+                if (live[i] && orderedAt[i] >= from && orderedAt[i] <= to) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Long> revenueByItemDimension(LocalDateTime startDate, LocalDateTime endDate,
+            boolean byCategory) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long from = toSecond(startDate, Long.MIN_VALUE);
+            long to = toSecond(endDate, Long.MAX_VALUE);
+            int[] keys = byCategory ? categoryIds : brandIds;
+            long[] sums = new long[(byCategory ? maxCategoryId : maxBrandId) + 1];
+            boolean[] present = new boolean[sums.length];
+            for (int i = 0; i < itemSize; i++) {
+                int order = itemOrderIndex[i];
+                if (keys[i] > 0 && live[order] && orderedAt[order] >= from && orderedAt[order] <= to) {
+                    sums[keys[i]] += itemAmounts[i];
+                    present[keys[i]] = true;
+                }
+            }
+            Map<Long, Long> result = new LinkedHashMap<>();
+            for (int id = 1; id < sums.length; id++) {
+                if (present[id]) {
+                    result.put((long) id, sums[id]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ======================== NỘI BỘ ========================
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    reload();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void clear() {
+        orderSize = 0;
+        deadOrders = 0;
+        itemSize = 0;
+        maxCategoryId = 0;
+        maxBrandId = 0;
+        orderIndex.clear();
+    }
+
+    // Dồn các đơn còn live lên đầu mảng và bỏ item của đơn đã rời COMPLETED; gọi khi giữ write lock
+    private void compact() {
+        int[] remap = new int[orderSize];
+        int n = 0;
+        for (int i = 0; i < orderSize; i++) {
+            if (!live[i]) {
+                remap[i] = -1;
+                continue;
+            }
+            remap[i] = n;
+            orderIds[n] = orderIds[i];
+            orderedAt[n] = orderedAt[i];
+            epochDays[n] = epochDays[i];
+            years[n] = years[i];
+            months[n] = months[i];
+            amounts[n] = amounts[i];
+            userIds[n] = userIds[i];
+            live[n] = true;
+            n++;
+        }
+        Arrays.fill(live, n, orderSize, false);
+        orderSize = n;
+        orderIndex.clear();
+        for (int i = 0; i < orderSize; i++) {
+            orderIndex.put(orderIds[i], i);
+        }
+
+        int m = 0;
+        for (int i = 0; i < itemSize; i++) {
+            int order = remap[itemOrderIndex[i]];
+            if (order < 0) {
+                continue;
+            }
+            itemOrderIndex[m] = order;
+            categoryIds[m] = categoryIds[i];
+            brandIds[m] = brandIds[i];
+            itemAmounts[m] = itemAmounts[i];
+            m++;
+        }
+        itemSize = m;
+        log.debug("Compacted analytics facts: removed {} dead orders", deadOrders);
+        deadOrders = 0;
+    }
+
+    private void addOrderRow(Object[] row) {
+        long orderId = ((Number) row[0]).longValue();
+        LocalDateTime orderDate = (LocalDateTime) row[1];
+        if (orderSize == orderIds.length) {
+            int capacity = orderIds.length * 2;
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            orderedAt = Arrays.copyOf(orderedAt, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            years = Arrays.copyOf(years, capacity);
+            months = Arrays.copyOf(months, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            live = Arrays.copyOf(live, capacity);
+        }
+        int i = orderSize++;
+        orderIds[i] = orderId;
+        orderedAt[i] = orderDate.toEpochSecond(ZoneOffset.UTC);
+        epochDays[i] = (int) orderDate.toLocalDate().toEpochDay();
+        years[i] = (short) orderDate.getYear();
+        months[i] = (byte) orderDate.getMonthValue();
+        amounts[i] = toDong((BigDecimal) row[2]);
+        userIds[i] = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+        live[i] = true;
+        orderIndex.put(orderId, i);
+    }
+
+    private void addItemRow(Object[] row) {
+        Integer order = orderIndex.get(((Number) row[0]).longValue());
+        if (order == null) {
+            return;
+        }
+        if (itemSize == itemOrderIndex.length) {
+            int capacity = itemOrderIndex.length * 2;
+            itemOrderIndex = Arrays.copyOf(itemOrderIndex, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            brandIds = Arrays.copyOf(brandIds, capacity);
+            itemAmounts = Arrays.copyOf(itemAmounts, capacity);
+        }
+        int i = itemSize++;
+        itemOrderIndex[i] = order;
+        categoryIds[i] = row[1] != null ? ((Number) row[1]).intValue() : 0;
+        brandIds[i] = row[2] != null ? ((Number) row[2]).intValue() : 0;
+        itemAmounts[i] = toDong((BigDecimal) row[3]);
+        maxCategoryId = Math.max(maxCategoryId, categoryIds[i]);
+        maxBrandId = Math.max(maxBrandId, brandIds[i]);
+    }
+
+    private long toDong(BigDecimal amount) {
+        return amount == null ? 0L : amount.setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private long toSecond(LocalDateTime value, long fallback) {
+        return value == null ? fallback : value.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+}
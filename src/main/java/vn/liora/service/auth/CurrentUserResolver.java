@@ -0,0 +1,214 @@
+package vn.liora.service.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import vn.liora.dto.CustomOAuth2User;
+import vn.liora.entity.Role;
+import vn.liora.entity.User;
+import vn.liora.repository.UserRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Chuyển principal (JWT subject / OAuth2) thành {@link User}, thay cho các đoạn
+ * {@code findByUsername} rồi {@code findByEmail} lặp lại ở nhiều controller.
+ * <p>
+ * User được giữ trong request attribute nên mỗi request chỉ tra một lần. Ngoài ra
+ * principal → (userId, roles, active) được cache {@code user.resolver.ttl-ms} giữa các request,
+ * nên các chỗ chỉ cần userId ({@link #resolveUserId}) không phải gọi DB.
+ * Cache bị xóa khi user được lưu / xóa, đổi role hoặc bị khóa.
+ */
+@Component
+public class CurrentUserResolver {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserResolver.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+    private final long ttlMs;
+
+    private final Map<String, CachedIdentity> identities = new ConcurrentHashMap<>();
+
+    public CurrentUserResolver(UserRepository userRepository,
+            @Value("${user.resolver.ttl-ms:30000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    public record CurrentUser(Long userId, String username, Set<String> roles, boolean active) {
+    }
+
+    private record CachedIdentity(CurrentUser user, long expiresAt) {
+    }
+
+    // ======================== ĐỌC ========================
+
+    public Optional<User> currentUser() {
+        return resolveUser(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    public Optional<Long> currentUserId() {
+        return resolveUserId(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    public Optional<User> resolveUser(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return Optional.empty();
+        }
+        String principalName = authentication.getName();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user
+                && principalName.equals(principalOf(request))) {
+            return Optional.of(user);
+        }
+
+        User user = null;
+        CurrentUser cached = cachedIdentity(principalName);
+        if (cached != null) {
+            user = userRepository.findById(cached.userId()).orElse(null);
+        }
+        if (user == null) {
+            user = lookup(authentication);
+        }
+        if (user == null) {
+            return Optional.empty();
+        }
+
+        remember(principalName, user);
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+            request.setAttribute(REQUEST_ATTRIBUTE + ".principal", principalName, RequestAttributes.SCOPE_REQUEST);
+        }
+        return Optional.of(user);
+    }
+
+    public Optional<Long> resolveUserId(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return Optional.empty();
+        }
+        CurrentUser cached = cachedIdentity(authentication.getName());
+        if (cached != null) {
+            return Optional.of(cached.userId());
+        }
+        return resolveUser(authentication).map(User::getUserId);
+    }
+
+    public Optional<CurrentUser> resolveIdentity(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return Optional.empty();
+        }
+        CurrentUser cached = cachedIdentity(authentication.getName());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return resolveUser(authentication).map(CurrentUserResolver::toIdentity);
+    }
+
+    // ======================== LÀM MỚI ========================
+
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        afterCommit(() -> identities.values().removeIf(cached -> userId.equals(cached.user().userId())));
+    }
+
+    public void evictAll() {
+        afterCommit(identities::clear);
+    }
+
+    private void afterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Xóa cả sau commit, để request đọc giữa lúc đó không nạp lại dữ liệu cũ vào cache
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    // ======================== NỘI BỘ ========================
+
+    private User lookup(Authentication authentication) {
+        String principalName = authentication.getName();
+
+        // 1. Thử tìm bằng username trước
+        User user = userRepository.findByUsername(principalName).orElse(null);
+        if (user != null) {
+            return user;
+        }
+
+        // 2. Một số provider trả email làm name
+        if (principalName.contains("@")) {
+            user = userRepository.findByEmail(principalName).orElse(null);
+            if (user != null) {
+                return user;
+            }
+        }
+
+        // 3. OAuth2: lấy user đã gắn vào CustomOAuth2User, hoặc tìm theo email trong attributes
+        if (authentication.getPrincipal() instanceof CustomOAuth2User customOAuth2User) {
+            return customOAuth2User.getUser();
+        }
+        if (authentication.getPrincipal() instanceof OAuth2User oauth2User) {
+            String email = oauth2User.getAttribute("email");
+            if (email != null) {
+                return userRepository.findByEmail(email).orElse(null);
+            }
+        }
+        return null;
+    }
+
+    private CurrentUser cachedIdentity(String principalName) {
+        CachedIdentity cached = identities.get(principalName);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiresAt() <= System.currentTimeMillis()) {
+            identities.remove(principalName, cached);
+            return null;
+        }
+        return cached.user();
+    }
+
+    private void remember(String principalName, User user) {
+        if (user.getUserId() == null || ttlMs <= 0) {
+            return;
+        }
+        try {
+            identities.put(principalName, new CachedIdentity(toIdentity(user), System.currentTimeMillis() + ttlMs));
+        } catch (RuntimeException e) {
+            // roles chưa nạp và không còn session (ngoài request): bỏ qua cache lần này
+        }
+    }
+
+    private static CurrentUser toIdentity(User user) {
+        Set<String> roles = user.getRoles() == null ? Set.of()
+                : user.getRoles().stream().map(Role::getName).collect(Collectors.toUnmodifiableSet());
+        return new CurrentUser(user.getUserId(), user.getUsername(), roles, !Boolean.FALSE.equals(user.getActive()));
+    }
+
+    private static Object principalOf(RequestAttributes request) {
+        return request.getAttribute(REQUEST_ATTRIBUTE + ".principal", RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static boolean isAuthenticated(Authentication authentication) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && authentication.getName() != null
+                && !"anonymousUser".equals(String.valueOf(authentication.getPrincipal()));
+    }
+}
@@ -0,0 +1,91 @@
+package vn.liora.service.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.liora.repository.InvalidatedTokenRepository;
+import vn.liora.service.metrics.PurgeJobStats;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Xóa định kỳ các dòng InvalidatedToken đã quá expiryTime: token hết hạn đằng nào cũng bị từ chối,
+ * nên giữ lại chỉ làm bảng phình ra. expiryTime là mốc hết hạn refresh (iat + {@code jwt.refreshable-duration});
+ * các dòng ghi trước đó chỉ lưu exp của access token nên được giữ thêm
+ * {@code refreshable-duration - valid-duration}, tránh token đã thu hồi lại refresh được sau khi dòng bị xóa.
+ * <p>
+ * Xóa theo lô {@code jwt.invalidated-token.purge.batch-size} dòng, mỗi lô một transaction ngắn
+ * để không khóa bảng lâu. Số liệu (kích thước bảng, số dòng đã xóa, tốc độ xóa) xem qua {@link #stats()}.
+ */
+@Component
+@Slf4j
+public class InvalidatedTokenPurgeJob {
+
+    private final InvalidatedTokenRepository invalidatedTokenRepository;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long graceMs;
+
+    private final PurgeJobStats purgeStats = new PurgeJobStats();
+    private final AtomicLong tableSize = new AtomicLong(-1);
+
+    public InvalidatedTokenPurgeJob(
+            InvalidatedTokenRepository invalidatedTokenRepository,
+            TokenRevocationRegistry tokenRevocationRegistry,
+            @Value("${jwt.invalidated-token.purge.enabled:true}") boolean enabled,
+            @Value("${jwt.invalidated-token.purge.batch-size:1000}") int batchSize,
+            @Value("${jwt.refreshable-duration}") long refreshableDuration,
+            @Value("${jwt.valid-duration}") long validDuration) {
+        this.invalidatedTokenRepository = invalidatedTokenRepository;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.graceMs = Math.max(0, refreshableDuration - validDuration) * 1000;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.invalidated-token.purge.interval-ms:3600000}",
+            initialDelayString = "${jwt.invalidated-token.purge.initial-delay-ms:120000}")
+    public void purge() {
+        if (!enabled || !purgeStats.tryStart()) {
+            return;
+        }
+
+        long purged = 0;
+        long durationMs;
+        Date cutoff = new Date(System.currentTimeMillis() - graceMs);
+        try {
+            List<String> ids;
+            do {
+                ids = invalidatedTokenRepository.findExpiredIds(cutoff, PageRequest.of(0, batchSize));
+                if (!ids.isEmpty()) {
+                    invalidatedTokenRepository.deleteAllByIdInBatch(ids);
+                    purged += ids.size();
+                }
+            } while (ids.size() == batchSize);
+            tableSize.set(invalidatedTokenRepository.count());
+        } catch (Exception e) {
+            log.warn("Invalidated token purge failed after {} rows: {}", purged, e.getMessage());
+        } finally {
+            durationMs = purgeStats.finish(purged);
+        }
+
+        if (purged > 0) {
+            log.info("Purged {} expired invalidated tokens in {} ms, {} rows left",
+                    purged, durationMs, tableSize.get());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tableSize", tableSize.get());
+        stats.put("revokedInMemory", tokenRevocationRegistry.size());
+        return purgeStats.putInto(stats);
+    }
+}
@@ -0,0 +1,104 @@
+package vn.liora.service.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.liora.entity.Permission;
+import vn.liora.entity.Role;
+import vn.liora.repository.RoleRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Bảng role → permissions giữ trong bộ nhớ, dùng khi dựng JWT scope và khi kiểm tra quyền.
+ * <p>
+ * Nạp một lần bằng một query fetch join, thay vì duyệt {@code Role.permissions} (lazy) cho từng role
+ * ở mỗi lần login / refresh / cấp token OAuth2. Tập quyền của từng tổ hợp role được tính sẵn
+ * một lần và trả về dạng bất biến. Bị xóa khi role / permission thay đổi (sau commit).
+ */
+@Component
+@Slf4j
+public class RolePermissionCache {
+
+    private final RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot;
+    // Tăng mỗi lần invalidate, để một lần nạp đang chạy dở không ghi đè dữ liệu cũ lên cache
+    private final AtomicLong version = new AtomicLong();
+
+    public RolePermissionCache(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    private record Snapshot(Map<String, Set<String>> byRole, Map<Set<String>, Set<String>> byRoleSet) {
+    }
+
+    public Set<String> permissionsOf(String roleName) {
+        return snapshot().byRole().getOrDefault(roleName, Set.of());
+    }
+
+    /**
+     * Hợp các quyền của những role đã cho (bất biến, tính một lần cho mỗi tổ hợp role).
+     */
+    public Set<String> permissionsOf(Collection<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            return Set.of();
+        }
+        Snapshot current = snapshot();
+        return current.byRoleSet().computeIfAbsent(Set.copyOf(roleNames), roles -> roles.stream()
+                .flatMap(role -> current.byRole().getOrDefault(role, Set.of()).stream())
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Xóa lại sau commit để request đọc giữa chừng không nạp dữ liệu cũ vào cache
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                    snapshot = null;
+                }
+            });
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    long loadingVersion = version.get();
+                    current = load();
+                    if (version.get() == loadingVersion) {
+                        snapshot = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        Map<String, Set<String>> byRole = new HashMap<>();
+        for (Role role : roleRepository.findAllWithPermissions()) {
+            Set<String> permissions = role.getPermissions() == null ? Set.of()
+                    : role.getPermissions().stream()
+                            .map(Permission::getName)
+                            .collect(Collectors.toUnmodifiableSet());
+            byRole.put(role.getName(), permissions);
+        }
+        log.debug("Loaded permissions for {} roles", byRole.size());
+        return new Snapshot(Map.copyOf(byRole), new ConcurrentHashMap<>());
+    }
+}
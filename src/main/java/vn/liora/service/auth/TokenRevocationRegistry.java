@@ -0,0 +1,70 @@
+package vn.liora.service.auth;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.liora.entity.InvalidatedToken;
+import vn.liora.repository.InvalidatedTokenRepository;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tập JTI đã bị thu hồi (logout / refresh) giữ trong bộ nhớ, để kiểm tra token ở mỗi request
+ * không phải gọi {@code invalidatedTokenRepository.existsById}.
+ * <p>
+ * Nạp từ bảng InvalidatedToken khi khởi động, cập nhật ngay khi logout / refresh trên instance này,
+ * và đồng bộ lại theo chu kỳ {@code jwt.revocation.sync-ms} để thấy các token bị thu hồi ở instance khác.
+ * JTI được giữ đến expiryTime của dòng InvalidatedToken (mốc hết hạn refresh), sau đó token
+ * đằng nào cũng bị từ chối nên được bỏ khỏi bộ nhớ.
+ */
+@Component
+@Slf4j
+public class TokenRevocationRegistry {
+
+    private final InvalidatedTokenRepository invalidatedTokenRepository;
+
+    // jti -> thời điểm hết hạn (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationRegistry(InvalidatedTokenRepository invalidatedTokenRepository) {
+        this.invalidatedTokenRepository = invalidatedTokenRepository;
+    }
+
+    @PostConstruct
+    void load() {
+        sync();
+        log.info("Loaded {} revoked token ids", revoked.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    public void revoke(String jti, Date expiryTime) {
+        if (jti != null) {
+            revoked.put(jti, expiryTime != null ? expiryTime.getTime() : Long.MAX_VALUE);
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    // Chỉ thêm và bỏ JTI đã hết hạn, không thay cả tập, để không làm mất JTI vừa revoke trong lúc đang đồng bộ
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-ms:60000}", initialDelayString = "${jwt.revocation.sync-ms:60000}")
+    public void sync() {
+        Date now = new Date();
+        try {
+            for (InvalidatedToken token : invalidatedTokenRepository.findByExpiryTimeAfter(now)) {
+                revoke(token.getId(), token.getExpiryTime());
+            }
+        } catch (Exception e) {
+            log.warn("Could not sync revoked token ids: {}", e.getMessage());
+        }
+        long nowMillis = now.getTime();
+        revoked.values().removeIf(expiry -> expiry <= nowMillis);
+    }
+}
@@ -0,0 +1,121 @@
+package vn.liora.service.cart;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.liora.config.GuestCartInterceptor;
+import vn.liora.repository.CartItemRepository;
+import vn.liora.repository.CartRepository;
+import vn.liora.service.metrics.PurgeJobStats;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dọn giỏ hàng guest bị bỏ quên: giỏ không có user và không thêm / sửa / xóa item quá
+ * {@code cart.guest-purge.idle-seconds} (mặc định bằng thời gian sống cookie guest_cart_id).
+ * Cookie không được gia hạn nên sau khoảng đó không trình duyệt nào còn trỏ tới giỏ.
+ * <p>
+ * Xóa theo lô {@code cart.guest-purge.batch-size} giỏ; mỗi lô xóa CartItem rồi Cart trong một
+ * transaction ngắn, điều kiện idle được kiểm lại trong câu DELETE. Số liệu xem qua {@link #stats()}.
+ */
+@Component
+@Slf4j
+public class GuestCartPurgeJob {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long idleSeconds;
+    private final int batchSize;
+
+    private final PurgeJobStats purgeStats = new PurgeJobStats();
+    private final AtomicLong totalCarts = new AtomicLong();
+    private final AtomicLong totalItems = new AtomicLong();
+    private volatile long lastCarts;
+    private volatile long lastItems;
+    private volatile long lastBackfilled;
+
+    public GuestCartPurgeJob(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${cart.guest-purge.enabled:true}") boolean enabled,
+            @Value("${cart.guest-purge.idle-seconds:" + GuestCartInterceptor.MAX_AGE + "}") long idleSeconds,
+            @Value("${cart.guest-purge.batch-size:500}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        // Không dọn sớm hơn vòng đời cookie, kẻo xóa giỏ mà trình duyệt vẫn đang dùng
+        this.idleSeconds = Math.max(idleSeconds, GuestCartInterceptor.MAX_AGE);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.guest-purge.interval-ms:3600000}",
+            initialDelayString = "${cart.guest-purge.initial-delay-ms:240000}")
+    public void purge() {
+        if (!enabled || !purgeStats.tryStart()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusSeconds(idleSeconds);
+        long carts = 0;
+        long items = 0;
+        long backfilled = 0;
+        long durationMs;
+        try {
+            Integer updated = transactionTemplate.execute(status -> cartRepository.backfillLastActivity(now));
+            backfilled = updated != null ? updated : 0;
+
+            List<Long> ids;
+            do {
+                ids = cartRepository.findIdleGuestCartIds(cutoff, PageRequest.of(0, batchSize));
+                if (!ids.isEmpty()) {
+                    List<Long> batch = ids;
+                    int[] deleted = transactionTemplate.execute(status -> new int[]{
+                            cartItemRepository.deleteByIdleGuestCartIds(batch, cutoff),
+                            cartRepository.deleteIdleGuestCarts(batch, cutoff)
+                    });
+                    if (deleted != null) {
+                        items += deleted[0];
+                        carts += deleted[1];
+                    }
+                }
+            } while (ids.size() == batchSize);
+        } catch (Exception e) {
+            log.warn("Guest cart purge failed after {} carts / {} items: {}", carts, items, e.getMessage());
+        } finally {
+            lastCarts = carts;
+            lastItems = items;
+            lastBackfilled = backfilled;
+            totalCarts.addAndGet(carts);
+            totalItems.addAndGet(items);
+            durationMs = purgeStats.finish(carts + items);
+        }
+
+        if (carts > 0) {
+            log.info("Purged {} idle guest carts ({} items) in {} ms", carts, items, durationMs);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("idleSeconds", idleSeconds);
+        stats.put("totalCarts", totalCarts.get());
+        stats.put("totalItems", totalItems.get());
+        stats.put("lastCarts", lastCarts);
+        stats.put("lastItems", lastItems);
+        stats.put("lastBackfilled", lastBackfilled);
+        return purgeStats.putInto(stats);
+    }
+}
@@ -0,0 +1,131 @@
+package vn.liora.service.dashboard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import vn.liora.service.IDashboardService;
+import vn.liora.service.order.event.OrderStatusChangedEvent;
+import vn.liora.service.stock.ProductStockChangedEvent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Đẩy cập nhật dashboard qua Server-Sent Events.
+ * <p>
+ * Mỗi sự kiện đơn hàng / tồn kho chỉ chạy truy vấn tổng hợp một lần rồi gửi cùng
+ * một payload cho mọi tab dashboard đang mở, thay vì mỗi tab tự poll. Số liệu lấy từ chính các hàm
+ * {@link IDashboardService} mà trang dashboard dùng để render, nên giá trị đẩy về khớp với trang.
+ */
+@Component
+@Slf4j
+public class DashboardEventStream {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    // Lấy lúc dùng: DashboardServiceImpl -> OrderService / ProductService -> ProductStockEventPublisher
+    // -> DashboardStockObserver -> lớp này tạo thành vòng phụ thuộc nếu inject trực tiếp
+    private final ObjectProvider<IDashboardService> dashboardService;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    public DashboardEventStream(ObjectProvider<IDashboardService> dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event == null || event.orderId() == null || emitters.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", event.orderId());
+        payload.put("previousStatus", event.previousStatus());
+        payload.put("newStatus", event.newStatus());
+        payload.put("revenueDelta", revenueDelta(event));
+        payload.putAll(orderMetrics());
+
+        broadcast(event.previousStatus() == null ? "order-created" : "order-status", payload);
+    }
+
+    public void onStockChanged(ProductStockChangedEvent event) {
+        if (event == null || event.productId() == null || event.eventType() == null || emitters.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("productId", event.productId());
+        payload.put("productName", event.productName());
+        payload.put("eventType", event.eventType());
+        payload.put("oldStock", event.oldStock());
+        payload.put("newStock", event.newStock());
+        payload.put("lowStockProducts", dashboardService.getObject().getLowStockProducts());
+
+        broadcast("stock", payload);
+    }
+
+    // Comment SSE định kỳ để proxy không cắt kết nối và để dọn các client đã đóng tab
+    @Scheduled(fixedDelayString = "${dashboard.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private Map<String, Object> orderMetrics() {
+        IDashboardService dashboard = dashboardService.getObject();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalOrders", dashboard.getTotalOrders());
+        metrics.put("pendingOrders", dashboard.getPendingOrders());
+        metrics.put("todayRevenue", dashboard.getTodayRevenue());
+        return metrics;
+    }
+
+    // Doanh thu chỉ tính đơn COMPLETED: vào COMPLETED thì cộng, rời COMPLETED thì trừ
+    private BigDecimal revenueDelta(OrderStatusChangedEvent event) {
+        BigDecimal total = event.total() != null ? event.total() : BigDecimal.ZERO;
+        boolean wasCompleted = "COMPLETED".equalsIgnoreCase(event.previousStatus());
+        boolean isCompleted = "COMPLETED".equalsIgnoreCase(event.newStatus());
+        if (isCompleted && !wasCompleted) {
+            return total;
+        }
+        if (wasCompleted && !isCompleted) {
+            return total.negate();
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private void broadcast(String eventName, Map<String, Object> payload) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(payload));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Removing dashboard SSE client: {}", e.getMessage());
+                emitters.remove(emitter);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package vn.liora.service.dashboard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.liora.service.stock.ProductStockChangedEvent;
+import vn.liora.service.stock.ProductStockObserver;
+
+@Component
+@RequiredArgsConstructor
+public class DashboardStockObserver implements ProductStockObserver {
+
+    private final DashboardEventStream dashboardEventStream;
+
+    @Override
+    @Async
+    public void update(ProductStockChangedEvent event) {
+        dashboardEventStream.onStockChanged(event);
+    }
+}
@@ -0,0 +1,274 @@
+package vn.liora.service.decorator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import vn.liora.dto.request.ReviewCreationRequest;
+import vn.liora.dto.request.ReviewUpdateRequest;
+import vn.liora.dto.response.ReviewResponse;
+import vn.liora.service.IReviewService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache cho phần review hiển thị trên trang sản phẩm: trang đầu danh sách review (theo bộ lọc sao,
+ * kích thước trang, thứ tự) và các map thống kê, theo từng sản phẩm.
+ * <p>
+ * Mỗi thao tác ghi đi qua decorator này (tạo / sửa / xóa / ẩn-hiện) xóa cache đúng của sản phẩm đó,
+ * sau khi transaction của service lõi đã commit. Dữ liệu còn hết hạn sau {@code review.cache.ttl-ms}
+ * để tự khớp lại nếu review bị sửa bằng đường khác. Số lần hit / miss xem qua {@link #stats()}.
+ */
+@Service
+@Primary
+@Slf4j
+public class CachingReviewServiceDecorator extends ReviewServiceDecorator {
+
+    private final boolean enabled;
+    private final long ttlMs;
+    private final int maxProducts;
+
+    private final Map<Long, ProductEntry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingReviewServiceDecorator(
+            @Qualifier("reviewCoreService") IReviewService delegate,
+            @Value("${review.cache.enabled:true}") boolean enabled,
+            @Value("${review.cache.ttl-ms:300000}") long ttlMs,
+            @Value("${review.cache.max-products:5000}") int maxProducts) {
+        super(delegate);
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        this.maxProducts = maxProducts;
+    }
+
+    private record PageKey(boolean visibleOnly, Integer rating, int size, Sort sort) {
+    }
+
+    private record Cached<T>(T value, long expiresAt) {
+    }
+
+    // Bị thay bằng entry mới khi xóa cache: lần đọc đang chạy dở sẽ ghi vào entry cũ và bị bỏ đi
+    private static final class ProductEntry {
+        final Map<PageKey, Cached<Page<ReviewResponse>>> firstPages = new ConcurrentHashMap<>();
+        volatile Cached<Map<String, Object>> statistics;
+        volatile Cached<Object> listingStatistics;
+    }
+
+    // ======================== ĐỌC ========================
+
+    @Override
+    public Page<ReviewResponse> findVisibleReviewsByProductId(Long productId, Pageable pageable) {
+        return firstPage(productId, true, null, pageable,
+                () -> super.findVisibleReviewsByProductId(productId, pageable));
+    }
+
+    @Override
+    public Page<ReviewResponse> findVisibleReviewsByProductIdWithRating(Long productId, Integer rating, Pageable pageable) {
+        return firstPage(productId, true, rating, pageable,
+                () -> super.findVisibleReviewsByProductIdWithRating(productId, rating, pageable));
+    }
+
+    @Override
+    public Page<ReviewResponse> findReviewsByProductId(Long productId, Pageable pageable) {
+        return firstPage(productId, false, null, pageable,
+                () -> super.findReviewsByProductId(productId, pageable));
+    }
+
+    @Override
+    public Page<ReviewResponse> findReviewsByProductIdWithRating(Long productId, Integer rating, Pageable pageable) {
+        return firstPage(productId, false, rating, pageable,
+                () -> super.findReviewsByProductIdWithRating(productId, rating, pageable));
+    }
+
+    @Override
+    public Map<String, Object> getProductReviewStatistics(Long productId) {
+        if (!enabled || productId == null) {
+            return super.getProductReviewStatistics(productId);
+        }
+        ProductEntry entry = entry(productId);
+        Map<String, Object> statistics = valueOf(entry.statistics);
+        if (statistics == null) {
+            misses.increment();
+            statistics = super.getProductReviewStatistics(productId);
+            entry.statistics = new Cached<>(statistics, expiresAt());
+        } else {
+            hits.increment();
+        }
+        // Bản sao nông để controller thêm key không làm bẩn cache
+        return new HashMap<>(statistics);
+    }
+
+    @Override
+    public Map<String, Object> getMultipleProductsReviewStatistics(List<Long> productIds) {
+        if (!enabled || productIds == null || productIds.isEmpty()) {
+            return super.getMultipleProductsReviewStatistics(productIds);
+        }
+        Map<String, Object> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        Map<Long, ProductEntry> missingEntries = new HashMap<>();
+        for (Long productId : productIds) {
+            if (productId == null || result.containsKey(productId.toString()) || missingEntries.containsKey(productId)) {
+                continue;
+            }
+            ProductEntry entry = entry(productId);
+            Object stats = valueOf(entry.listingStatistics);
+            if (stats != null) {
+                hits.increment();
+                result.put(productId.toString(), stats);
+            } else {
+                misses.increment();
+                missing.add(productId);
+                missingEntries.put(productId, entry);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Object> loaded = super.getMultipleProductsReviewStatistics(missing);
+            long expiresAt = expiresAt();
+            missingEntries.forEach((productId, entry) -> {
+                Object stats = loaded.get(productId.toString());
+                if (stats != null) {
+                    entry.listingStatistics = new Cached<>(stats, expiresAt);
+                    result.put(productId.toString(), stats);
+                }
+            });
+        }
+        return result;
+    }
+
+    // ======================== GHI ========================
+
+    @Override
+    public ReviewResponse createReview(ReviewCreationRequest request, Long userId) {
+        ReviewResponse response = super.createReview(request, userId);
+        evict(response.getProductId());
+        return response;
+    }
+
+    @Override
+    public ReviewResponse updateReview(Long id, ReviewUpdateRequest request) {
+        ReviewResponse response = super.updateReview(id, request);
+        evict(response.getProductId());
+        return response;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        Long productId = super.findById(id).getProductId();
+        super.deleteById(id);
+        evict(productId);
+    }
+
+    @Override
+    public ReviewResponse toggleReviewVisibility(Long reviewId) {
+        ReviewResponse response = super.toggleReviewVisibility(reviewId);
+        evict(response.getProductId());
+        return response;
+    }
+
+    @Override
+    public ReviewResponse hideReview(Long reviewId) {
+        ReviewResponse response = super.hideReview(reviewId);
+        evict(response.getProductId());
+        return response;
+    }
+
+    @Override
+    public ReviewResponse showReview(Long reviewId) {
+        ReviewResponse response = super.showReview(reviewId);
+        evict(response.getProductId());
+        return response;
+    }
+
+    @Override
+    public void updateReviewVisibility(Long reviewId, Boolean isVisible) {
+        Long productId = super.findById(reviewId).getProductId();
+        super.updateReviewVisibility(reviewId, isVisible);
+        evict(productId);
+    }
+
+    // ======================== CACHE ========================
+
+    public void evict(Long productId) {
+        if (productId != null && entries.remove(productId) != null) {
+            evictions.increment();
+        }
+    }
+
+    public void evictAll() {
+        evictions.add(entries.size());
+        entries.clear();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("products", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private Page<ReviewResponse> firstPage(Long productId, boolean visibleOnly, Integer rating, Pageable pageable,
+            Supplier<Page<ReviewResponse>> loader) {
+        // Chỉ cache trang đầu: phần lớn lượt xem sản phẩm không lật sang trang sau
+        if (!enabled || productId == null || pageable == null || pageable.isUnpaged() || pageable.getPageNumber() != 0) {
+            return loader.get();
+        }
+        PageKey key = new PageKey(visibleOnly, rating, pageable.getPageSize(), pageable.getSort());
+        ProductEntry entry = entry(productId);
+        Page<ReviewResponse> page = valueOf(entry.firstPages.get(key));
+        if (page != null) {
+            hits.increment();
+            return page;
+        }
+        misses.increment();
+        page = loader.get();
+        entry.firstPages.put(key, new Cached<>(page, expiresAt()));
+        return page;
+    }
+
+    private ProductEntry entry(Long productId) {
+        ProductEntry entry = entries.get(productId);
+        if (entry != null) {
+            return entry;
+        }
+        if (entries.size() >= maxProducts) {
+            // Đầy: bỏ cả cache thay vì phình ra; các sản phẩm đang được xem sẽ nạp lại ngay
+            log.debug("Review cache reached {} products, clearing", entries.size());
+            evictAll();
+        }
+        return entries.computeIfAbsent(productId, id -> new ProductEntry());
+    }
+
+    private long expiresAt() {
+        return System.currentTimeMillis() + ttlMs;
+    }
+
+    private static <T> T valueOf(Cached<T> cached) {
+        if (cached == null || cached.expiresAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return Objects.requireNonNull(cached.value());
+    }
+}
@@ -13,6 +13,8 @@ import vn.liora.service.discount.eligibility.DiscountEligibilityResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +25,7 @@ public class DiscountApplicationService {
     private final DiscountEligibilityChecker eligibilityChecker;
     private final DiscountCalculatorFactory calculatorFactory;
     private final DiscountUsageService discountUsageService;
+    private final DiscountCatalog discountCatalog;
 
     public DiscountApplicationResult apply(Long discountId, DiscountContext context) {
         Discount discount = discountRepository.findById(discountId)
@@ -44,6 +47,10 @@ public class DiscountApplicationService {
             return DiscountApplicationResult.rejected(discount, eligibility.getReason());
         }
 
+        return calculate(discount, context);
+    }
+
+    private DiscountApplicationResult calculate(Discount discount, DiscountContext context) {
         DiscountCalculator calculator = calculatorFactory.getCalculator(discount.getDiscountType()); // lấy calculator từ factory
         BigDecimal amount = calculator.calculate(discount, context);
 
@@ -57,13 +64,31 @@ public class DiscountApplicationService {
     }
 
     public Optional<Discount> findAvailableByCode(String discountCode, LocalDateTime now) {
-        return discountRepository.findAvailableDiscountByName(discountCode, now);
+        return discountCatalog.findAvailableByCode(discountCode, now);
     }
 
     public List<Discount> findAvailableForContext(DiscountContext context) {
-        return discountRepository.findAvailableDiscounts(context.safeAppliedAt()).stream()
-                .filter(discount -> apply(discount, context).isApplied())
-                .toList();
+        // Calculator không từ chối mã nào, nên chỉ cần lọc theo eligibility (chế độ batch)
+        return eligibilityChecker.filterEligible(
+                discountCatalog.findAvailableAt(context.safeAppliedAt()), context);
+    }
+
+    /**
+     * Tính số tiền giảm của mọi mã dùng được cho giỏ hàng và xếp giảm dần,
+     * phần tử đầu là mã tiết kiệm nhiều nhất. Toàn bộ chạy trong bộ nhớ trên catalog,
+     * chỉ rule theo user prefetch một truy vấn cho cả danh sách.
+     */
+    public List<DiscountApplicationResult> rankForContext(DiscountContext context) {
+        List<Discount> eligible = findAvailableForContext(context);
+        List<DiscountApplicationResult> results = new ArrayList<>(eligible.size());
+        for (Discount discount : eligible) {
+            DiscountApplicationResult result = calculate(discount, context);
+            if (result.getFinalDiscountAmount().signum() > 0) {
+                results.add(result);
+            }
+        }
+        results.sort(Comparator.comparing(DiscountApplicationResult::getFinalDiscountAmount).reversed());
+        return results;
     }
 
     public void confirmUsage(Long discountId) {
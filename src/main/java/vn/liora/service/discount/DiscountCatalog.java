@@ -0,0 +1,317 @@
+package vn.liora.service.discount;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.liora.entity.Discount;
+import vn.liora.enums.DiscountType;
+import vn.liora.repository.DiscountRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Danh mục mã giảm giá đang bật (isActive = true) giữ trong bộ nhớ.
+ * <p>
+ * Các mã được sắp theo startDate (interval index) và tra theo tên qua HashMap, nên
+ * trang chủ, trang voucher và checkout không phải quét bảng Discounts cho mỗi request.
+ * Tập mã đang hiệu lực được tính một lần cho cả khoảng thời gian đến mốc start/end kế tiếp;
+ * qua mốc đó thì tự tính lại từ index (không cần DB). Dữ liệu chỉ nạp lại từ DB khi admin
+ * thêm / sửa / xóa mã hoặc theo chu kỳ {@code discount.catalog.reload-ms} (để đồng bộ khi chạy
+ * nhiều instance); lượt dùng thay đổi chỉ cập nhật bộ đếm usedCount của đúng mã đó.
+ * Tắt bằng {@code discount.catalog.enabled=false}.
+ * <p>
+ * Catalog giữ bản chụp bất biến ({@link Entry}) chứ không giữ entity: mỗi lần đọc trả về các
+ * {@link Discount} mới, không dùng chung giữa các thread và không có quan hệ lazy.
+ */
+@Component
+@Slf4j
+public class DiscountCatalog {
+
+    private final DiscountRepository discountRepository;
+    private final boolean enabled;
+
+    private volatile Snapshot snapshot;
+    private volatile ActiveWindow window;
+
+    public DiscountCatalog(DiscountRepository discountRepository,
+            @Value("${discount.catalog.enabled:true}") boolean enabled) {
+        this.discountRepository = discountRepository;
+        this.enabled = enabled;
+    }
+
+    // ======================== ĐỌC ========================
+
+    public List<Discount> findActiveAt(LocalDateTime now) {
+        if (!enabled) {
+            return discountRepository.findActiveNow(now);
+        }
+        return toDiscounts(activeWindow(now));
+    }
+
+    public List<Discount> findAvailableAt(LocalDateTime now) {
+        if (!enabled) {
+            return discountRepository.findAvailableDiscounts(now);
+        }
+        ActiveWindow current = activeWindow(now);
+        List<Discount> available = new ArrayList<>(current.active().size());
+        for (Entry entry : current.active()) {
+            int used = current.snapshot().usedCount(entry);
+            if (hasRemainingUsage(entry, used)) {
+                available.add(entry.toDiscount(used));
+            }
+        }
+        return available;
+    }
+
+    public Optional<Discount> findAvailableByCode(String code, LocalDateTime now) {
+        if (!enabled) {
+            return discountRepository.findAvailableDiscountByName(code, now);
+        }
+        if (code == null) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot();
+        Entry entry = current.byCode().get(normalizeCode(code));
+        if (entry == null || !isActiveAt(entry, now)) {
+            return Optional.empty();
+        }
+        int used = current.usedCount(entry);
+        return hasRemainingUsage(entry, used) ? Optional.of(entry.toDiscount(used)) : Optional.empty();
+    }
+
+    // ======================== LÀM MỚI ========================
+
+    /**
+     * Bỏ snapshot hiện tại; lần đọc kế tiếp sẽ nạp lại từ DB.
+     * Nếu đang trong transaction thì chỉ bỏ sau khi commit để không nạp lại dữ liệu chưa commit.
+     */
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+            return;
+        }
+        clear();
+    }
+
+    /**
+     * Cập nhật usedCount của một mã sau khi claim / release commit, không nạp lại cả catalog.
+     * Giới hạn lượt dùng vẫn do câu UPDATE có điều kiện trong DB quyết định; bộ đếm này chỉ để
+     * ẩn mã đã hết lượt khỏi danh sách và được đồng bộ lại ở lần nạp định kỳ.
+     */
+    public void usageChanged(Long discountId, int delta) {
+        if (!enabled || discountId == null) {
+            return;
+        }
+        Runnable apply = () -> {
+            Snapshot current = snapshot;
+            AtomicInteger used = current != null ? current.usedCounts().get(discountId) : null;
+            if (used != null) {
+                used.updateAndGet(value -> Math.max(0, value + delta));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+            return;
+        }
+        apply.run();
+    }
+
+    @Scheduled(fixedDelayString = "${discount.catalog.reload-ms:300000}")
+    public void scheduledReload() {
+        if (enabled && snapshot != null) {
+            clear();
+        }
+    }
+
+    private synchronized void clear() {
+        snapshot = null;
+        window = null;
+    }
+
+    // ======================== INDEX ========================
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        List<Entry> entries = new ArrayList<>();
+        Map<Long, AtomicInteger> usedCounts = new HashMap<>();
+        for (Discount discount : discountRepository.findByIsActiveTrue()) {
+            if (discount.getStartDate() == null || discount.getEndDate() == null) {
+                continue;
+            }
+            entries.add(Entry.of(discount));
+            usedCounts.put(discount.getDiscountId(),
+                    new AtomicInteger(discount.getUsedCount() != null ? discount.getUsedCount() : 0));
+        }
+        entries.sort(Comparator.comparing(Entry::startDate));
+
+        LocalDateTime[] starts = new LocalDateTime[entries.size()];
+        Map<String, Entry> byCode = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            starts[i] = entry.startDate();
+            if (entry.name() != null) {
+                byCode.putIfAbsent(normalizeCode(entry.name()), entry);
+            }
+        }
+        log.info("Loaded discount catalog: {} active discounts", entries.size());
+        return new Snapshot(List.copyOf(entries), starts, Map.copyOf(byCode), Map.copyOf(usedCounts));
+    }
+
+    private static List<Discount> toDiscounts(ActiveWindow window) {
+        List<Discount> discounts = new ArrayList<>(window.active().size());
+        for (Entry entry : window.active()) {
+            discounts.add(entry.toDiscount(window.snapshot().usedCount(entry)));
+        }
+        return discounts;
+    }
+
+    private ActiveWindow activeWindow(LocalDateTime now) {
+        Snapshot current = snapshot();
+        ActiveWindow cached = window;
+        if (cached != null && cached.snapshot() == current && cached.covers(now)) {
+            return cached;
+        }
+
+        ActiveWindow computed = computeWindow(current, now);
+        window = computed;
+        return computed;
+    }
+
+    // Tập mã hiệu lực không đổi cho đến mốc kế tiếp: startDate sớm nhất còn ở tương lai
+    // hoặc ngay sau endDate sớm nhất trong các mã đang hiệu lực
+    private ActiveWindow computeWindow(Snapshot current, LocalDateTime now) {
+        int started = upperBound(current.starts(), now);
+        LocalDateTime until = started < current.starts().length ? current.starts()[started] : LocalDateTime.MAX;
+
+        List<Entry> active = new ArrayList<>();
+        for (int i = 0; i < started; i++) {
+            Entry entry = current.byStart().get(i);
+            if (!entry.endDate().isBefore(now)) {
+                active.add(entry);
+                LocalDateTime expiresAt = entry.endDate().plusNanos(1);
+                if (expiresAt.isBefore(until)) {
+                    until = expiresAt;
+                }
+            }
+        }
+        return new ActiveWindow(current, now, until, List.copyOf(active));
+    }
+
+    // Số phần tử có startDate <= now
+    private static int upperBound(LocalDateTime[] starts, LocalDateTime now) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid].isAfter(now)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isActiveAt(Entry entry, LocalDateTime now) {
+        return !entry.startDate().isAfter(now) && !entry.endDate().isBefore(now);
+    }
+
+    private static boolean hasRemainingUsage(Entry entry, int usedCount) {
+        return entry.usageLimit() == null || usedCount < entry.usageLimit();
+    }
+
+    // Collation MySQL mặc định không phân biệt hoa thường
+    private static String normalizeCode(String code) {
+        return code.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Bản chụp bất biến các cột của một mã giảm giá (không gồm usedCount và quan hệ orders).
+     */
+    private record Entry(Long discountId, String name, String description, BigDecimal discountValue,
+            DiscountType discountType, BigDecimal minOrderValue, BigDecimal maxDiscountAmount,
+            LocalDateTime startDate, LocalDateTime endDate, Integer usageLimit, Integer userUsageLimit,
+            Boolean isActive, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        static Entry of(Discount discount) {
+            return new Entry(discount.getDiscountId(), discount.getName(), discount.getDescription(),
+                    discount.getDiscountValue(), discount.getDiscountType(), discount.getMinOrderValue(),
+                    discount.getMaxDiscountAmount(), discount.getStartDate(), discount.getEndDate(),
+                    discount.getUsageLimit(), discount.getUserUsageLimit(), discount.getIsActive(),
+                    discount.getCreatedAt(), discount.getUpdatedAt());
+        }
+
+        // Bản sao riêng cho người gọi; orders = null nên toString / equals không chạm tới lazy load
+        Discount toDiscount(int usedCount) {
+            Discount discount = new Discount();
+            discount.setDiscountId(discountId);
+            discount.setName(name);
+            discount.setDescription(description);
+            discount.setDiscountValue(discountValue);
+            discount.setDiscountType(discountType);
+            discount.setMinOrderValue(minOrderValue);
+            discount.setMaxDiscountAmount(maxDiscountAmount);
+            discount.setStartDate(startDate);
+            discount.setEndDate(endDate);
+            discount.setUsageLimit(usageLimit);
+            discount.setUserUsageLimit(userUsageLimit);
+            discount.setIsActive(isActive);
+            discount.setCreatedAt(createdAt);
+            discount.setUpdatedAt(updatedAt);
+            discount.setUsedCount(usedCount);
+            return discount;
+        }
+    }
+
+    private record Snapshot(List<Entry> byStart, LocalDateTime[] starts, Map<String, Entry> byCode,
+            Map<Long, AtomicInteger> usedCounts) {
+
+        int usedCount(Entry entry) {
+            AtomicInteger used = usedCounts.get(entry.discountId());
+            return used != null ? used.get() : 0;
+        }
+    }
+
+    private record ActiveWindow(Snapshot snapshot, LocalDateTime from, LocalDateTime until, List<Entry> active) {
+        boolean covers(LocalDateTime now) {
+            return !now.isBefore(from) && now.isBefore(until);
+        }
+    }
+}
@@ -8,33 +8,55 @@ import vn.liora.exception.AppException;
 import vn.liora.exception.ErrorCode;
 import vn.liora.repository.DiscountRepository;
 
+/**
+ * Đếm lượt dùng mã giảm giá bằng câu UPDATE có điều kiện, nên các lượt checkout đồng thời
+ * không thể làm mất lượt tăng hay vượt quá usageLimit.
+ */
 @Service
 @RequiredArgsConstructor
 public class DiscountUsageService {
     private final DiscountRepository discountRepository;
+    private final DiscountCatalog discountCatalog;
+
+    /**
+     * Giành một lượt dùng. Trả về false nếu mã đã hết lượt (hoặc không tồn tại).
+     */
+    @Transactional
+    public boolean tryClaimUsage(Long discountId) {
+        boolean claimed = discountRepository.claimUsage(discountId) == 1;
+        if (claimed) {
+            discountCatalog.usageChanged(discountId, 1);
+        }
+        return claimed;
+    }
 
     @Transactional
     public void confirmUsage(Long discountId) {
-        Discount discount = discountRepository.findById(discountId)
-                .orElseThrow(() -> new AppException(ErrorCode.DISCOUNT_NOT_FOUND));
-        int currentUsedCount = discount.getUsedCount() != null ? discount.getUsedCount() : 0;
-        discount.setUsedCount(currentUsedCount + 1);
-        discountRepository.save(discount);
+        if (tryClaimUsage(discountId)) {
+            return;
+        }
+        if (!discountRepository.existsById(discountId)) {
+            throw new AppException(ErrorCode.DISCOUNT_NOT_FOUND);
+        }
+        throw new AppException(ErrorCode.DISCOUNT_USAGE_LIMIT_REACHED);
     }
 
     @Transactional
     public void rollbackUsage(Long discountId) {
-        Discount discount = discountRepository.findById(discountId)
-                .orElseThrow(() -> new AppException(ErrorCode.DISCOUNT_NOT_FOUND));
-        rollbackUsage(discount);
+        if (!discountRepository.existsById(discountId)) {
+            throw new AppException(ErrorCode.DISCOUNT_NOT_FOUND);
+        }
+        releaseUsage(discountId);
     }
 
     @Transactional
     public void rollbackUsage(Discount discount) {
-        int currentUsedCount = discount.getUsedCount() != null ? discount.getUsedCount() : 0;
-        if (currentUsedCount > 0) {
-            discount.setUsedCount(currentUsedCount - 1);
-            discountRepository.save(discount);
+        releaseUsage(discount.getDiscountId());
+    }
+
+    private void releaseUsage(Long discountId) {
+        if (discountRepository.releaseUsage(discountId) == 1) {
+            discountCatalog.usageChanged(discountId, -1);
         }
     }
 }
@@ -1,20 +1,28 @@
 package vn.liora.service.discount.calculator;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import vn.liora.enums.DiscountType;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
-@RequiredArgsConstructor
 public class DiscountCalculatorFactory {
-    private final List<DiscountCalculator> calculators;
+    // Tra cứu theo EnumMap vì calculator được gọi trong vòng lặp khi xếp hạng nhiều mã
+    private final Map<DiscountType, DiscountCalculator> calculators = new EnumMap<>(DiscountType.class);
+
+    public DiscountCalculatorFactory(List<DiscountCalculator> calculators) {
+        for (DiscountCalculator calculator : calculators) {
+            this.calculators.putIfAbsent(calculator.supports(), calculator);
+        }
+    }
 
     public DiscountCalculator getCalculator(DiscountType discountType) {
-        return calculators.stream()
-                .filter(calculator -> calculator.supports() == discountType)
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No calculator registered for " + discountType));
+        DiscountCalculator calculator = discountType != null ? calculators.get(discountType) : null;
+        if (calculator == null) {
+            throw new IllegalStateException("No calculator registered for " + discountType);
+        }
+        return calculator;
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Component;
 import vn.liora.entity.Discount;
 import vn.liora.service.discount.DiscountContext;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,4 +26,36 @@ public class DiscountEligibilityChecker {
         }
         return DiscountEligibilityResult.valid();
     }
+
+    /**
+     * Lọc cả danh sách mã một lần: mỗi rule prefetch dữ liệu cho toàn bộ candidates
+     * (vd. một truy vấn GROUP BY thay vì một COUNT cho mỗi mã), sau đó chạy chuỗi rule trong bộ nhớ.
+     */
+    public List<Discount> filterEligible(List<Discount> candidates, DiscountContext context) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        List<DiscountEligibilityRule> preparedRules = new ArrayList<>(rules.size());
+        for (DiscountEligibilityRule rule : rules) {
+            preparedRules.add(rule.prefetch(candidates, context));
+        }
+
+        List<Discount> eligible = new ArrayList<>();
+        for (Discount discount : candidates) {
+            if (passesAll(preparedRules, discount, context)) {
+                eligible.add(discount);
+            }
+        }
+        return eligible;
+    }
+
+    private boolean passesAll(List<DiscountEligibilityRule> preparedRules, Discount discount, DiscountContext context) {
+        for (DiscountEligibilityRule rule : preparedRules) {
+            if (!rule.check(discount, context).isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -3,6 +3,16 @@ package vn.liora.service.discount.eligibility;
 import vn.liora.entity.Discount;
 import vn.liora.service.discount.DiscountContext;
 
+import java.util.List;
+
 public interface DiscountEligibilityRule {
     DiscountEligibilityResult check(Discount discount, DiscountContext context);
+
+    /**
+     * Chế độ batch: nạp trước dữ liệu cần cho cả danh sách {@code candidates} rồi trả về
+     * rule chỉ đánh giá trong bộ nhớ. Mặc định rule không cần truy vấn nên trả về chính nó.
+     */
+    default DiscountEligibilityRule prefetch(List<Discount> candidates, DiscountContext context) {
+        return this;
+    }
 }
@@ -5,6 +5,10 @@ import org.springframework.stereotype.Component;
 import vn.liora.entity.Discount;
 import vn.liora.service.discount.DiscountContext;
 
+/**
+ * Kiểm tra sơ bộ trên entity đã nạp (có thể cũ). Quyết định cuối cùng nằm ở
+ * {@link vn.liora.service.discount.DiscountUsageService#confirmUsage(Long)}.
+ */
 @Component
 @Order(3)
 public class GlobalUsageLimitRule implements DiscountEligibilityRule {
@@ -14,7 +18,8 @@ public class GlobalUsageLimitRule implements DiscountEligibilityRule {
             return DiscountEligibilityResult.valid();
         }
 
-        return discount.getUsedCount() < discount.getUsageLimit()
+        int usedCount = discount.getUsedCount() != null ? discount.getUsedCount() : 0;
+        return usedCount < discount.getUsageLimit()
                 ? DiscountEligibilityResult.valid()
                 : DiscountEligibilityResult.invalid("Mã giảm giá đã hết lượt sử dụng");
     }
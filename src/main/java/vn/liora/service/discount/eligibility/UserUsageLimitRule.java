@@ -7,6 +7,10 @@ import vn.liora.entity.Discount;
 import vn.liora.repository.OrderRepository;
 import vn.liora.service.discount.DiscountContext;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @Order(4)
 @RequiredArgsConstructor
@@ -20,9 +24,37 @@ public class UserUsageLimitRule implements DiscountEligibilityRule {
         }
 
         Long userUsageCount = orderRepository.countOrdersByUserAndDiscount(context.getUserId(), discount.getDiscountId());
+        return evaluate(discount, userUsageCount);
+    }
+
+    // Một truy vấn GROUP BY cho mọi mã có giới hạn theo user, thay vì một COUNT cho mỗi mã
+    @Override
+    public DiscountEligibilityRule prefetch(List<Discount> candidates, DiscountContext context) {
+        if (context.getUserId() == null) {
+            return this;
+        }
+
+        List<Long> limitedIds = candidates.stream()
+                .filter(discount -> discount.getUserUsageLimit() != null)
+                .map(Discount::getDiscountId)
+                .toList();
+        if (limitedIds.isEmpty()) {
+            return (discount, ctx) -> DiscountEligibilityResult.valid();
+        }
+
+        Map<Long, Long> usageCounts = new HashMap<>();
+        for (Object[] row : orderRepository.countOrdersByUserGroupedByDiscount(context.getUserId(), limitedIds)) {
+            usageCounts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        return (discount, ctx) -> discount.getUserUsageLimit() == null
+                ? DiscountEligibilityResult.valid()
+                : evaluate(discount, usageCounts.getOrDefault(discount.getDiscountId(), 0L));
+    }
+
+    private DiscountEligibilityResult evaluate(Discount discount, Long userUsageCount) {
         return userUsageCount < discount.getUserUsageLimit()
                 ? DiscountEligibilityResult.valid()
                 : DiscountEligibilityResult.invalid("Bạn đã hết lượt dùng mã giảm giá này");
     }
 }
-
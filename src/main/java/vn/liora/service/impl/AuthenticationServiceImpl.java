@@ -26,6 +26,7 @@ import vn.liora.exception.ErrorCode;
 import vn.liora.repository.InvalidatedTokenRepository;
 import vn.liora.repository.UserRepository;
 import vn.liora.service.IAuthenticationService;
+import vn.liora.service.auth.TokenRevocationRegistry;
 
 import java.text.ParseException;
 import java.time.Instant;
@@ -45,6 +46,7 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
     final UserRepository userRepository;
     final InvalidatedTokenRepository invalidatedTokenRepository;
     final IAuthorizationService authorizationService;
+    final TokenRevocationRegistry tokenRevocationRegistry;
 
     @Value("${jwt.signerKey}")
     protected String SIGNER_KEY;
@@ -100,14 +102,7 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
         try {
 
             var signToken = verifyToken(request.getToken(), true);
-            String jit = signToken.getJWTClaimsSet().getJWTID();
-            Date expiryTime = signToken.getJWTClaimsSet().getExpirationTime();
-
-            InvalidatedToken invalidatedToken = InvalidatedToken.builder()
-                    .id(jit)
-                    .expiryTime(expiryTime)
-                    .build();
-            invalidatedTokenRepository.save(invalidatedToken);
+            invalidate(signToken);
         } catch (AppException exception) {
             // do nothing
         }
@@ -116,14 +111,7 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
     @Override
     public AuthenticationResponse refreshToken(RefreshRequest request) throws ParseException, JOSEException {
         var signJWT = verifyToken(request.getToken(), true);
-        var jit = signJWT.getJWTClaimsSet().getJWTID();
-        var expiryTime = signJWT.getJWTClaimsSet().getExpirationTime();
-
-        InvalidatedToken invalidatedToken = InvalidatedToken.builder()
-                .id(jit)
-                .expiryTime(expiryTime)
-                .build();
-        invalidatedTokenRepository.save(invalidatedToken);
+        invalidate(signJWT);
 
         var username = signJWT.getJWTClaimsSet().getSubject();
         var user = userRepository.findByUsername(username)
@@ -135,17 +123,37 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
                 .build();
     }
 
+    // Lưu đến hết hạn refresh (iat + REFRESHABLE_DURATION) chứ không phải exp của access token:
+    // token vẫn đổi được đến mốc đó, xóa dòng sớm hơn thì token đã logout / đã dùng lại refresh được
+    private void invalidate(SignedJWT signedJWT) throws ParseException {
+        String jit = signedJWT.getJWTClaimsSet().getJWTID();
+        Date expiryTime = refreshDeadline(signedJWT);
+
+        InvalidatedToken invalidatedToken = InvalidatedToken.builder()
+                .id(jit)
+                .expiryTime(expiryTime)
+                .build();
+        invalidatedTokenRepository.save(invalidatedToken);
+        tokenRevocationRegistry.revoke(jit, expiryTime);
+    }
+
+    private Date refreshDeadline(SignedJWT signedJWT) throws ParseException {
+        return new Date(signedJWT.getJWTClaimsSet().getIssueTime()
+                .toInstant().plus(REFRESHABLE_DURATION, ChronoUnit.SECONDS).toEpochMilli());
+    }
+
     private SignedJWT verifyToken(String token, boolean isRefresh) throws JOSEException, ParseException {
         JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
         SignedJWT signedJWT = SignedJWT.parse(token);
         Date expirationTime = (isRefresh)
-                ? new Date(signedJWT.getJWTClaimsSet().getIssueTime()
-                        .toInstant().plus(REFRESHABLE_DURATION, ChronoUnit.SECONDS).toEpochMilli())
+                ? refreshDeadline(signedJWT)
                 : signedJWT.getJWTClaimsSet().getExpirationTime();
         var verified = signedJWT.verify(verifier);
         if (!verified && expirationTime.after(new Date()))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
-        if (invalidatedTokenRepository.existsById(signedJWT.getJWTClaimsSet().getJWTID()))
+        String jti = signedJWT.getJWTClaimsSet().getJWTID();
+        // Refresh vẫn kiểm tra DB: token có thể vừa bị thu hồi ở instance khác, chưa kịp đồng bộ
+        if (tokenRevocationRegistry.isRevoked(jti) || (isRefresh && invalidatedTokenRepository.existsById(jti)))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         return signedJWT;
     }
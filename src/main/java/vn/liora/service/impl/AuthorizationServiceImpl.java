@@ -3,11 +3,11 @@ package vn.liora.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import vn.liora.entity.Permission;
 import vn.liora.entity.Role;
 import vn.liora.entity.User;
 import vn.liora.enums.PermissionCategory;
 import vn.liora.service.IAuthorizationService;
+import vn.liora.service.auth.RolePermissionCache;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -17,6 +17,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AuthorizationServiceImpl implements IAuthorizationService {
 
+    private final RolePermissionCache rolePermissionCache;
+
     @Override
     public boolean hasPermission(User user, String permission) {
         if (user == null || permission == null) {
@@ -49,20 +51,15 @@ public class AuthorizationServiceImpl implements IAuthorizationService {
 
     @Override
     public Set<String> getUserPermissions(User user) {
-        Set<String> permissions = new HashSet<>();
-
         if (user == null || user.getRoles() == null) {
-            return permissions;
+            return Set.of();
         }
 
-        // Lấy quyền từ roles của user
-        for (Role role : user.getRoles()) {
-            if (role.getPermissions() != null) {
-                for (Permission permission : role.getPermissions()) {
-                    permissions.add(permission.getName());
-                }
-            }
-        }
+        // Lấy quyền từ roles của user qua cache role → permissions (không duyệt Role.permissions)
+        Set<String> roleNames = user.getRoles().stream()
+                .map(Role::getName)
+                .collect(Collectors.toSet());
+        Set<String> permissions = rolePermissionCache.permissionsOf(roleNames);
 
         // TODO: Thêm logic lấy quyền trực tiếp của user (nếu có UserPermission entity)
         // Hiện tại chỉ lấy quyền từ role, sau này có thể mở rộng để lấy quyền trực tiếp
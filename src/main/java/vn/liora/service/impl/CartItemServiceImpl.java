@@ -24,6 +24,7 @@ import vn.liora.repository.ProductRepository;
 import vn.liora.service.ICartItemService;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -62,13 +63,15 @@ public class CartItemServiceImpl implements ICartItemService {
             cartItem.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
         }
         cartItem = cartItemRepository.save(cartItem);
+        cart.setLastActivityAt(LocalDateTime.now());
         hydrateProductStock(cartItem.getProduct());
         return cartItemMapper.toCartItemResponse(cartItem);
     }
 
     @Override
+    @Transactional
     public CartItemResponse updateCartItem(Long idCart, Long idCartItem, CartItemUpdateRequest request) {
-        cartRepository.findById(idCart).orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+        Cart cart = cartRepository.findById(idCart).orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
         CartItem cartItem = cartItemRepository.findByIdCartItem(idCartItem)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_PRODUCT_NOT_FOUND));
 
@@ -81,6 +84,7 @@ public class CartItemServiceImpl implements ICartItemService {
             cartItem.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
         }
         cartItem = cartItemRepository.save(cartItem);
+        cart.setLastActivityAt(LocalDateTime.now());
 
         hydrateProductStock(cartItem.getProduct());
         CartItemResponse response = cartItemMapper.toCartItemResponse(cartItem);
@@ -103,6 +107,7 @@ public class CartItemServiceImpl implements ICartItemService {
             return;
         }
         cartItemRepository.deleteAll(cartItems);
+        cart.setLastActivityAt(LocalDateTime.now());
     }
 
     @Override
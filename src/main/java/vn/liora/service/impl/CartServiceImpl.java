@@ -6,7 +6,10 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
@@ -34,25 +37,33 @@ public class CartServiceImpl implements ICartService {
     CartMapper cartMapper;
 
     @Override
-    public CartResponse getCart(String guestCartId, Long userId) {
+    @Transactional
+    public CartResponse getCart(String guestCartId, Long userId, boolean create) {
         Cart cart;
 
         if (userId != null) {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
-            // Nếu có guestCartId thì merge cart guest vào cart user
-            if (guestCartId != null) {
-                mergeGuestCartIntoUserCart(user, guestCartId);
-            }
-
             cart = cartRepository.findByUser_UserId(userId)
                     .orElseGet(() -> cartRepository.save(
                             Cart.builder().user(user).build()));
+
+            // Nếu có guestCartId thì merge cart guest vào cart user
+            if (guestCartId != null) {
+                mergeGuestCartIntoUserCart(cart, guestCartId);
+            }
         } else if (guestCartId != null) {
-            cart = cartRepository.findByGuestId(guestCartId)
-                    .orElseGet(() -> cartRepository.save(
-                            Cart.builder().guestId(guestCartId).build()));
+            // Chỉ tạo giỏ guest khi thêm sản phẩm, để khách chỉ xem trang không sinh dòng Cart rỗng
+            Optional<Cart> guestCart = cartRepository.findByGuestId(guestCartId);
+            if (guestCart.isEmpty() && !create) {
+                return CartResponse.builder()
+                        .cartItems(List.of())
+                        .totalItems(0)
+                        .build();
+            }
+            cart = guestCart.orElseGet(() -> cartRepository.save(
+                    Cart.builder().guestId(guestCartId).build()));
         } else {
             throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
         }
@@ -60,14 +71,14 @@ public class CartServiceImpl implements ICartService {
         return cartMapper.toCartResponse(cart);
     }
 
-    @Transactional
-    protected void mergeGuestCartIntoUserCart(User user, String guestCartId) {
-        // Lấy cart user (tạo nếu chưa có)
-        Cart userCart = cartRepository.findByUser_UserId(user.getUserId())
-                .orElseGet(() -> cartRepository.save(Cart.builder().user(user).build()));
-
+    /**
+     * Gộp cart guest vào cart user trong transaction của {@link #getCart}: nạp item của cả hai cart
+     * bằng một query, cộng dồn theo productId trong bộ nhớ, rồi ghi một lượt (UPDATE theo batch JDBC,
+     * DELETE theo danh sách id) thay vì một lần tìm + ghi cho mỗi item.
+     */
+    private void mergeGuestCartIntoUserCart(Cart userCart, String guestCartId) {
         // Lấy cart guest; nếu không có thì thoát
-        java.util.Optional<Cart> guestCartOpt = cartRepository.findByGuestId(guestCartId);
+        Optional<Cart> guestCartOpt = cartRepository.findByGuestId(guestCartId);
         if (guestCartOpt.isEmpty())
             return;
 
@@ -76,33 +87,47 @@ public class CartServiceImpl implements ICartService {
             return; // tránh merge cùng một cart
         }
 
-        // Lấy danh sách item của guest kèm product
-        List<CartItem> guestItems = cartItemRepository.findByCartWithProduct(guestCart);
+        List<CartItem> items = cartItemRepository.findByCartIdsWithProduct(
+                List.of(userCart.getIdCart(), guestCart.getIdCart()));
 
+        // Item của user theo productId; item guest đứng sau nên được gộp vào item user cùng sản phẩm
+        Map<Long, CartItem> userItems = new HashMap<>();
+        List<CartItem> guestItems = new ArrayList<>();
+        for (CartItem item : items) {
+            if (item.getCart().getIdCart().equals(userCart.getIdCart())) {
+                userItems.putIfAbsent(item.getProduct().getProductId(), item);
+            } else {
+                guestItems.add(item);
+            }
+        }
+
+        List<Long> mergedGuestItemIds = new ArrayList<>();
         for (CartItem guestItem : guestItems) {
             Long productId = guestItem.getProduct().getProductId();
-            Optional<CartItem> existingOpt = cartItemRepository
-                    .findByCart_IdCartAndProduct_ProductId(userCart.getIdCart(), productId);
+            CartItem existing = userItems.get(productId);
 
-            if (existingOpt.isPresent()) {
-                CartItem existing = existingOpt.get();
+            if (existing != null) {
                 int newQty = existing.getQuantity() + guestItem.getQuantity();
                 existing.setQuantity(newQty);
                 existing.setTotalPrice(guestItem.getProduct().getPrice()
                         .multiply(BigDecimal.valueOf(newQty)));
-                cartItemRepository.save(existing);
                 // Xóa item guest sau khi đã cộng dồn
-                cartItemRepository.delete(guestItem);
+                mergedGuestItemIds.add(guestItem.getIdCartItem());
             } else {
                 // Chuyển item sang cart user
                 guestItem.setCart(userCart);
                 guestItem.setTotalPrice(guestItem.getProduct().getPrice()
                         .multiply(BigDecimal.valueOf(guestItem.getQuantity())));
-                cartItemRepository.save(guestItem);
+                userItems.put(productId, guestItem);
             }
         }
 
-        // Xóa cart guest sau khi merge
-        cartRepository.delete(guestCart);
+        // Ghi các UPDATE trước để item đã chuyển không còn trỏ vào cart guest khi xóa
+        cartItemRepository.flush();
+        if (!mergedGuestItemIds.isEmpty()) {
+            cartItemRepository.deleteAllByIdInBatch(mergedGuestItemIds);
+        }
+        // Xóa cart guest sau khi merge (không cascade: mọi item của nó đã được chuyển hoặc xóa)
+        cartRepository.deleteAllByIdInBatch(List.of(guestCart.getIdCart()));
     }
 }
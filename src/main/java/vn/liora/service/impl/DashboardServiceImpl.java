@@ -2,13 +2,20 @@ package vn.liora.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import vn.liora.entity.Brand;
+import vn.liora.entity.Category;
+import vn.liora.entity.User;
 import vn.liora.dto.response.LowStockProductResponse;
 import vn.liora.dto.response.RecentOrderResponse;
 import vn.liora.dto.response.TopCustomerResponse;
 import vn.liora.dto.response.TopProductResponse;
 import vn.liora.entity.Order;
+import vn.liora.repository.BrandRepository;
+import vn.liora.repository.CategoryRepository;
 import vn.liora.repository.OrderRepository;
+import vn.liora.repository.UserRepository;
 import vn.liora.service.*;
+import vn.liora.service.analytics.OrderFactsStore;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,6 +24,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -32,6 +40,14 @@ public class DashboardServiceImpl implements IDashboardService {
     private IUserService userService;
     @Autowired
     private IOrderItemService orderItemService;
+    @Autowired
+    private OrderFactsStore orderFactsStore;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private UserRepository userRepository;
 
     @Override
     public BigDecimal getTotalRevenue() {
@@ -40,6 +56,9 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public BigDecimal getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            return BigDecimal.valueOf(orderFactsStore.totalRevenue(startDate, endDate));
+        }
         // Tính tổng doanh thu từ các đơn hàng đã hoàn thành trong khoảng thời gian
         List<Order> orders = orderRepository.findByOrderDateBetweenAndOrderStatus(startDate, endDate, "COMPLETED");
         return orders.stream()
@@ -49,12 +68,14 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public long getTotalOrders() {
-        return orderService.getOrdersByOrderStatus("COMPLETED").size() + orderService.getOrdersByOrderStatus("PENDING").size() +
-               orderService.getOrdersByOrderStatus("CONFIRMED").size() + orderService.getOrdersByOrderStatus("CANCELLED").size();
+        return orderRepository.countByOrderStatusIn(List.of("COMPLETED", "PENDING", "CONFIRMED", "CANCELLED"));
     }
 
     @Override
     public long getTotalOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            return orderFactsStore.orderCount(startDate, endDate);
+        }
         // Đếm tổng số đơn hàng đã COMPLETED trong khoảng thời gian
         List<Order> orders = orderRepository.findByOrderDateBetweenAndOrderStatus(startDate, endDate, "COMPLETED");
         return orders.size();
@@ -72,6 +93,9 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public long getTotalCustomersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            return orderFactsStore.totalsByCustomer(startDate, endDate).size();
+        }
         // Đếm tổng số khách hàng CÓ ĐƠN HÀNG trong khoảng thời gian
         List<Order> ordersInRange = orderRepository.findByOrderDateBetweenAndOrderStatus(startDate, endDate, "COMPLETED");
         return ordersInRange.stream()
@@ -83,13 +107,13 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public long getPendingOrders() {
-        return orderService.getOrdersByOrderStatus("PENDING").size();
+        return orderRepository.countByOrderStatus("PENDING");
     }
 
     @Override
     public long getLowStockProducts() {
         // Chỉ đếm sản phẩm sắp hết hàng (1-10), không bao gồm sản phẩm đã hết hàng (stock = 0)
-        return productService.findByStockLessThanEqual(10).stream()
+        return productService.findByStockLessThanEqual(LOW_STOCK_THRESHOLD).stream()
                 .filter(p -> p.getStock() > 0)
                 .count();
     }
@@ -226,6 +250,10 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public Map<String, Double> getRevenueByTime(String groupType, LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            return getRevenueByTimeFromFacts(groupType, startDate, endDate);
+        }
+
         List<Object[]> results;
         Map<String, Double> data = new LinkedHashMap<>();
 
@@ -251,6 +279,12 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public Map<String, Double> getRevenueByCategory(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            Map<Long, Long> revenue = orderFactsStore.revenueByCategory(startDate, endDate);
+            Map<Long, String> names = categoryRepository.findAllById(revenue.keySet()).stream()
+                    .collect(Collectors.toMap(Category::getCategoryId, Category::getName));
+            return toNamedRevenue(revenue, names);
+        }
         Map<String, Double> data = new LinkedHashMap<>();
         List<Object[]> results = orderItemService.getRevenueByCategory(startDate, endDate);
         for (Object[] row : results)
@@ -260,6 +294,12 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public Map<String, Double> getRevenueByBrand(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            Map<Long, Long> revenue = orderFactsStore.revenueByBrand(startDate, endDate);
+            Map<Long, String> names = brandRepository.findAllById(revenue.keySet()).stream()
+                    .collect(Collectors.toMap(Brand::getBrandId, Brand::getName));
+            return toNamedRevenue(revenue, names);
+        }
         Map<String, Double> data = new LinkedHashMap<>();
         List<Object[]> results = orderItemService.getRevenueByBrand(startDate, endDate);
         for (Object[] row : results)
@@ -321,6 +361,9 @@ public class DashboardServiceImpl implements IDashboardService {
 
     @Override
     public List<TopCustomerResponse> getTopCustomersByDateRange(int limit, LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderFactsStore.isEnabled()) {
+            return getTopCustomersFromFacts(limit, startDate, endDate);
+        }
         // Lấy top khách hàng chi tiêu cao nhất trong khoảng thời gian (chỉ tính orders đã COMPLETED)
         List<Order> ordersInRange = orderRepository.findByOrderDateBetweenAndOrderStatus(startDate, endDate, "COMPLETED");
         
@@ -406,5 +449,70 @@ public class DashboardServiceImpl implements IDashboardService {
     public long countSoldBrandsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return orderItemService.countSoldBrandsByDateRange(startDate, endDate);
     }
-}
 
+    // ======================== IN-MEMORY ORDER FACTS ========================
+
+    private Map<String, Double> getRevenueByTimeFromFacts(String groupType, LocalDateTime startDate,
+            LocalDateTime endDate) {
+        Map<String, Double> data = new LinkedHashMap<>();
+        switch (groupType.toLowerCase()) {
+            case "month" -> orderFactsStore.revenueByMonth(startDate, endDate)
+                    .forEach((month, revenue) -> data.put("Tháng " + month, revenue.doubleValue()));
+            case "year" -> orderFactsStore.revenueByYear(startDate, endDate)
+                    .forEach((year, revenue) -> data.put("Năm " + year, revenue.doubleValue()));
+            default -> orderFactsStore.revenueByDay(startDate, endDate)
+                    .forEach((day, revenue) -> data.put(day.toString(), revenue.doubleValue()));
+        }
+        return data;
+    }
+
+    // Gộp theo tên (giống GROUP BY name của SQL) và sắp xếp doanh thu giảm dần
+    private Map<String, Double> toNamedRevenue(Map<Long, Long> revenueById, Map<Long, String> names) {
+        Map<String, Long> byName = new LinkedHashMap<>();
+        revenueById.forEach((id, revenue) -> {
+            String name = names.get(id);
+            if (name != null) {
+                byName.merge(name, revenue, Long::sum);
+            }
+        });
+        Map<String, Double> data = new LinkedHashMap<>();
+        byName.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> data.put(e.getKey(), e.getValue().doubleValue()));
+        return data;
+    }
+
+    private List<TopCustomerResponse> getTopCustomersFromFacts(int limit, LocalDateTime startDate,
+            LocalDateTime endDate) {
+        List<Map.Entry<Long, long[]>> top = orderFactsStore.totalsByCustomer(startDate, endDate).entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                .limit(limit)
+                .toList();
+        Map<Long, User> users = userRepository.findAllById(top.stream().map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        return top.stream()
+                .filter(e -> users.containsKey(e.getKey()))
+                .map(e -> {
+                    User user = users.get(e.getKey());
+                    String firstName = user.getFirstname() != null ? user.getFirstname() : "";
+                    String lastName = user.getLastname() != null ? user.getLastname() : "";
+                    String fullName = (firstName + " " + lastName).trim();
+                    if (fullName.isEmpty()) {
+                        fullName = user.getUsername() != null ? user.getUsername() : "Không có tên";
+                    }
+                    String email = user.getEmail();
+                    if (email == null || email.isEmpty()) {
+                        email = "N/A";
+                    }
+                    return TopCustomerResponse.builder()
+                            .userId(user.getUserId())
+                            .fullName(fullName)
+                            .email(email)
+                            .ordersCount(e.getValue()[0])
+                            .totalSpent(BigDecimal.valueOf(e.getValue()[1]))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+}
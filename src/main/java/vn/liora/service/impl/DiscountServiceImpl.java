@@ -20,6 +20,7 @@ import vn.liora.repository.OrderRepository;
 import vn.liora.service.IDiscountService;
 import vn.liora.service.discount.DiscountApplicationResult;
 import vn.liora.service.discount.DiscountApplicationService;
+import vn.liora.service.discount.DiscountCatalog;
 import vn.liora.service.discount.DiscountContext;
 
 import java.math.BigDecimal;
@@ -35,6 +36,7 @@ public class DiscountServiceImpl implements IDiscountService {
     private final OrderRepository orderRepository;
     private final DiscountMapper discountMapper;
     private final DiscountApplicationService discountApplicationService;
+    private final DiscountCatalog discountCatalog;
 
     @Override
     public Discount createDiscount(DiscountCreationRequest request) {
@@ -52,7 +54,9 @@ public class DiscountServiceImpl implements IDiscountService {
         }
         discount.setCreatedAt(LocalDateTime.now());
         discount.setUpdatedAt(LocalDateTime.now());
-        return discountRepository.save(discount);
+        Discount savedDiscount = discountRepository.save(discount);
+        discountCatalog.invalidate();
+        return savedDiscount;
     }
 
     @Override
@@ -83,6 +87,7 @@ public class DiscountServiceImpl implements IDiscountService {
         discount.setUpdatedAt(LocalDateTime.now());
 
         Discount updatedDiscount = discountRepository.save(discount);
+        discountCatalog.invalidate();
         return discountMapper.toDiscountResponse(updatedDiscount);
     }
 
@@ -98,6 +103,7 @@ public class DiscountServiceImpl implements IDiscountService {
 
         try {
             discountRepository.deleteById(id);
+            discountCatalog.invalidate();
         } catch (DataIntegrityViolationException ex) {
             log.warn("Cannot delete discount {} because it is still referenced", id, ex);
             throw new AppException(ErrorCode.DISCOUNT_HAS_ORDERS);
@@ -166,7 +172,7 @@ public class DiscountServiceImpl implements IDiscountService {
 
     @Override
     public List<Discount> findActiveNow() {
-        return discountRepository.findActiveNow(LocalDateTime.now());
+        return discountCatalog.findActiveAt(LocalDateTime.now());
     }
 
     @Override
@@ -206,7 +212,7 @@ public class DiscountServiceImpl implements IDiscountService {
 
     @Override
     public List<Discount> findAvailableDiscounts() {
-        return discountRepository.findAvailableDiscounts(LocalDateTime.now());
+        return discountCatalog.findAvailableAt(LocalDateTime.now());
     }
 
     @Override
@@ -0,0 +1,122 @@
+package vn.liora.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.liora.repository.OrderRepository;
+import vn.liora.repository.ProductRepository;
+import vn.liora.service.IDashboardService;
+import vn.liora.service.IExportService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportServiceImpl implements IExportService {
+
+    // Flush định kỳ để dữ liệu đi ra client ngay, không dồn trong buffer
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final IDashboardService dashboardService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrdersCsv(LocalDateTime startDate, LocalDateTime endDate, String orderStatus,
+            OutputStream out) throws IOException {
+        String status = orderStatus == null || orderStatus.isBlank() ? null : orderStatus.trim().toUpperCase();
+        Writer writer = openWriter(out);
+        writeRow(writer, "IdOrder", "OrderDate", "Name", "Phone", "Email", "PaymentMethod",
+                "OrderStatus", "PaymentStatus", "TotalDiscount", "ShippingFee", "Total");
+        try (Stream<Object[]> rows = orderRepository.streamOrdersForExport(startDate, endDate, status)) {
+            long count = writeRows(writer, rows);
+            log.info("Exported {} orders to CSV", count);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void exportRevenueCsv(String type, String groupType, LocalDateTime startDate, LocalDateTime endDate,
+            OutputStream out) throws IOException {
+        Map<String, Double> revenue = switch (type == null ? "" : type.toLowerCase()) {
+            case "category" -> dashboardService.getRevenueByCategory(startDate, endDate);
+            case "brand" -> dashboardService.getRevenueByBrand(startDate, endDate);
+            default -> dashboardService.getRevenueByTime(groupType == null ? "day" : groupType, startDate, endDate);
+        };
+        Writer writer = openWriter(out);
+        writeRow(writer, "Group", "Revenue");
+        for (Map.Entry<String, Double> entry : revenue.entrySet()) {
+            writeRow(writer, entry.getKey(), entry.getValue());
+        }
+        writer.flush();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProductsCsv(OutputStream out) throws IOException {
+        Writer writer = openWriter(out);
+        writeRow(writer, "IdProduct", "Name", "Category", "Brand", "Price", "Stock",
+                "SoldCount", "AverageRating", "IsActive", "Available", "CreatedDate");
+        try (Stream<Object[]> rows = productRepository.streamProductsForExport()) {
+            long count = writeRows(writer, rows);
+            log.info("Exported {} products to CSV", count);
+        }
+        writer.flush();
+    }
+
+    private Writer openWriter(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF'); // BOM để Excel đọc đúng tiếng Việt
+        return writer;
+    }
+
+    private long writeRows(Writer writer, Stream<Object[]> rows) throws IOException {
+        long count = 0;
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writeRow(writer, iterator.next());
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        return count;
+    }
+
+    private void writeRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        // Chặn CSV injection: ô văn bản bắt đầu bằng ký tự công thức sẽ bị Excel thực thi
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
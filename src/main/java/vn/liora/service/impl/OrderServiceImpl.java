@@ -9,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.LocalDate;
 import java.util.ArrayList;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -35,6 +36,7 @@ import vn.liora.service.discount.DiscountApplicationService;
 import vn.liora.service.discount.DiscountContext;
 import vn.liora.service.discount.DiscountUsageService;
 import vn.liora.service.order.OrderSideEffectService;
+import vn.liora.service.order.event.OrderStatusChangedEvent;
 import vn.liora.service.order.state.OrderStateContext;
 import vn.liora.service.order.state.OrderStateContextFactory;
 import vn.liora.service.order.state.OrderTransitionRequest;
@@ -42,6 +44,7 @@ import vn.liora.service.order.state.OrderTransitionResult;
 import vn.liora.service.stock.ProductStockEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -72,6 +75,7 @@ public class OrderServiceImpl implements IOrderService {
     OrderStateContextFactory orderStateContextFactory;
     OrderSideEffectService orderSideEffectService;
     ProductStockEventPublisher productStockEventPublisher;
+    ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -218,19 +222,16 @@ public class OrderServiceImpl implements IOrderService {
             order.setTotal(computedTotal);
 
             final Order savedOrder = orderRepository.save(order);
-            // After order persisted, increment discount usage (if a discount was applied)
-            try {
-                if (savedOrder.getDiscount() != null) {
-                    discountApplicationService.confirmUsage(savedOrder.getDiscount().getDiscountId());
-                }
-            } catch (Exception e) {
-                log.warn("Failed to increment discount usage after saving order {}: {}", savedOrder.getIdOrder(),
-                        e.getMessage());
-            }
             reserveOrderItems(savedOrder, validProducts);
+            // Giành lượt dùng mã bằng UPDATE có điều kiện; nếu mã vừa hết lượt thì AppException
+            // làm rollback toàn bộ đơn hàng thay vì âm thầm vượt usageLimit
+            if (savedOrder.getDiscount() != null) {
+                discountApplicationService.confirmUsage(savedOrder.getDiscount().getDiscountId());
+            }
 
             // ✅ Chỉ xóa các sản phẩm hợp lệ đã tạo order
             cartItemRepository.deleteAll(validProducts);
+            publishStatusChanged(savedOrder, null);
 
             // GHN shipping order sẽ chỉ được tạo khi order status = CONFIRMED
             // để đồng bộ cho tất cả hình thức thanh toán (COD, VNPAY, MOMO)
@@ -274,6 +275,7 @@ public class OrderServiceImpl implements IOrderService {
         }
     }
 
+    @Transactional
     public void applyDiscountToOrder(Long orderId, Long discountId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
@@ -296,6 +298,10 @@ public class OrderServiceImpl implements IOrderService {
                             : ErrorCode.DISCOUNT_CANNOT_BE_APPLIED.getMessage());
         }
 
+        // Giành lượt dùng mã trước (UPDATE có điều kiện như createOrder); hết lượt thì AppException
+        // và đơn không bị gắn mã
+        discountApplicationService.confirmUsage(discountId);
+
         BigDecimal discountAmount = applicationResult.getFinalDiscountAmount();
 
         // Cập nhật order
@@ -304,9 +310,6 @@ public class OrderServiceImpl implements IOrderService {
         order.setTotal(subTotal.subtract(discountAmount));
 
         orderRepository.save(order);
-
-        // Tăng usage count
-        discountApplicationService.confirmUsage(discountId);
     }
 
     private BigDecimal calculateOrderSubTotal(Order order) {
@@ -317,6 +320,7 @@ public class OrderServiceImpl implements IOrderService {
     }
 
     @Override
+    @Transactional
     public void removeDiscountFromOrder(Long orderId, Long discountId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
@@ -346,12 +350,16 @@ public class OrderServiceImpl implements IOrderService {
         Order order = orderRepository.findById(idOrder)
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
 
+        String previousStatus = order.getOrderStatus();
         OrderStateContext stateContext = orderStateContextFactory.create(order);
         OrderTransitionResult transitionResult = stateContext.transition(
                 OrderTransitionRequest.forAdmin(request.getOrderStatus(), request.getPaymentStatus()));
 
         order = orderRepository.save(order);
         orderSideEffectService.handleTransitionEffects(order, transitionResult);
+        if (!previousStatus.equalsIgnoreCase(order.getOrderStatus())) {
+            publishStatusChanged(order, previousStatus);
+        }
 
         return orderMapper.toOrderResponse(order);
     }
@@ -487,12 +495,14 @@ public class OrderServiceImpl implements IOrderService {
             throw new AppException(ErrorCode.ORDER_CANNOT_BE_CANCELLED);
         }
 
+        String previousStatus = order.getOrderStatus();
         OrderStateContext stateContext = orderStateContextFactory.create(order);
         OrderTransitionResult transitionResult = stateContext.transition(
                 OrderTransitionRequest.forUserCancellation());
 
         orderRepository.save(order);
         orderSideEffectService.handleTransitionEffects(order, transitionResult);
+        publishStatusChanged(order, previousStatus);
 
         log.info("Order {} cancelled by user {}", orderId, userId);
     }
@@ -549,6 +559,15 @@ public class OrderServiceImpl implements IOrderService {
                 .build();
     }
 
+    private void publishStatusChanged(Order order, String previousStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                order.getIdOrder(),
+                previousStatus,
+                order.getOrderStatus(),
+                order.getTotal(),
+                Instant.now()));
+    }
+
     private void rollbackDiscountUsage(Discount discount, String reason) {
         discountApplicationService.rollbackUsage(discount);
         log.info("Rolled back discount usage for discount {} ({})", discount.getDiscountId(), reason);
@@ -6,7 +6,7 @@ import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import vn.liora.entity.Order;
 import vn.liora.entity.MomoPayment;
 import vn.liora.exception.AppException;
@@ -15,9 +15,11 @@ import vn.liora.repository.OrderRepository;
 import vn.liora.repository.MomoPaymentRepository;
 import vn.liora.payment.PaymentProvider;
 import vn.liora.payment.api.PaymentIpnResult;
+import vn.liora.payment.dedup.PaymentIpnDeduplicator;
 import vn.liora.payment.event.PaymentStatusChangedEvent;
 import vn.liora.payment.registry.PaymentGatewayFactoryRegistry;
 import vn.liora.service.PaymentService;
+import vn.liora.service.order.event.OrderStatusChangedEvent;
 
 import java.util.*;
 import java.time.Instant;
@@ -32,6 +34,8 @@ public class PaymentServiceImpl implements PaymentService {
     final MomoPaymentRepository momoPaymentRepository;
     final PaymentGatewayFactoryRegistry paymentGatewayFactoryRegistry;
     final ApplicationEventPublisher eventPublisher;
+    final PaymentIpnDeduplicator ipnDeduplicator;
+    final TransactionTemplate transactionTemplate;
 
     @Override
     public String createVnpayPaymentUrl(Order order, String clientIp) {
@@ -41,14 +45,18 @@ public class PaymentServiceImpl implements PaymentService {
                 .createPaymentUrl(order, clientIp);
     }
 
+    // Transaction được mở bên trong deduplicator để lock chỉ nhả sau khi đã commit
     @Override
-    @Transactional
     public void handleVnpayIpn(Map<String, String> params) {
-        PaymentIpnResult result = paymentGatewayFactoryRegistry
-                .get(PaymentProvider.VNPAY)
-                .ipnProcessor()
-                .process(params);
-        applyIpnResult(result);
+        ipnDeduplicator.process(PaymentProvider.VNPAY, params.get("vnp_TxnRef"), params.get("vnp_SecureHash"),
+                () -> transactionTemplate.execute(status -> {
+                    PaymentIpnResult result = paymentGatewayFactoryRegistry
+                            .get(PaymentProvider.VNPAY)
+                            .ipnProcessor()
+                            .process(params);
+                    applyIpnResult(result);
+                    return result;
+                }));
     }
 
     @Override
@@ -60,15 +68,20 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    @Transactional
     public void handleMomoIpn(Map<String, Object> params) {
         try {
-            PaymentIpnResult result = paymentGatewayFactoryRegistry
-                    .get(PaymentProvider.MOMO)
-                    .ipnProcessor()
-                    .process(params);
-            applyIpnResult(result);
-
+            // Fingerprint là chữ ký: bản gửi lại giống hệt nhận kết quả cũ, bản khác chữ ký phải qua bước xác thực
+            Object signature = params.get("signature");
+            ipnDeduplicator.process(PaymentProvider.MOMO, (String) params.get("orderId"),
+                    signature != null ? signature.toString() : null,
+                    () -> transactionTemplate.execute(status -> {
+                        PaymentIpnResult result = paymentGatewayFactoryRegistry
+                                .get(PaymentProvider.MOMO)
+                                .ipnProcessor()
+                                .process(params);
+                        applyIpnResult(result);
+                        return result;
+                    }));
         } catch (Exception e) {
             log.error("Error processing MOMO IPN", e);
             throw e;
@@ -103,6 +116,16 @@ public class PaymentServiceImpl implements PaymentService {
 
         orderRepository.save(order);
 
+        if (!Objects.equals(normalizeStatus(previousOrderStatus), normalizeStatus(order.getOrderStatus()))) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                    order.getIdOrder(),
+                    previousOrderStatus,
+                    order.getOrderStatus(),
+                    order.getTotal(),
+                    Instant.now()
+            ));
+        }
+
         String newPaymentStatus = order.getPaymentStatus();
         boolean paymentStatusChanged = !Objects.equals(
                 normalizeStatus(previousPaymentStatus),
@@ -11,6 +11,7 @@ import vn.liora.enums.PermissionCategory;
 import vn.liora.mapper.PermissionMapper;
 import vn.liora.repository.PermissionRepository;
 import vn.liora.service.IPermissionService;
+import vn.liora.service.auth.RolePermissionCache;
 
 import java.util.List;
 import java.util.Map;
@@ -22,11 +23,13 @@ import java.util.stream.Collectors;
 public class PermissionServiceImpl implements IPermissionService {
     PermissionRepository permissionRepository;
     PermissionMapper permissionMapper;
+    RolePermissionCache rolePermissionCache;
 
     @Override
     public PermissionResponse create(PermissionRequest request) {
         Permission permission = permissionMapper.toPermission(request);
         permission = permissionRepository.save(permission);
+        rolePermissionCache.invalidate();
         return permissionMapper.toPermissionResponse(permission);
     }
 
@@ -54,12 +57,14 @@ public class PermissionServiceImpl implements IPermissionService {
         }
 
         permissionRepository.save(permission);
+        rolePermissionCache.invalidate();
         return permissionMapper.toPermissionResponse(permission);
     }
 
     @Override
     public void delete(String permission) {
         permissionRepository.deleteById(permission);
+        rolePermissionCache.invalidate();
     }
 
     @Override
@@ -22,8 +22,8 @@ import vn.liora.repository.BrandRepository;
 import vn.liora.repository.CategoryRepository;
 import vn.liora.repository.ProductItemRepository;
 import vn.liora.repository.ProductRepository;
-import vn.liora.repository.ReviewRepository;
 import vn.liora.service.IProductService;
+import vn.liora.service.review.ProductRatingAggregator;
 import vn.liora.service.stock.ProductStockEventPublisher;
 
 import java.math.BigDecimal;
@@ -39,7 +39,7 @@ public class ProductServiceImpl implements IProductService {
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final ProductMapper productMapper;
-    private final ReviewRepository reviewRepository;
+    private final ProductRatingAggregator productRatingAggregator;
     private final ProductStockEventPublisher productStockEventPublisher;
     private final ProductItemRepository productItemRepository;
 
@@ -47,14 +47,14 @@ public class ProductServiceImpl implements IProductService {
             CategoryRepository categoryRepository,
             BrandRepository brandRepository,
             ProductMapper productMapper,
-            ReviewRepository reviewRepository,
+            ProductRatingAggregator productRatingAggregator,
             ProductStockEventPublisher productStockEventPublisher,
             ProductItemRepository productItemRepository) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.brandRepository = brandRepository;
         this.productMapper = productMapper;
-        this.reviewRepository = reviewRepository;
+        this.productRatingAggregator = productRatingAggregator;
         this.productStockEventPublisher = productStockEventPublisher;
         this.productItemRepository = productItemRepository;
     }
@@ -707,71 +707,20 @@ public class ProductServiceImpl implements IProductService {
 
     // ========== RATING MANAGEMENT ==========
 
+    // Rating được cập nhật dần theo từng thay đổi review; hai hàm dưới dựng lại từ bảng Reviews khi cần đối soát
     @Override
     @Transactional
     public void updateProductAverageRating(Long productId) {
-        try {
-            // Lấy product
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-
-            // Tính average rating từ reviews
-            Double averageRating = reviewRepository.getAverageRatingByProductId(productId);
-
-            // Cập nhật average rating
-            if (averageRating != null) {
-                product.setAverageRating(BigDecimal.valueOf(averageRating));
-            } else {
-                product.setAverageRating(BigDecimal.ZERO);
-            }
-
-            // Cập nhật updated date
-            product.setUpdatedDate(LocalDateTime.now());
-
-            // Lưu product
-            productRepository.save(product);
-
-            System.out.println("Updated average rating for product " + productId + ": " + product.getAverageRating());
-
-        } catch (Exception e) {
-            System.err.println("Error updating average rating for product " + productId + ": " + e.getMessage());
-            throw e;
+        if (!productRepository.existsById(productId)) {
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
         }
+        productRatingAggregator.rebuild(productId);
     }
 
     @Override
     @Transactional
     public void updateAllProductsAverageRating() {
-        try {
-            // Lấy tất cả products
-            List<Product> products = productRepository.findAll();
-
-            System.out.println("Updating average rating for " + products.size() + " products...");
-
-            for (Product product : products) {
-                // Tính average rating từ reviews
-                Double averageRating = reviewRepository.getAverageRatingByProductId(product.getProductId());
-
-                // Cập nhật average rating
-                if (averageRating != null) {
-                    product.setAverageRating(BigDecimal.valueOf(averageRating));
-                } else {
-                    product.setAverageRating(BigDecimal.ZERO);
-                }
-
-                // Cập nhật updated date
-                product.setUpdatedDate(LocalDateTime.now());
-            }
-
-            // Lưu tất cả products
-            productRepository.saveAll(products);
-
-            System.out.println("Successfully updated average rating for all products");
-
-        } catch (Exception e) {
-            System.err.println("Error updating average rating for all products: " + e.getMessage());
-            throw e;
-        }
+        productRatingAggregator.rebuildAll();
     }
 
     private int getAvailableStock(Long productId) {
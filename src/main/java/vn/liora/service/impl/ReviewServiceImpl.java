@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,17 +14,21 @@ import vn.liora.dto.request.ReviewUpdateRequest;
 import vn.liora.dto.response.ReviewResponse;
 import vn.liora.entity.OrderItem;
 import vn.liora.entity.Product;
+import vn.liora.entity.ProductRatingSummary;
 import vn.liora.entity.Review;
 import vn.liora.exception.AppException;
 import vn.liora.exception.ErrorCode;
 import vn.liora.mapper.ReviewMapper;
 import vn.liora.repository.*;
 import vn.liora.service.IReviewService;
+import vn.liora.service.review.ProductRatingAggregator;
+import vn.liora.service.review.ReviewSearchIndex;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -39,6 +44,8 @@ public class ReviewServiceImpl implements IReviewService {
     BrandRepository brandRepository; // Thêm vào constructor
     CategoryRepository categoryRepository; // Thêm vào constructor
     ProductRepository productRepository; // Thêm vào constructor
+    ProductRatingAggregator productRatingAggregator;
+    ReviewSearchIndex reviewSearchIndex;
 
     // ========== BASIC CRUD ==========
     
@@ -76,6 +83,8 @@ public class ReviewServiceImpl implements IReviewService {
 
         // Lưu review
         Review savedReview = reviewRepository.save(review);
+        productRatingAggregator.reviewAdded(savedReview);
+        reviewSearchIndex.reviewChanged(savedReview.getReviewId());
 
         return reviewMapper.toReviewResponse(savedReview);
     }
@@ -93,10 +102,15 @@ public class ReviewServiceImpl implements IReviewService {
         Review review = reviewRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.REVIEW_NOT_FOUND));
 
+        Integer oldRating = review.getRating();
+        Boolean oldVisible = review.getIsVisible();
         reviewMapper.updateReview(review, request);
         review.setLastUpdate(LocalDateTime.now());
 
         Review savedReview = reviewRepository.save(review);
+        productRatingAggregator.reviewChanged(savedReview.getProductId(), oldRating, oldVisible,
+                savedReview.getRating(), savedReview.getIsVisible());
+        reviewSearchIndex.reviewChanged(savedReview.getReviewId());
 
         return reviewMapper.toReviewResponse(savedReview);
     }
@@ -108,6 +122,8 @@ public class ReviewServiceImpl implements IReviewService {
                 .orElseThrow(() -> new AppException(ErrorCode.REVIEW_NOT_FOUND));
         
         reviewRepository.delete(review);
+        productRatingAggregator.reviewRemoved(review);
+        reviewSearchIndex.reviewChanged(review.getReviewId());
     }
 
     @Override
@@ -219,55 +235,23 @@ public class ReviewServiceImpl implements IReviewService {
     
     @Override
     public Double getAverageRatingByProductId(Long productId) {
-        return reviewRepository.getAverageRatingByProductId(productId);
+        return productRatingAggregator.find(productId).averageRating();
     }
 
     @Override
     public Long getReviewCountByProductId(Long productId) {
-        return reviewRepository.getReviewCountByProductId(productId);
+        return productRatingAggregator.find(productId).getVisibleCount();
     }
 
     @Override
     public Long getTotalReviewCountByProductId(Long productId) {
-        return reviewRepository.getTotalReviewCountByProductId(productId);
+        return productRatingAggregator.find(productId).getReviewCount();
     }
 
     @Override
     public Map<String, Object> getProductReviewStatistics(Long productId) {
-        Map<String, Object> statistics = new HashMap<>();
-        
-        // Lấy điểm trung bình
-        Double averageRating = reviewRepository.getAverageRatingByProductId(productId);
-        statistics.put("averageRating", averageRating != null ? averageRating : 0.0);
-        
-        // Lấy tổng số review (bao gồm cả ẩn) để hiển thị đúng count
-        Long totalReviews = reviewRepository.getTotalReviewCountByProductId(productId);
-        statistics.put("totalReviews", totalReviews != null ? totalReviews : 0L);
-        
-        // Lấy số review theo từng rating (1-5 sao)
-        Map<Integer, Long> ratingCounts = new HashMap<>();
-        for (int rating = 1; rating <= 5; rating++) {
-            Long count = reviewRepository.getReviewCountByProductIdAndRating(productId, rating);
-            ratingCounts.put(rating, count != null ? count : 0L);
-        }
-        statistics.put("ratingCounts", ratingCounts);
-        
-        // Tính phần trăm cho mỗi rating
-        Map<Integer, Double> ratingPercentages = new HashMap<>();
-        if (totalReviews != null && totalReviews > 0) {
-            for (int rating = 1; rating <= 5; rating++) {
-                Long count = ratingCounts.get(rating);
-                double percentage = (double) count / totalReviews * 100;
-                ratingPercentages.put(rating, percentage);
-            }
-        } else {
-            for (int rating = 1; rating <= 5; rating++) {
-                ratingPercentages.put(rating, 0.0);
-            }
-        }
-        statistics.put("ratingPercentages", ratingPercentages);
-        
-        return statistics;
+        // Đọc một dòng tổng hợp thay cho AVG + COUNT theo từng mức sao
+        return toStatistics(productRatingAggregator.find(productId));
     }
 
     @Override
@@ -280,42 +264,45 @@ public class ReviewServiceImpl implements IReviewService {
             return result;
         }
         
-        log.debug("Getting statistics for {} products", productIds.size());
-        
-        for (Long productId : productIds) {
-            // Skip null product IDs
-            if (productId == null) {
-                log.warn("Skipping null product ID in getMultipleProductsReviewStatistics");
-                continue;
-            }
-            
-            try {
-                Map<String, Object> productStats = new HashMap<>();
-                
-                // Lấy điểm trung bình
-                Double averageRating = reviewRepository.getAverageRatingByProductId(productId);
-                productStats.put("averageRating", averageRating != null ? averageRating : 0.0);
-                
-                // Lấy tổng số review (bao gồm cả ẩn) để hiển thị đúng count
-                Long totalReviews = reviewRepository.getTotalReviewCountByProductId(productId);
-                productStats.put("totalReviews", totalReviews != null ? totalReviews : 0L);
-                
-                result.put(productId.toString(), productStats);
-                
-                log.debug("Got statistics for product {}: averageRating={}, totalReviews={}", 
-                          productId, averageRating, totalReviews);
-            } catch (Exception e) {
-                log.error("Error getting statistics for product {}: {}", productId, e.getMessage(), e);
-                // Continue processing other products even if one fails
-                Map<String, Object> errorStats = new HashMap<>();
-                errorStats.put("averageRating", 0.0);
-                errorStats.put("totalReviews", 0L);
-                result.put(productId.toString(), errorStats);
-            }
-        }
+        List<Long> ids = productIds.stream().filter(Objects::nonNull).distinct().toList();
+        log.debug("Getting statistics for {} products", ids.size());
+
+        // Một query IN cho cả danh sách
+        productRatingAggregator.findAll(ids).forEach((productId, summary) -> {
+            Map<String, Object> productStats = new HashMap<>();
+            Double averageRating = summary.averageRating();
+            productStats.put("averageRating", averageRating != null ? averageRating : 0.0);
+            // Tổng số review (bao gồm cả ẩn) để hiển thị đúng count
+            productStats.put("totalReviews", summary.getReviewCount());
+            result.put(productId.toString(), productStats);
+        });
         
         return result;
     }
+
+    private Map<String, Object> toStatistics(ProductRatingSummary summary) {
+        Map<String, Object> statistics = new HashMap<>();
+
+        Double averageRating = summary.averageRating();
+        statistics.put("averageRating", averageRating != null ? averageRating : 0.0);
+
+        // Tổng số review (bao gồm cả ẩn) để hiển thị đúng count
+        long totalReviews = summary.getReviewCount();
+        statistics.put("totalReviews", totalReviews);
+
+        // Số review và phần trăm theo từng rating (1-5 sao)
+        Map<Integer, Long> ratingCounts = new HashMap<>();
+        Map<Integer, Double> ratingPercentages = new HashMap<>();
+        for (int rating = 1; rating <= 5; rating++) {
+            long count = summary.countForRating(rating);
+            ratingCounts.put(rating, count);
+            ratingPercentages.put(rating, totalReviews > 0 ? (double) count / totalReviews * 100 : 0.0);
+        }
+        statistics.put("ratingCounts", ratingCounts);
+        statistics.put("ratingPercentages", ratingPercentages);
+
+        return statistics;
+    }
     
     // ========== ADMIN FUNCTIONS ==========
     
@@ -333,12 +320,20 @@ public class ReviewServiceImpl implements IReviewService {
 
     @Override
     public List<ReviewResponse> searchReviewsByContent(String keyword) {
+        Optional<Page<Long>> indexed = reviewSearchIndex.search(keyword, Pageable.unpaged());
+        if (indexed.isPresent()) {
+            return loadInOrder(indexed.get().getContent());
+        }
         List<Review> reviews = reviewRepository.findByContentContainingIgnoreCase(keyword);
         return reviewMapper.toReviewResponseList(reviews);
     }
 
     @Override
     public Page<ReviewResponse> searchReviewsByContent(String keyword, Pageable pageable) {
+        Optional<Page<Long>> indexed = reviewSearchIndex.search(keyword, pageable);
+        if (indexed.isPresent()) {
+            return toResponsePage(indexed.get());
+        }
         Page<Review> reviews = reviewRepository.findByContentContainingIgnoreCase(keyword, pageable);
         return reviews.map(reviewMapper::toReviewResponse);
     }
@@ -377,6 +372,9 @@ public class ReviewServiceImpl implements IReviewService {
         review.setLastUpdate(LocalDateTime.now());
         
         Review savedReview = reviewRepository.save(review);
+        productRatingAggregator.reviewChanged(savedReview.getProductId(), savedReview.getRating(),
+                !savedReview.getIsVisible(), savedReview.getRating(), savedReview.getIsVisible());
+        reviewSearchIndex.reviewChanged(savedReview.getReviewId());
         return reviewMapper.toReviewResponse(savedReview);
     }
 
@@ -386,10 +384,14 @@ public class ReviewServiceImpl implements IReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new AppException(ErrorCode.REVIEW_NOT_FOUND));
         
+        Boolean oldVisible = review.getIsVisible();
         review.setIsVisible(false);
         review.setLastUpdate(LocalDateTime.now());
         
         Review savedReview = reviewRepository.save(review);
+        productRatingAggregator.reviewChanged(savedReview.getProductId(), savedReview.getRating(), oldVisible,
+                savedReview.getRating(), false);
+        reviewSearchIndex.reviewChanged(savedReview.getReviewId());
         return reviewMapper.toReviewResponse(savedReview);
     }
 
@@ -399,10 +401,14 @@ public class ReviewServiceImpl implements IReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new AppException(ErrorCode.REVIEW_NOT_FOUND));
         
+        Boolean oldVisible = review.getIsVisible();
         review.setIsVisible(true);
         review.setLastUpdate(LocalDateTime.now());
         
         Review savedReview = reviewRepository.save(review);
+        productRatingAggregator.reviewChanged(savedReview.getProductId(), savedReview.getRating(), oldVisible,
+                savedReview.getRating(), true);
+        reviewSearchIndex.reviewChanged(savedReview.getReviewId());
         return reviewMapper.toReviewResponse(savedReview);
     }
 
@@ -418,12 +424,39 @@ public class ReviewServiceImpl implements IReviewService {
             Long productId,
             Boolean isVisible) {
 
+        // Có từ khóa: tìm trên chỉ mục (bỏ dấu, không COUNT cả bảng), chỉ nạp các review của trang
+        if (search != null && !search.isBlank()) {
+            Optional<Page<Long>> indexed = reviewSearchIndex.searchWithFilters(
+                    search, rating, brandId, categoryId, productId, isVisible, pageable);
+            if (indexed.isPresent()) {
+                return toResponsePage(indexed.get());
+            }
+        }
+
         Page<Review> reviews = reviewRepository.findAllReviewsWithFilters(
                 search, rating, brandId, categoryId, productId, isVisible, pageable);
 
         return reviews.map(reviewMapper::toReviewResponse);
     }
 
+    private Page<ReviewResponse> toResponsePage(Page<Long> ids) {
+        return new PageImpl<>(loadInOrder(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    // Nạp review theo id và giữ nguyên thứ tự của chỉ mục; review vừa bị xóa thì bỏ qua
+    private List<ReviewResponse> loadInOrder(List<Long> reviewIds) {
+        if (reviewIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Review> byId = reviewRepository.findAllById(reviewIds).stream()
+                .collect(Collectors.toMap(Review::getReviewId, review -> review));
+        return reviewIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(reviewMapper::toReviewResponse)
+                .toList();
+    }
+
     @Override
     public Map<String, Object> getReviewStatistics(
             Integer rating,
@@ -513,10 +546,14 @@ public class ReviewServiceImpl implements IReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new AppException(ErrorCode.REVIEW_NOT_FOUND));
 
+        Boolean oldVisible = review.getIsVisible();
         review.setIsVisible(isVisible);
         review.setLastUpdate(LocalDateTime.now());
 
         reviewRepository.save(review);
+        productRatingAggregator.reviewChanged(review.getProductId(), review.getRating(), oldVisible,
+                review.getRating(), isVisible);
+        reviewSearchIndex.reviewChanged(review.getReviewId());
     }
 
     @Override
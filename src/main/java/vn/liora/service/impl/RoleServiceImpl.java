@@ -12,6 +12,8 @@ import vn.liora.mapper.RoleMapper;
 import vn.liora.repository.PermissionRepository;
 import vn.liora.repository.RoleRepository;
 import vn.liora.service.IRoleService;
+import vn.liora.service.auth.CurrentUserResolver;
+import vn.liora.service.auth.RolePermissionCache;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -23,6 +25,8 @@ public class RoleServiceImpl implements IRoleService {
     RoleRepository roleRepository;
     PermissionRepository permissionRepository;
     RoleMapper roleMapper;
+    CurrentUserResolver currentUserResolver;
+    RolePermissionCache rolePermissionCache;
 
     @Override
     public RoleResponse create(RoleRequest request) {
@@ -30,6 +34,7 @@ public class RoleServiceImpl implements IRoleService {
         var permission = permissionRepository.findAllById(request.getPermissions());
         role.setPermissions(new HashSet<>(permission));
         roleRepository.save(role);
+        rolePermissionCache.invalidate();
         return roleMapper.toRoleResponse(role);
     }
 
@@ -63,12 +68,16 @@ public class RoleServiceImpl implements IRoleService {
         }
 
         roleRepository.save(role);
+        rolePermissionCache.invalidate();
         return roleMapper.toRoleResponse(role);
     }
 
     @Override
     public void delete(String role) {
         roleRepository.deleteById(role);
+        rolePermissionCache.invalidate();
+        // Role bị xóa khỏi mọi user đang giữ nó
+        currentUserResolver.evictAll();
     }
 
     @Override
@@ -96,6 +105,7 @@ public class RoleServiceImpl implements IRoleService {
         role.setPermissions(new HashSet<>(permissions));
 
         roleRepository.save(role);
+        rolePermissionCache.invalidate();
         return roleMapper.toRoleResponse(role);
     }
 
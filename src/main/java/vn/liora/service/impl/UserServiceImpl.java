@@ -25,6 +25,7 @@ import vn.liora.repository.RoleRepository;
 import vn.liora.repository.UserRepository;
 import vn.liora.service.IUserService;
 import vn.liora.service.IAuthenticationService;
+import vn.liora.service.auth.CurrentUserResolver;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -42,17 +43,20 @@ public class UserServiceImpl implements IUserService {
     UserMapper userMapper;
     PasswordEncoder passwordEncoder;
     IAuthenticationService authenticationService;
+    CurrentUserResolver currentUserResolver;
 
     @Override
     @Transactional
     public void deleteAll() {
         userRepository.deleteAll();
+        currentUserResolver.evictAll();
     }
 
     @Override
     @Transactional
     public void delete(User user) {
         userRepository.delete(user);
+        currentUserResolver.evictUser(user.getUserId());
     }
 
     // @PreAuthorize("hasRole('ADMIN')")
@@ -60,6 +64,7 @@ public class UserServiceImpl implements IUserService {
     @Transactional
     public void deleteById(Long id) {
         userRepository.deleteById(id);
+        currentUserResolver.evictUser(id);
     }
 
     @Override
@@ -185,7 +190,10 @@ public class UserServiceImpl implements IUserService {
 
     @Override
     public <S extends User> S save(S entity) {
-        return userRepository.save(entity);
+        S saved = userRepository.save(entity);
+        // Username / role / trạng thái active có thể đã đổi
+        currentUserResolver.evictUser(saved.getUserId());
+        return saved;
     }
 
     @Override
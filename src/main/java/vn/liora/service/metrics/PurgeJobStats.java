@@ -0,0 +1,57 @@
+package vn.liora.service.metrics;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cờ chống chạy chồng và số liệu chung của các job dọn bảng theo lô: số lượt chạy, số dòng đã xóa,
+ * thời gian và tốc độ xóa của lượt gần nhất. Mỗi job vẫn tự giữ các số liệu riêng của nó.
+ */
+public class PurgeJobStats {
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalPurged = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long lastPurged;
+    private volatile long lastDurationMs;
+    private volatile LocalDateTime lastRunAt;
+
+    /**
+     * Bắt đầu một lượt; {@code false} nếu lượt trước (theo lịch hoặc gọi tay từ admin) vẫn đang chạy.
+     */
+    public boolean tryStart() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        startNanos = System.nanoTime();
+        lastRunAt = LocalDateTime.now();
+        return true;
+    }
+
+    /**
+     * Ghi kết quả lượt đang chạy và nhả cờ; gọi trong {@code finally}. Trả về thời gian chạy (ms).
+     */
+    public long finish(long purged) {
+        lastDurationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        lastPurged = purged;
+        totalPurged.addAndGet(purged);
+        runs.incrementAndGet();
+        running.set(false);
+        return lastDurationMs;
+    }
+
+    public Map<String, Object> putInto(Map<String, Object> stats) {
+        long purged = lastPurged;
+        long durationMs = lastDurationMs;
+        stats.put("runs", runs.get());
+        stats.put("totalPurged", totalPurged.get());
+        stats.put("lastPurged", purged);
+        stats.put("lastDurationMs", durationMs);
+        stats.put("lastRowsPerSecond", durationMs == 0 ? purged : purged * 1000 / durationMs);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+}
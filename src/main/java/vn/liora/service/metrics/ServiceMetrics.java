@@ -0,0 +1,222 @@
+package vn.liora.service.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số liệu thời gian chạy của các service được {@link ServiceMetricsPostProcessor} đo: số lần gọi,
+ * số lần lỗi, tổng / max thời gian và histogram theo bucket cố định, tách theo interface,
+ * lớp cài đặt và tên method.
+ * <p>
+ * Xem dạng JSON qua {@code /admin/api/system/service-metrics}, hoặc dạng text của Prometheus
+ * qua {@code /internal/metrics/prometheus} (tốc độ gọi do Prometheus tính từ counter).
+ */
+@Component
+public class ServiceMetrics {
+
+    static final String METRIC_PREFIX = "liora_service";
+
+    // Cận trên của các bucket, tính bằng ms
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final Map<Key, MethodStats> stats = new ConcurrentHashMap<>();
+
+    private record Key(Class<?> service, Class<?> implementation, Method method) {
+    }
+
+    public void record(Class<?> service, Class<?> implementation, Method method, long elapsedNanos, boolean failed) {
+        MethodStats methodStats = stats.computeIfAbsent(new Key(service, implementation, method),
+                key -> new MethodStats(key.service().getSimpleName(), key.implementation().getSimpleName(),
+                        key.method().getName()));
+        methodStats.record(elapsedNanos, failed);
+    }
+
+    /**
+     * Các method sắp theo tổng thời gian giảm dần: method đầu danh sách chiếm nhiều thời gian request nhất.
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Snapshot row : aggregated()) {
+            long count = row.count;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("service", row.service);
+            item.put("implementation", row.implementation);
+            item.put("method", row.method);
+            item.put("count", count);
+            item.put("errors", row.errors);
+            item.put("totalMs", TimeUnit.NANOSECONDS.toMillis(row.totalNanos));
+            item.put("avgMs", count == 0 ? 0.0 : row.totalNanos / 1_000_000.0 / count);
+            item.put("maxMs", TimeUnit.NANOSECONDS.toMillis(row.maxNanos));
+            item.put("p50Ms", percentileMs(row.buckets, count, 0.50));
+            item.put("p95Ms", percentileMs(row.buckets, count, 0.95));
+            item.put("p99Ms", percentileMs(row.buckets, count, 0.99));
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Định dạng text exposition 0.0.4 của Prometheus.
+     */
+    public String prometheus() {
+        List<Snapshot> rows = aggregated();
+        StringBuilder out = new StringBuilder(256 + rows.size() * 1024);
+
+        out.append("# HELP ").append(METRIC_PREFIX).append("_seconds Thoi gian chay cua method service\n");
+        out.append("# TYPE ").append(METRIC_PREFIX).append("_seconds histogram\n");
+        for (Snapshot row : rows) {
+            String labels = row.labels();
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                cumulative += row.buckets[i];
+                out.append(METRIC_PREFIX).append("_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(seconds(BUCKET_BOUNDS_MS[i])).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            // +Inf và _count lấy từ tổng bucket để luôn khớp nhau dù đang có request ghi song song
+            cumulative += row.buckets[BUCKET_BOUNDS_MS.length];
+            out.append(METRIC_PREFIX).append("_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                    .append(cumulative).append('\n');
+            out.append(METRIC_PREFIX).append("_seconds_sum{").append(labels).append("} ")
+                    .append(String.format(Locale.ROOT, "%.6f", row.totalNanos / 1e9)).append('\n');
+            out.append(METRIC_PREFIX).append("_seconds_count{").append(labels).append("} ")
+                    .append(cumulative).append('\n');
+        }
+
+        out.append("# HELP ").append(METRIC_PREFIX).append("_seconds_max Thoi gian lau nhat tu khi khoi dong\n");
+        out.append("# TYPE ").append(METRIC_PREFIX).append("_seconds_max gauge\n");
+        for (Snapshot row : rows) {
+            out.append(METRIC_PREFIX).append("_seconds_max{").append(row.labels()).append("} ")
+                    .append(String.format(Locale.ROOT, "%.6f", row.maxNanos / 1e9)).append('\n');
+        }
+
+        out.append("# HELP ").append(METRIC_PREFIX).append("_errors_total So lan method service nem exception\n");
+        out.append("# TYPE ").append(METRIC_PREFIX).append("_errors_total counter\n");
+        for (Snapshot row : rows) {
+            out.append(METRIC_PREFIX).append("_errors_total{").append(row.labels()).append("} ")
+                    .append(row.errors).append('\n');
+        }
+        return out.toString();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    // Các overload cùng tên được gộp làm một dòng, giống cách đặt tên metric theo method của Micrometer
+    private List<Snapshot> aggregated() {
+        Map<String, Snapshot> rows = new LinkedHashMap<>();
+        for (MethodStats methodStats : stats.values()) {
+            String id = methodStats.service + '|' + methodStats.implementation + '|' + methodStats.method;
+            rows.computeIfAbsent(id, k -> new Snapshot(methodStats.service, methodStats.implementation,
+                    methodStats.method)).add(methodStats);
+        }
+        List<Snapshot> result = new ArrayList<>(rows.values());
+        result.sort(Comparator.comparingLong((Snapshot row) -> row.totalNanos).reversed());
+        return result;
+    }
+
+    private static double percentileMs(long[] buckets, long count, double quantile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= rank) {
+                return BUCKET_BOUNDS_MS[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static String seconds(long ms) {
+        return String.format(Locale.ROOT, "%.3f", ms / 1000.0);
+    }
+
+    private static int bucketIndex(long elapsedNanos) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (elapsedMs < BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    private static final class MethodStats {
+        final String service;
+        final String implementation;
+        final String method;
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        // Phần tử cuối là bucket vượt cận lớn nhất (+Inf)
+        final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+
+        MethodStats(String service, String implementation, String method) {
+            this.service = service;
+            this.implementation = implementation;
+            this.method = method;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos, boolean failed) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            buckets[bucketIndex(elapsedNanos)].increment();
+            if (failed) {
+                errors.increment();
+            }
+            if (elapsedNanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        final String service;
+        final String implementation;
+        final String method;
+        long count;
+        long errors;
+        long totalNanos;
+        long maxNanos;
+        final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+
+        Snapshot(String service, String implementation, String method) {
+            this.service = service;
+            this.implementation = implementation;
+            this.method = method;
+        }
+
+        void add(MethodStats methodStats) {
+            count += methodStats.count.sum();
+            errors += methodStats.errors.sum();
+            totalNanos += methodStats.totalNanos.sum();
+            maxNanos = Math.max(maxNanos, methodStats.maxNanos.get());
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += methodStats.buckets[i].sum();
+            }
+        }
+
+        String labels() {
+            return "service=\"" + service + "\",implementation=\"" + implementation + "\",method=\"" + method + "\"";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package vn.liora.service.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import vn.liora.service.IDiscountService;
+import vn.liora.service.IGhnShippingService;
+import vn.liora.service.IOrderService;
+import vn.liora.service.IProductService;
+import vn.liora.service.IReviewService;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gắn advisor đo thời gian vào mọi bean cài đặt các interface service trong {@link #SERVICES}.
+ * <p>
+ * Nếu bean đã là proxy (vd. của {@code @Transactional}) thì advisor được thêm vào đầu chuỗi,
+ * nên thời gian đo gồm cả commit. Với {@link IReviewService}, cả decorator cache lẫn service lõi
+ * đều được đo, tách bằng nhãn {@code implementation}, để thấy tỉ lệ request đi xuống DB.
+ * Lời gọi nội bộ trong cùng một bean (self-invocation) không đi qua proxy nên không được đo.
+ */
+@Component
+@ConditionalOnProperty(name = "metrics.services.enabled", havingValue = "true", matchIfMissing = true)
+public class ServiceMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    static final List<Class<?>> SERVICES = List.of(
+            IReviewService.class,
+            IProductService.class,
+            IOrderService.class,
+            IDiscountService.class,
+            IGhnShippingService.class);
+
+    public ServiceMetricsPostProcessor(ServiceMetrics serviceMetrics) {
+        ServicePointcut pointcut = new ServicePointcut();
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(serviceMetrics, pointcut));
+        this.beforeExistingAdvisors = true;
+        // Proxy theo lớp để các chỗ inject lớp cụ thể (vd. CachingReviewServiceDecorator) vẫn chạy
+        setProxyTargetClass(true);
+    }
+
+    private static final class ServicePointcut extends StaticMethodMatcherPointcut {
+
+        // Method đã gặp -> interface service khai báo nó (Optional.empty() nếu không thuộc interface nào)
+        private final Map<Method, Optional<Class<?>>> declaringService = new ConcurrentHashMap<>();
+
+        ServicePointcut() {
+            setClassFilter(new ClassFilter() {
+                @Override
+                public boolean matches(Class<?> clazz) {
+                    return SERVICES.stream().anyMatch(service -> service.isAssignableFrom(clazz));
+                }
+            });
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return serviceOf(method, targetClass).isPresent();
+        }
+
+        Optional<Class<?>> serviceOf(Method method, Class<?> targetClass) {
+            return declaringService.computeIfAbsent(method, m -> {
+                for (Class<?> service : SERVICES) {
+                    if (service.isAssignableFrom(targetClass)
+                            && ClassUtils.hasMethod(service, m.getName(), m.getParameterTypes())) {
+                        return Optional.of(service);
+                    }
+                }
+                return Optional.empty();
+            });
+        }
+    }
+
+    private static final class TimingInterceptor implements MethodInterceptor {
+        private final ServiceMetrics serviceMetrics;
+        private final ServicePointcut pointcut;
+
+        TimingInterceptor(ServiceMetrics serviceMetrics, ServicePointcut pointcut) {
+            this.serviceMetrics = serviceMetrics;
+            this.pointcut = pointcut;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                Class<?> implementation = ClassUtils.getUserClass(invocation.getThis().getClass());
+                Optional<Class<?>> service = pointcut.serviceOf(invocation.getMethod(), implementation);
+                if (service.isPresent()) {
+                    serviceMetrics.record(service.get(), implementation, invocation.getMethod(), elapsed, failed);
+                }
+            }
+        }
+    }
+}
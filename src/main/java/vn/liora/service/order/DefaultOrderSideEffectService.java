@@ -19,6 +19,7 @@ import vn.liora.repository.ProductItemRepository;
 import vn.liora.service.EmailService;
 import vn.liora.service.IGhnShippingService;
 import vn.liora.service.IProductService;
+import vn.liora.service.analytics.OrderFactsStore;
 import vn.liora.service.discount.DiscountUsageService;
 import vn.liora.service.order.state.OrderTransitionResult;
 import vn.liora.service.stock.ProductStockEventPublisher;
@@ -43,6 +44,7 @@ public class DefaultOrderSideEffectService implements OrderSideEffectService {
     private final IGhnShippingService ghnShippingService;
     private final GhnShippingRepository ghnShippingRepository;
     private final ProductStockEventPublisher productStockEventPublisher;
+    private final OrderFactsStore orderFactsStore;
 
     @Override
     public void handleTransitionEffects(Order order, OrderTransitionResult result) {
@@ -54,9 +56,11 @@ public class DefaultOrderSideEffectService implements OrderSideEffectService {
         }
         if (result.shouldIncreaseSoldCount()) {
             increaseSoldCount(order);
+            orderFactsStore.recordCompleted(order.getIdOrder());
         }
         if (result.shouldDecreaseSoldCount()) {
             decreaseSoldCount(order);
+            orderFactsStore.recordReverted(order.getIdOrder());
         }
         if (result.shouldCreateShippingOrder()) {
             ensureShippingOrderCreated(order);
@@ -0,0 +1,16 @@
+package vn.liora.service.order.event;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Phát ra khi đơn hàng được tạo (previousStatus = null) hoặc đổi trạng thái.
+ */
+public record OrderStatusChangedEvent(
+        Long orderId,
+        String previousStatus,
+        String newStatus,
+        BigDecimal total,
+        Instant occurredAt
+) {
+}
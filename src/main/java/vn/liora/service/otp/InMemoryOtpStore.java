@@ -0,0 +1,96 @@
+package vn.liora.service.otp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OTP giữ trong bộ nhớ, tối đa {@code otp.store.max-entries} mã. Mã hết hạn bị xóa khi đọc
+ * và theo chu kỳ {@code otp.store.sweep-ms}; khi vẫn đầy thì bỏ mã sắp hết hạn nhất thay vì phình ra.
+ */
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryOtpStore implements OtpStore {
+
+    private final int maxEntries;
+    private final int maxAttempts;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public InMemoryOtpStore(
+            @Value("${otp.store.max-entries:10000}") int maxEntries,
+            @Value("${otp.max-attempts:5}") int maxAttempts) {
+        this.maxEntries = maxEntries;
+        this.maxAttempts = maxAttempts;
+    }
+
+    private record Entry(String code, long expiresAt, int failedAttempts) {
+        boolean isExpired(long now) {
+            return now > expiresAt;
+        }
+    }
+
+    @Override
+    public void save(String email, OtpPurpose purpose, String code, Duration ttl) {
+        String key = key(email, purpose);
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            sweep();
+            if (entries.size() >= maxEntries) {
+                evictSoonestExpiring();
+            }
+        }
+        entries.put(key, new Entry(code, System.currentTimeMillis() + ttl.toMillis(), 0));
+    }
+
+    @Override
+    public boolean consume(String email, OtpPurpose purpose, String code) {
+        String key = key(email, purpose);
+        long now = System.currentTimeMillis();
+        boolean[] matched = {false};
+        entries.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(now)) {
+                return null;
+            }
+            if (code != null && MessageDigest.isEqual(
+                    entry.code().getBytes(StandardCharsets.UTF_8), code.getBytes(StandardCharsets.UTF_8))) {
+                matched[0] = true;
+                return null;
+            }
+            int failed = entry.failedAttempts() + 1;
+            return failed >= maxAttempts ? null : new Entry(entry.code(), entry.expiresAt(), failed);
+        });
+        return matched[0];
+    }
+
+    // Bỏ mã sắp hết hạn nhất để nhường chỗ, tránh việc đầy store làm mọi lần gửi OTP đều thất bại
+    private void evictSoonestExpiring() {
+        entries.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                .ifPresent(oldest -> {
+                    if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                        log.warn("OTP store is full ({} entries), evicted the soonest-expiring code", maxEntries);
+                    }
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${otp.store.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static String key(String email, OtpPurpose purpose) {
+        return purpose.name() + ':' + email.trim().toLowerCase(Locale.ROOT);
+    }
+}
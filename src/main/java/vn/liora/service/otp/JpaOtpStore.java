@@ -0,0 +1,83 @@
+package vn.liora.service.otp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import vn.liora.entity.OtpCode;
+import vn.liora.repository.OtpCodeRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * OTP lưu trong bảng OtpCodes, dùng khi chạy nhiều instance ({@code otp.store=database}):
+ * mã gửi từ instance này xác thực được ở instance khác và không mất khi khởi động lại.
+ * Dòng hết hạn được xóa theo chu kỳ {@code otp.store.sweep-ms}.
+ */
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "database")
+@Slf4j
+public class JpaOtpStore implements OtpStore {
+
+    private final OtpCodeRepository otpCodeRepository;
+    private final int maxAttempts;
+
+    public JpaOtpStore(OtpCodeRepository otpCodeRepository,
+            @Value("${otp.max-attempts:5}") int maxAttempts) {
+        this.otpCodeRepository = otpCodeRepository;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    @Transactional
+    public void save(String email, OtpPurpose purpose, String code, Duration ttl) {
+        otpCodeRepository.save(OtpCode.builder()
+                .id(key(email, purpose))
+                .code(code)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .failedAttempts(0)
+                .build());
+    }
+
+    @Override
+    @Transactional
+    public boolean consume(String email, OtpPurpose purpose, String code) {
+        OtpCode otp = otpCodeRepository.findByIdForUpdate(key(email, purpose)).orElse(null);
+        if (otp == null) {
+            return false;
+        }
+        if (otp.getExpiresAt().isBefore(LocalDateTime.now())) {
+            otpCodeRepository.delete(otp);
+            return false;
+        }
+        if (code != null && MessageDigest.isEqual(
+                otp.getCode().getBytes(StandardCharsets.UTF_8), code.getBytes(StandardCharsets.UTF_8))) {
+            otpCodeRepository.delete(otp);
+            return true;
+        }
+        otp.setFailedAttempts(otp.getFailedAttempts() + 1);
+        if (otp.getFailedAttempts() >= maxAttempts) {
+            otpCodeRepository.delete(otp);
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${otp.store.sweep-ms:60000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = otpCodeRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Purged {} expired OTP codes", deleted);
+        }
+    }
+
+    private static String key(String email, OtpPurpose purpose) {
+        return purpose.name() + ':' + email.trim().toLowerCase(Locale.ROOT);
+    }
+}
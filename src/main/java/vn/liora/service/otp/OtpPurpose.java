@@ -0,0 +1,6 @@
+package vn.liora.service.otp;
+
+public enum OtpPurpose {
+    REGISTRATION,
+    PASSWORD_RESET
+}
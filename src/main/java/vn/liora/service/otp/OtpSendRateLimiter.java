@@ -0,0 +1,73 @@
+package vn.liora.service.otp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.liora.exception.AppException;
+import vn.liora.exception.ErrorCode;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giới hạn số lần gửi OTP theo email và theo IP trong mỗi cửa sổ {@code otp.rate-limit.window-ms},
+ * để bot gọi /send-*-otp không gửi mail hàng loạt và làm phình store.
+ * Bộ đếm nằm trong bộ nhớ của từng instance.
+ */
+@Component
+public class OtpSendRateLimiter {
+
+    private final int maxPerEmail;
+    private final int maxPerIp;
+    private final long windowMs;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public OtpSendRateLimiter(
+            @Value("${otp.rate-limit.max-per-email:5}") int maxPerEmail,
+            @Value("${otp.rate-limit.max-per-ip:20}") int maxPerIp,
+            @Value("${otp.rate-limit.window-ms:3600000}") long windowMs) {
+        this.maxPerEmail = maxPerEmail;
+        this.maxPerIp = maxPerIp;
+        this.windowMs = windowMs;
+    }
+
+    private record Window(long startedAt, int count) {
+    }
+
+    /**
+     * Ghi nhận một lần gửi; ném {@link ErrorCode#OTP_LIMIT_EXCEEDED} nếu email hoặc IP đã vượt giới hạn.
+     */
+    public void acquire(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (clientIp != null && !tryIncrement("ip:" + clientIp, maxPerIp, now)) {
+            throw new AppException(ErrorCode.OTP_LIMIT_EXCEEDED);
+        }
+        if (email != null && !tryIncrement("email:" + email.trim().toLowerCase(Locale.ROOT), maxPerEmail, now)) {
+            throw new AppException(ErrorCode.OTP_LIMIT_EXCEEDED);
+        }
+    }
+
+    private boolean tryIncrement(String key, int max, long now) {
+        boolean[] allowed = {false};
+        windows.compute(key, (k, window) -> {
+            if (window == null || now - window.startedAt() >= windowMs) {
+                allowed[0] = max > 0;
+                return new Window(now, 1);
+            }
+            if (window.count() >= max) {
+                return window;
+            }
+            allowed[0] = true;
+            return new Window(window.startedAt(), window.count() + 1);
+        });
+        return allowed[0];
+    }
+
+    @Scheduled(fixedDelayString = "${otp.store.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        windows.values().removeIf(window -> now - window.startedAt() >= windowMs);
+    }
+}
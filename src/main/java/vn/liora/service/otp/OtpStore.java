@@ -0,0 +1,23 @@
+package vn.liora.service.otp;
+
+import java.time.Duration;
+
+/**
+ * Nơi lưu mã OTP đăng ký / quên mật khẩu theo (email, mục đích).
+ * <p>
+ * Mặc định dùng {@link InMemoryOtpStore}; khi chạy nhiều instance thì đặt
+ * {@code otp.store=database} để dùng {@link JpaOtpStore}.
+ */
+public interface OtpStore {
+
+    /**
+     * Lưu mã mới cho email, thay mã cũ cùng mục đích (nếu có).
+     */
+    void save(String email, OtpPurpose purpose, String code, Duration ttl);
+
+    /**
+     * Kiểm tra mã; đúng thì xóa luôn (mỗi mã chỉ dùng được một lần).
+     * Nhập sai quá {@code otp.max-attempts} lần thì mã bị hủy.
+     */
+    boolean consume(String email, OtpPurpose purpose, String code);
+}
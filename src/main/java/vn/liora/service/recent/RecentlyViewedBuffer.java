@@ -0,0 +1,267 @@
+package vn.liora.service.recent;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bộ đệm ghi sau (write-behind) cho lượt xem sản phẩm.
+ * <p>
+ * Mỗi lượt xem chỉ được ghi vào bộ nhớ: mỗi user / guest có tối đa {@code MAX_PER_OWNER} sản phẩm
+ * gần nhất, xem lại một sản phẩm chỉ cập nhật thời gian. Định kỳ ({@code recently-viewed.buffer.flush-ms})
+ * toàn bộ được đẩy xuống bảng RecentlyViewed bằng batch {@code INSERT ... ON DUPLICATE KEY UPDATE}
+ * dựa trên hai unique key (user, product) và (guest, product).
+ * <p>
+ * Các lượt xem chưa flush chỉ nằm trên instance nhận request; người đọc trên instance khác thấy chúng
+ * sau tối đa một chu kỳ flush. Khi tắt ứng dụng, bộ đệm được flush nốt.
+ * <p>
+ * Khi số owner vượt {@code recently-viewed.buffer.max-owners}, flush được đẩy sang executor thay vì chạy
+ * trên thread request, để không nằm trong transaction của request và không làm chậm lượt xem.
+ */
+@Component
+@Slf4j
+public class RecentlyViewedBuffer {
+
+    public static final int MAX_PER_OWNER = 20;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO RecentlyViewed (IdUser, IdGuest, IdProduct, ViewedAt)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE ViewedAt = GREATEST(ViewedAt, VALUES(ViewedAt))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor flushExecutor;
+    private final boolean enabled;
+    private final int maxOwners;
+    private final int batchSize;
+
+    private final Map<Owner, OwnerViews> buffers = new ConcurrentHashMap<>();
+    // Flush và xóa lịch sử không chạy chồng nhau, để flush không ghi lại dòng vừa bị xóa
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Chỉ giữ một flush tràn bộ đệm đang chờ trên executor
+    private final AtomicBoolean overflowFlushQueued = new AtomicBoolean();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+    private final AtomicLong lastFlushRows = new AtomicLong();
+
+    public RecentlyViewedBuffer(JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("applicationTaskExecutor") Executor flushExecutor,
+            @Value("${recently-viewed.buffer.enabled:true}") boolean enabled,
+            @Value("${recently-viewed.buffer.max-owners:50000}") int maxOwners,
+            @Value("${recently-viewed.buffer.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushExecutor = flushExecutor;
+        this.enabled = enabled;
+        this.maxOwners = maxOwners;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Chủ sở hữu lịch sử xem: user đã đăng nhập (guestId bỏ qua) hoặc guest.
+     */
+    public record Owner(Long userId, String guestId) {
+        public static Owner of(Long userId, String guestId) {
+            return userId != null ? new Owner(userId, null) : new Owner(null, guestId);
+        }
+    }
+
+    private record Row(Owner owner, Long productId, LocalDateTime viewedAt) {
+    }
+
+    // Sản phẩm -> thời điểm xem, theo thứ tự xem (cũ nhất đứng đầu)
+    private static final class OwnerViews {
+        final LinkedHashMap<Long, LocalDateTime> views = new LinkedHashMap<>();
+
+        void put(Long productId, LocalDateTime viewedAt) {
+            views.remove(productId);
+            views.put(productId, viewedAt);
+            if (views.size() > MAX_PER_OWNER) {
+                Iterator<Long> eldest = views.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LocalDateTime record(Long productId, Long userId, String guestId) {
+        LocalDateTime viewedAt = LocalDateTime.now();
+        Owner owner = Owner.of(userId, guestId);
+        // compute giữ khóa theo key của map, nên không đụng với flush đang lấy bộ đệm của owner này ra
+        buffers.compute(owner, (key, views) -> {
+            OwnerViews target = views != null ? views : new OwnerViews();
+            target.put(productId, viewedAt);
+            return target;
+        });
+        recorded.increment();
+
+        if (buffers.size() > maxOwners) {
+            // Quá nhiều owner chưa flush (vd. bị crawl): flush sớm để giới hạn bộ nhớ
+            requestOverflowFlush();
+        }
+        return viewedAt;
+    }
+
+    private void requestOverflowFlush() {
+        if (!overflowFlushQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutor.execute(() -> {
+                overflowFlushQueued.set(false);
+                flush();
+            });
+        } catch (RejectedExecutionException e) {
+            overflowFlushQueued.set(false);
+            log.warn("Recently viewed overflow flush rejected, waiting for the scheduled flush: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Các lượt xem chưa flush của một owner: productId -> thời điểm xem.
+     */
+    public Map<Long, LocalDateTime> pending(Long userId, String guestId) {
+        Map<Long, LocalDateTime> copy = new LinkedHashMap<>();
+        buffers.computeIfPresent(Owner.of(userId, guestId), (key, views) -> {
+            copy.putAll(views.views);
+            return views;
+        });
+        return copy;
+    }
+
+    /**
+     * Bỏ lượt xem chưa flush rồi chạy {@code dbDelete} khi không có flush nào đang ghi,
+     * để lịch sử vừa xóa không bị flush ghi lại.
+     */
+    public <T> T discard(Long userId, String guestId, Long productId, Supplier<T> dbDelete) {
+        flushLock.lock();
+        try {
+            Owner owner = Owner.of(userId, guestId);
+            if (productId == null) {
+                buffers.remove(owner);
+            } else {
+                buffers.computeIfPresent(owner, (key, views) -> {
+                    views.views.remove(productId);
+                    return views.views.isEmpty() ? null : views;
+                });
+            }
+            return dbDelete.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${recently-viewed.buffer.flush-ms:5000}",
+            initialDelayString = "${recently-viewed.buffer.flush-ms:5000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<Row> rows = drain();
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                write(rows.subList(from, Math.min(from + batchSize, rows.size())));
+            }
+            lastFlushRows.set(rows.size());
+            lastFlushMs.set(System.currentTimeMillis() - start);
+            log.debug("Flushed {} recently viewed rows in {} ms", rows.size(), lastFlushMs.get());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public Map<String, Object> stats() {
+        int pendingViews = 0;
+        for (Owner owner : buffers.keySet()) {
+            pendingViews += pending(owner.userId(), owner.guestId()).size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pendingOwners", buffers.size());
+        stats.put("pendingViews", pendingViews);
+        stats.put("recorded", recorded.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("failedRows", failedRows.sum());
+        stats.put("lastFlushRows", lastFlushRows.get());
+        stats.put("lastFlushMs", lastFlushMs.get());
+        return stats;
+    }
+
+    private List<Row> drain() {
+        List<Row> rows = new ArrayList<>();
+        for (Owner owner : new ArrayList<>(buffers.keySet())) {
+            // Sau khi remove, lượt xem mới của owner sẽ vào một OwnerViews mới
+            OwnerViews views = buffers.remove(owner);
+            if (views != null) {
+                views.views.forEach((productId, viewedAt) -> rows.add(new Row(owner, productId, viewedAt)));
+            }
+        }
+        return rows;
+    }
+
+    private void write(List<Row> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(),
+                    (ps, row) -> {
+                        ps.setObject(1, row.owner().userId());
+                        ps.setString(2, row.owner().guestId());
+                        ps.setLong(3, row.productId());
+                        ps.setTimestamp(4, Timestamp.valueOf(row.viewedAt()));
+                    }));
+            flushedRows.add(rows.size());
+        } catch (Exception batchError) {
+            // Một dòng lỗi (vd. sản phẩm / user vừa bị xóa) làm hỏng cả batch: ghi lại từng dòng, bỏ dòng lỗi
+            log.warn("Recently viewed batch upsert failed, retrying row by row: {}", batchError.getMessage());
+            for (Row row : rows) {
+                try {
+                    jdbcTemplate.update(UPSERT_SQL, row.owner().userId(), row.owner().guestId(), row.productId(),
+                            Timestamp.valueOf(row.viewedAt()));
+                    flushedRows.increment();
+                } catch (Exception e) {
+                    failedRows.increment();
+                    log.debug("Dropping recently viewed row {}: {}", row, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package vn.liora.service.recent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.liora.repository.RecentlyViewedRepository;
+import vn.liora.service.metrics.PurgeJobStats;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Dọn bảng RecentlyViewed định kỳ thay vì trên mỗi lượt xem:
+ * <ul>
+ *     <li>xóa bản ghi guest cũ hơn {@code recently-viewed.retention.guest-days} và bản ghi user cũ hơn
+ *     {@code recently-viewed.retention.user-days} (tìm theo index ViewedAt);</li>
+ *     <li>mỗi user / guest chỉ giữ {@code recently-viewed.retention.max-per-owner} bản ghi mới nhất.</li>
+ * </ul>
+ * Xóa theo lô {@code recently-viewed.retention.batch-size} id, mỗi lô một transaction ngắn để không giữ
+ * khóa lâu trên bảng đang nhận upsert. Số liệu xem qua {@link #stats()}.
+ */
+@Component
+@Slf4j
+public class RecentlyViewedRetentionJob {
+
+    private final RecentlyViewedRepository recentlyViewedRepository;
+    private final boolean enabled;
+    private final int guestDays;
+    private final int userDays;
+    private final int maxPerOwner;
+    private final int batchSize;
+
+    private final PurgeJobStats purgeStats = new PurgeJobStats();
+    private final AtomicLong totalExpired = new AtomicLong();
+    private final AtomicLong totalTrimmed = new AtomicLong();
+    private volatile long lastExpired;
+    private volatile long lastTrimmed;
+
+    public RecentlyViewedRetentionJob(
+            RecentlyViewedRepository recentlyViewedRepository,
+            @Value("${recently-viewed.retention.enabled:true}") boolean enabled,
+            @Value("${recently-viewed.retention.guest-days:30}") int guestDays,
+            @Value("${recently-viewed.retention.user-days:90}") int userDays,
+            @Value("${recently-viewed.retention.max-per-owner:" + RecentlyViewedBuffer.MAX_PER_OWNER + "}") int maxPerOwner,
+            @Value("${recently-viewed.retention.batch-size:1000}") int batchSize) {
+        this.recentlyViewedRepository = recentlyViewedRepository;
+        this.enabled = enabled;
+        this.guestDays = guestDays;
+        this.userDays = userDays;
+        this.maxPerOwner = maxPerOwner;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${recently-viewed.retention.interval-ms:3600000}",
+            initialDelayString = "${recently-viewed.retention.initial-delay-ms:180000}")
+    public void purge() {
+        if (!enabled || !purgeStats.tryStart()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long expired = 0;
+        long trimmed = 0;
+        long durationMs;
+        try {
+            expired += deleteExpired(cutoff -> recentlyViewedRepository.findExpiredGuestIds(cutoff, PageRequest.of(0, batchSize)),
+                    now.minusDays(guestDays));
+            expired += deleteExpired(cutoff -> recentlyViewedRepository.findExpiredUserIds(cutoff, PageRequest.of(0, batchSize)),
+                    now.minusDays(userDays));
+            trimmed += trimOwners(page -> recentlyViewedRepository.findUserIdsOverLimit(maxPerOwner, page),
+                    recentlyViewedRepository::findIdsByUserIdNewestFirst);
+            trimmed += trimOwners(page -> recentlyViewedRepository.findGuestIdsOverLimit(maxPerOwner, page),
+                    recentlyViewedRepository::findIdsByGuestIdNewestFirst);
+        } catch (Exception e) {
+            log.warn("Recently viewed retention failed after {} expired / {} trimmed rows: {}",
+                    expired, trimmed, e.getMessage());
+        } finally {
+            lastExpired = expired;
+            lastTrimmed = trimmed;
+            totalExpired.addAndGet(expired);
+            totalTrimmed.addAndGet(trimmed);
+            durationMs = purgeStats.finish(expired + trimmed);
+        }
+
+        if (expired + trimmed > 0) {
+            log.info("Recently viewed retention: {} expired and {} over-limit rows removed in {} ms",
+                    expired, trimmed, durationMs);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("totalExpired", totalExpired.get());
+        stats.put("totalTrimmed", totalTrimmed.get());
+        stats.put("lastExpired", lastExpired);
+        stats.put("lastTrimmed", lastTrimmed);
+        return purgeStats.putInto(stats);
+    }
+
+    private long deleteExpired(Function<LocalDateTime, List<Long>> findBatch, LocalDateTime cutoff) {
+        long deleted = 0;
+        List<Long> ids;
+        do {
+            ids = findBatch.apply(cutoff);
+            if (!ids.isEmpty()) {
+                recentlyViewedRepository.deleteAllByIdInBatch(ids);
+                deleted += ids.size();
+            }
+        } while (ids.size() == batchSize);
+        return deleted;
+    }
+
+    // Luôn đọc trang đầu: owner đã được cắt không còn vượt giới hạn nên rơi khỏi kết quả lần sau
+    private <K> long trimOwners(Function<PageRequest, List<K>> findOwners, Function<K, List<Long>> idsNewestFirst) {
+        long deleted = 0;
+        List<K> owners;
+        do {
+            owners = findOwners.apply(PageRequest.of(0, batchSize));
+            for (K owner : owners) {
+                List<Long> ids = idsNewestFirst.apply(owner);
+                if (ids.size() > maxPerOwner) {
+                    List<Long> overLimit = ids.subList(maxPerOwner, ids.size());
+                    recentlyViewedRepository.deleteAllByIdInBatch(overLimit);
+                    deleted += overLimit.size();
+                }
+            }
+        } while (owners.size() == batchSize);
+        return deleted;
+    }
+}
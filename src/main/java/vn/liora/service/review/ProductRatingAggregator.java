@@ -0,0 +1,180 @@
+package vn.liora.service.review;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import vn.liora.entity.Product;
+import vn.liora.entity.ProductRatingSummary;
+import vn.liora.entity.Review;
+import vn.liora.repository.ProductRatingSummaryRepository;
+import vn.liora.repository.ProductRepository;
+import vn.liora.repository.ReviewRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Giữ {@link ProductRatingSummary} (tổng điểm, số review, số review đang hiện, histogram 1–5 sao)
+ * và {@code Product.averageRating} khớp với bảng Reviews.
+ * <p>
+ * Mỗi lần tạo / sửa / xóa / ẩn-hiện review chỉ cộng trừ phần thay đổi, trong cùng transaction
+ * với review. Dòng Product được khóa (SELECT ... FOR UPDATE) nên các thay đổi trên cùng sản phẩm
+ * chạy tuần tự. Nếu sản phẩm chưa có dòng tổng hợp thì dựng lại từ Reviews bằng một query GROUP BY.
+ */
+@Component
+@Slf4j
+public class ProductRatingAggregator {
+
+    private final ProductRatingSummaryRepository summaryRepository;
+    private final ProductRepository productRepository;
+    private final ReviewRepository reviewRepository;
+
+    public ProductRatingAggregator(ProductRatingSummaryRepository summaryRepository,
+            ProductRepository productRepository,
+            ReviewRepository reviewRepository) {
+        this.summaryRepository = summaryRepository;
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+    }
+
+    // ======================== GHI ========================
+
+    public void reviewAdded(Review review) {
+        update(review.getProductId(), summary -> summary.apply(review.getRating(), isVisible(review.getIsVisible()), 1));
+    }
+
+    public void reviewRemoved(Review review) {
+        update(review.getProductId(), summary -> summary.apply(review.getRating(), isVisible(review.getIsVisible()), -1));
+    }
+
+    public void reviewChanged(Long productId, Integer oldRating, Boolean oldVisible, Integer newRating, Boolean newVisible) {
+        if (oldRating.equals(newRating) && isVisible(oldVisible) == isVisible(newVisible)) {
+            return;
+        }
+        update(productId, summary -> {
+            summary.apply(oldRating, isVisible(oldVisible), -1);
+            summary.apply(newRating, isVisible(newVisible), 1);
+        });
+    }
+
+    private void update(Long productId, Consumer<ProductRatingSummary> delta) {
+        Product product = productRepository.findByIdForUpdate(productId).orElse(null);
+        if (product == null) {
+            log.warn("Skipping rating aggregate update for missing product {}", productId);
+            return;
+        }
+
+        ProductRatingSummary summary = summaryRepository.findById(productId).orElse(null);
+        if (summary == null) {
+            // Query GROUP BY tự flush nên đã gồm thay đổi review hiện tại, không cộng delta nữa
+            summary = buildFromReviews(productId);
+        } else {
+            delta.accept(summary);
+        }
+        summaryRepository.save(summary);
+
+        product.setAverageRating(summary.averageRatingForProduct());
+        product.setUpdatedDate(LocalDateTime.now());
+    }
+
+    // ======================== ĐỌC ========================
+
+    public ProductRatingSummary find(Long productId) {
+        return summaryRepository.findById(productId).orElseGet(() -> ProductRatingSummary.empty(productId));
+    }
+
+    // Một query IN cho cả trang danh sách; sản phẩm chưa có review nhận tổng hợp rỗng
+    public Map<Long, ProductRatingSummary> findAll(Collection<Long> productIds) {
+        Map<Long, ProductRatingSummary> result = new HashMap<>();
+        for (ProductRatingSummary summary : summaryRepository.findAllById(productIds)) {
+            result.put(summary.getProductId(), summary);
+        }
+        for (Long productId : productIds) {
+            result.computeIfAbsent(productId, ProductRatingSummary::empty);
+        }
+        return result;
+    }
+
+    // ======================== DỰNG LẠI ========================
+
+    @Transactional
+    public ProductRatingSummary rebuild(Long productId) {
+        ProductRatingSummary summary = buildFromReviews(productId);
+        summaryRepository.save(summary);
+        productRepository.findByIdForUpdate(productId).ifPresent(product -> {
+            product.setAverageRating(summary.averageRatingForProduct());
+            product.setUpdatedDate(LocalDateTime.now());
+        });
+        return summary;
+    }
+
+    @Transactional
+    public void rebuildAll() {
+        Map<Long, ProductRatingSummary> summaries = new HashMap<>();
+        for (Object[] row : reviewRepository.countGroupedByProductRatingAndVisibility()) {
+            Long productId = (Long) row[0];
+            accumulate(summaries.computeIfAbsent(productId, ProductRatingSummary::empty), row);
+        }
+        summaryRepository.deleteAllInBatch();
+        summaryRepository.saveAll(summaries.values());
+
+        List<Product> products = productRepository.findAll();
+        LocalDateTime now = LocalDateTime.now();
+        for (Product product : products) {
+            ProductRatingSummary summary = summaries.get(product.getProductId());
+            product.setAverageRating(summary != null ? summary.averageRatingForProduct() : BigDecimal.ZERO);
+            product.setUpdatedDate(now);
+        }
+        productRepository.saveAll(products);
+        log.info("Rebuilt rating aggregates for {} products", summaries.size());
+    }
+
+    // Lần đầu chạy với bảng tổng hợp rỗng: dựng từ các review đã có
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (summaryRepository.count() == 0 && reviewRepository.count() > 0) {
+            rebuildAll();
+        }
+    }
+
+    private ProductRatingSummary buildFromReviews(Long productId) {
+        ProductRatingSummary summary = ProductRatingSummary.empty(productId);
+        for (Object[] row : reviewRepository.countGroupedByRatingAndVisibility(productId)) {
+            accumulate(summary, row);
+        }
+        return summary;
+    }
+
+    // row = (productId, rating, isVisible, count)
+    private static void accumulate(ProductRatingSummary summary, Object[] row) {
+        int rating = ((Number) row[1]).intValue();
+        boolean visible = isVisible((Boolean) row[2]);
+        long count = ((Number) row[3]).longValue();
+        summary.setRatingSum(summary.getRatingSum() + rating * count);
+        summary.setReviewCount(summary.getReviewCount() + count);
+        if (visible) {
+            summary.setVisibleCount(summary.getVisibleCount() + count);
+        }
+        switch (rating) {
+            case 1 -> summary.setStar1(summary.getStar1() + count);
+            case 2 -> summary.setStar2(summary.getStar2() + count);
+            case 3 -> summary.setStar3(summary.getStar3() + count);
+            case 4 -> summary.setStar4(summary.getStar4() + count);
+            case 5 -> summary.setStar5(summary.getStar5() + count);
+            default -> {
+            }
+        }
+    }
+
+    private static boolean isVisible(Boolean visible) {
+        return Boolean.TRUE.equals(visible);
+    }
+}
@@ -0,0 +1,364 @@
+package vn.liora.service.review;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.liora.repository.ReviewRepository;
+import vn.liora.util.TextFoldingUtil;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục đảo (inverted index) trong bộ nhớ cho màn hình kiểm duyệt review của admin.
+ * <p>
+ * Khớp giống {@code LOWER(content) LIKE '%từ khóa%'} của các truy vấn SQL mà nó thay thế, nhưng trên nội dung
+ * đã bỏ dấu bằng {@link TextFoldingUtil} ("dep" khớp "đẹp"): mỗi từ của câu tìm kiếm chọn các review có một từ
+ * chứa nó, rồi cả câu tìm kiếm được so khớp chuỗi con trên nội dung đã bỏ dấu. Bộ lọc thương hiệu / danh mục
+ * dùng sản phẩm nối qua orderItem -> productItem -> product, và {@link #searchWithFilters} chỉ trả review
+ * có đủ chuỗi nối đó, như {@code ReviewRepository.findAllReviewsWithFilters}. Tổng số kết quả có sẵn trên chỉ
+ * mục mà không phải COUNT cả bảng Reviews, và DB chỉ phải nạp đúng các review của trang cần xem.
+ * <p>
+ * Chỉ mục được dựng lại toàn bộ theo {@code review.search.index.rebuild-ms} (ở nền, không chặn tìm kiếm)
+ * và cập nhật từng review sau khi transaction ghi review commit. Trong lúc chưa dựng xong, hoặc khi
+ * sắp xếp theo trường chỉ mục không có, {@link #search} trả về rỗng để service quay về truy vấn SQL.
+ */
+@Component
+@Slf4j
+public class ReviewSearchIndex {
+
+    private static final Set<String> SORTABLE = Set.of("createdAt", "reviewId", "rating");
+
+    private final ReviewRepository reviewRepository;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Snapshot current;
+    // Review thay đổi trong lúc đang dựng lại, cần nạp lại vào bản mới trước khi đổi
+    private final Set<Long> dirtyDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    public ReviewSearchIndex(ReviewRepository reviewRepository,
+            @Value("${review.search.index.enabled:true}") boolean enabled,
+            @Value("${review.search.index.batch-size:1000}") int batchSize) {
+        this.reviewRepository = reviewRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param ordered review nối được tới sản phẩm qua orderItem -> productItem -> product
+     * @param folded  nội dung đã bỏ dấu, dùng để so khớp chuỗi con
+     */
+    private record Doc(long reviewId, Long productId, boolean ordered, Long brandId, Long categoryId,
+            Integer rating, Boolean visible, long createdAt, String folded) {
+
+        Set<String> tokens() {
+            return TextFoldingUtil.tokens(folded);
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<Long, Doc> docs = new HashMap<>();
+        final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(Doc doc) {
+            remove(doc.reviewId());
+            docs.put(doc.reviewId(), doc);
+            for (String token : doc.tokens()) {
+                postings.computeIfAbsent(token, t -> new HashSet<>()).add(doc.reviewId());
+            }
+        }
+
+        void remove(long reviewId) {
+            Doc old = docs.remove(reviewId);
+            if (old == null) {
+                return;
+            }
+            for (String token : old.tokens()) {
+                Set<Long> ids = postings.get(token);
+                if (ids != null && ids.remove(reviewId) && ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    // ======================== TÌM KIẾM ========================
+
+    /**
+     * Trang id review có nội dung chứa {@code text}, như {@code findByContentContainingIgnoreCase}.
+     * Rỗng nếu chỉ mục chưa dùng được cho truy vấn này (người gọi quay về SQL).
+     */
+    public Optional<Page<Long>> search(String text, Pageable pageable) {
+        return search(text, false, null, null, null, null, null, pageable);
+    }
+
+    /**
+     * Trang id review khớp {@code text} và các bộ lọc, theo thứ tự của {@code pageable}, như
+     * {@code findAllReviewsWithFilters}: chỉ gồm review nối được tới sản phẩm qua đơn hàng.
+     * Rỗng nếu chỉ mục chưa dùng được cho truy vấn này (người gọi quay về SQL).
+     */
+    public Optional<Page<Long>> searchWithFilters(String text, Integer rating, Long brandId, Long categoryId,
+            Long productId, Boolean visible, Pageable pageable) {
+        return search(text, true, rating, brandId, categoryId, productId, visible, pageable);
+    }
+
+    private Optional<Page<Long>> search(String text, boolean orderedOnly, Integer rating, Long brandId,
+            Long categoryId, Long productId, Boolean visible, Pageable pageable) {
+        Snapshot snapshot = current;
+        Set<String> queryTokens = TextFoldingUtil.tokens(text);
+        if (!enabled || snapshot == null || queryTokens.isEmpty() || !isSortable(pageable.getSort())) {
+            return Optional.empty();
+        }
+
+        List<Doc> matched;
+        lock.readLock().lock();
+        try {
+            matched = match(snapshot, TextFoldingUtil.fold(text), queryTokens, orderedOnly,
+                    rating, brandId, categoryId, productId, visible);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matched.sort(comparator(pageable.getSort()));
+        List<Long> ids;
+        if (pageable.isUnpaged()) {
+            ids = matched.stream().map(Doc::reviewId).toList();
+        } else {
+            int from = (int) Math.min(pageable.getOffset(), matched.size());
+            int to = Math.min(from + pageable.getPageSize(), matched.size());
+            ids = matched.subList(from, to).stream().map(Doc::reviewId).toList();
+        }
+        return Optional.of(new PageImpl<>(ids, pageable, matched.size()));
+    }
+
+    private List<Doc> match(Snapshot snapshot, String phrase, Set<String> queryTokens, boolean orderedOnly,
+            Integer rating, Long brandId, Long categoryId, Long productId, Boolean visible) {
+        // Mỗi từ tìm kiếm -> tập review có một từ chứa nó (từ đầu / cuối câu tìm kiếm có thể chỉ là một phần từ)
+        List<String> tokens = List.copyOf(queryTokens);
+        List<Set<Long>> perToken = new ArrayList<>(tokens.size());
+        tokens.forEach(token -> perToken.add(new HashSet<>()));
+        for (Map.Entry<String, Set<Long>> posting : snapshot.postings.entrySet()) {
+            for (int i = 0; i < tokens.size(); i++) {
+                if (posting.getKey().contains(tokens.get(i))) {
+                    perToken.get(i).addAll(posting.getValue());
+                }
+            }
+        }
+        perToken.sort(Comparator.comparingInt(Set::size));
+        if (perToken.get(0).isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Doc> matched = new ArrayList<>();
+        outer:
+        for (Long reviewId : perToken.get(0)) {
+            for (int i = 1; i < perToken.size(); i++) {
+                if (!perToken.get(i).contains(reviewId)) {
+                    continue outer;
+                }
+            }
+            Doc doc = snapshot.docs.get(reviewId);
+            if (doc != null
+                    && doc.folded().contains(phrase)
+                    && (!orderedOnly || doc.ordered())
+                    && (rating == null || rating.equals(doc.rating()))
+                    && (visible == null || visible.equals(doc.visible()))
+                    && (productId == null || productId.equals(doc.productId()))
+                    && (brandId == null || brandId.equals(doc.brandId()))
+                    && (categoryId == null || categoryId.equals(doc.categoryId()))) {
+                matched.add(doc);
+            }
+        }
+        return matched;
+    }
+
+    private static boolean isSortable(Sort sort) {
+        return sort.stream().allMatch(order -> SORTABLE.contains(order.getProperty()));
+    }
+
+    private static Comparator<Doc> comparator(Sort sort) {
+        Comparator<Doc> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Doc> next = switch (order.getProperty()) {
+                case "createdAt" -> Comparator.comparingLong(Doc::createdAt);
+                case "rating" -> Comparator.comparing(Doc::rating, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> Comparator.comparingLong(Doc::reviewId);
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Cố định thứ tự khi trùng khóa để các trang không lặp / sót review
+        Comparator<Doc> byIdDesc = Comparator.comparingLong(Doc::reviewId).reversed();
+        return comparator == null ? byIdDesc : comparator.thenComparing(byIdDesc);
+    }
+
+    // ======================== CẬP NHẬT ========================
+
+    /**
+     * Gọi trong transaction ghi review: sau khi commit, review được nạp lại từ DB vào chỉ mục
+     * (hoặc bị bỏ khỏi chỉ mục nếu đã xóa).
+     */
+    public void reviewChanged(Long reviewId) {
+        if (!enabled || reviewId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(List.of(reviewId));
+                }
+            });
+        } else {
+            refresh(List.of(reviewId));
+        }
+    }
+
+    private void refresh(Collection<Long> reviewIds) {
+        if (current == null && !rebuilding) {
+            return;
+        }
+        try {
+            Map<Long, Doc> loaded = loadDocs(reviewIds);
+            lock.writeLock().lock();
+            try {
+                Snapshot snapshot = current;
+                if (snapshot != null) {
+                    apply(snapshot, reviewIds, loaded);
+                }
+                if (rebuilding) {
+                    dirtyDuringRebuild.addAll(reviewIds);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            // Lần dựng lại định kỳ sẽ sửa chỉ mục; không làm hỏng thao tác ghi đã commit
+            log.warn("Could not refresh review search index for {}: {}", reviewIds, e.getMessage());
+        }
+    }
+
+    private static void apply(Snapshot snapshot, Collection<Long> reviewIds, Map<Long, Doc> loaded) {
+        for (Long reviewId : reviewIds) {
+            Doc doc = loaded.get(reviewId);
+            if (doc != null) {
+                snapshot.put(doc);
+            } else {
+                snapshot.remove(reviewId);
+            }
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục vào một bản mới rồi đổi, tìm kiếm vẫn chạy trên bản cũ trong lúc dựng.
+     */
+    @Scheduled(fixedDelayString = "${review.search.index.rebuild-ms:900000}",
+            initialDelayString = "${review.search.index.initial-delay-ms:10000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        dirtyDuringRebuild.clear();
+        try {
+            Snapshot next = new Snapshot();
+            long lastId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = reviewRepository.findSearchDocuments(lastId, PageRequest.of(0, batchSize));
+                for (Object[] row : rows) {
+                    Doc doc = toDoc(row);
+                    next.put(doc);
+                    lastId = doc.reviewId();
+                }
+            } while (rows.size() == batchSize);
+
+            while (true) {
+                lock.writeLock().lock();
+                try {
+                    if (dirtyDuringRebuild.isEmpty()) {
+                        current = next;
+                        rebuilding = false;
+                        break;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                List<Long> dirty = new ArrayList<>(dirtyDuringRebuild);
+                dirtyDuringRebuild.removeAll(dirty);
+                apply(next, dirty, loadDocs(dirty));
+            }
+            log.info("Review search index rebuilt: {} reviews, {} terms in {} ms",
+                    next.docs.size(), next.postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Review search index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot snapshot = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loaded", snapshot != null);
+        stats.put("rebuilding", rebuilding);
+        lock.readLock().lock();
+        try {
+            stats.put("reviews", snapshot != null ? snapshot.docs.size() : 0);
+            stats.put("terms", snapshot != null ? snapshot.postings.size() : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private Map<Long, Doc> loadDocs(Collection<Long> reviewIds) {
+        Map<Long, Doc> docs = new HashMap<>();
+        for (Object[] row : reviewRepository.findSearchDocumentsByIds(reviewIds)) {
+            Doc doc = toDoc(row);
+            docs.put(doc.reviewId(), doc);
+        }
+        return docs;
+    }
+
+    private static Doc toDoc(Object[] row) {
+        LocalDateTime createdAt = (LocalDateTime) row[7];
+        return new Doc(
+                ((Number) row[0]).longValue(),
+                (Long) row[1],
+                row[2] != null,
+                (Long) row[3],
+                (Long) row[4],
+                row[5] != null ? ((Number) row[5]).intValue() : null,
+                (Boolean) row[6],
+                createdAt != null ? createdAt.toEpochSecond(ZoneOffset.UTC) : 0L,
+                TextFoldingUtil.fold((String) row[8]));
+    }
+}
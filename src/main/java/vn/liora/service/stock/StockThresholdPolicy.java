@@ -12,6 +12,10 @@ public class StockThresholdPolicy {
         this.lowStockThreshold = lowStockThreshold;
     }
 
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
     public StockEventType determineEvent(Integer oldStock, Integer newStock) {
         int previous = normalize(oldStock);
         int current = normalize(newStock);
@@ -0,0 +1,84 @@
+package vn.liora.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ký HMAC dùng chung cho VNPAY (HmacSHA512) và MOMO (HmacSHA256).
+ * <p>
+ * Mỗi cặp thuật toán + secret có một instance dùng lại; mỗi thread giữ sẵn một {@link Mac}
+ * đã init key nên không phải {@code Mac.getInstance} / {@code init} cho mỗi lần ký.
+ * Kết quả hex được ghi thẳng vào mảng char, và việc so chữ ký dùng so sánh thời gian hằng.
+ */
+public final class HmacSigner {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Map<String, HmacSigner> SIGNERS = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Mac> mac;
+
+    private HmacSigner(String algorithm, String secret) {
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(algorithm);
+                instance.init(new SecretKeySpec(key, algorithm));
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialise " + algorithm, e);
+            }
+        });
+    }
+
+    public static HmacSigner hmacSha512(String secret) {
+        return of("HmacSHA512", secret);
+    }
+
+    public static HmacSigner hmacSha256(String secret) {
+        return of("HmacSHA256", secret);
+    }
+
+    private static HmacSigner of(String algorithm, String secret) {
+        if (secret == null) {
+            throw new IllegalArgumentException("HMAC secret must not be null");
+        }
+        return SIGNERS.computeIfAbsent(algorithm + '\0' + secret, key -> new HmacSigner(algorithm, secret));
+    }
+
+    /**
+     * Chữ ký dạng hex chữ thường của {@code data} (UTF-8).
+     */
+    public String sign(String data) {
+        // doFinal tự reset Mac về trạng thái đã init key để dùng cho lần kế tiếp
+        byte[] bytes = mac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    public boolean verify(String data, String receivedHex) {
+        return hexEquals(sign(data), receivedHex);
+    }
+
+    /**
+     * So hai chuỗi hex không phân biệt hoa thường, thời gian không phụ thuộc vị trí khác nhau
+     * đầu tiên (tránh lộ chữ ký qua timing).
+     */
+    public static boolean hexEquals(String expectedHex, String receivedHex) {
+        if (expectedHex == null || receivedHex == null || expectedHex.length() != receivedHex.length()) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expectedHex.length(); i++) {
+            diff |= (expectedHex.charAt(i) | 0x20) ^ (receivedHex.charAt(i) | 0x20);
+        }
+        return diff == 0;
+    }
+}
@@ -3,8 +3,6 @@ package vn.liora.util;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -15,6 +13,15 @@ public class MomoUtil {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Thứ tự cố định theo tài liệu MOMO khi ký notify (IPN / return), không phải thứ tự chữ cái
+    private static final String[] SIGNED_IPN_FIELDS = { "partnerCode", "accessKey", "requestId", "amount", "orderId",
+            "orderInfo", "orderType", "transId", "message", "localMessage", "responseTime", "errorCode", "payType",
+            "extraData" };
+
+    private static final String[] QUERY_RESPONSE_FIELDS = { "amount", "extraData", "message", "orderId",
+            "orderInfo", "orderType", "partnerCode", "payType", "requestId", "responseTime", "resultCode",
+            "transId" };
+
     /**
      * Tạo signature cho MOMO API
      */
@@ -24,31 +31,19 @@ public class MomoUtil {
             String requestType, String extraData) {
         try {
             // Tạo raw data string theo format C# (partnerCode trước)
-            String rawData = String.format(
-                    "partnerCode=%s&accessKey=%s&requestId=%s&amount=%s&orderId=%s&orderInfo=%s&returnUrl=%s&notifyUrl=%s&extraData=%s",
-                    partnerCode,
-                    accessKey,
-                    requestId,
-                    String.valueOf(amount.longValue()), // Chuyển thành string không có dấu chấm thập phân
-                    orderId,
-                    orderInfo != null ? orderInfo : "",
-                    redirectUrl != null ? redirectUrl : "",
-                    ipnUrl != null ? ipnUrl : "",
-                    extraData != null ? extraData : "");
+            StringBuilder rawData = new StringBuilder(256)
+                    .append("partnerCode=").append(partnerCode)
+                    .append("&accessKey=").append(accessKey)
+                    .append("&requestId=").append(requestId)
+                    .append("&amount=").append(amount.longValue()) // Chuyển thành string không có dấu chấm thập phân
+                    .append("&orderId=").append(orderId)
+                    .append("&orderInfo=").append(orderInfo != null ? orderInfo : "")
+                    .append("&returnUrl=").append(redirectUrl != null ? redirectUrl : "")
+                    .append("&notifyUrl=").append(ipnUrl != null ? ipnUrl : "")
+                    .append("&extraData=").append(extraData != null ? extraData : "");
 
             // Tạo HMAC SHA256 signature
-            Mac hmac256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            hmac256.init(secretKeySpec);
-            byte[] bytes = hmac256.doFinal(rawData.getBytes(StandardCharsets.UTF_8));
-
-            StringBuilder hash = new StringBuilder(bytes.length * 2);
-            for (byte b : bytes) {
-                hash.append(String.format("%02x", b));
-            }
-
-            String signature = hash.toString();
-            return signature;
+            return HmacSigner.hmacSha256(secretKey).sign(rawData.toString());
 
         } catch (Exception e) {
             log.error("Error creating MOMO signature", e);
@@ -66,55 +61,55 @@ public class MomoUtil {
                 return false;
             }
 
-            // Tạo raw data từ params (chỉ lấy các fields cần thiết cho signature)
-            Map<String, Object> dataForSign = new HashMap<>();
-
-            // Chỉ lấy các fields cần thiết cho signature verification
-            String[] requiredFields = { "accessKey", "amount", "errorCode", "extraData", "message",
-                    "orderId", "orderInfo", "orderType", "partnerCode", "payType",
-                    "requestId", "responseTime", "transId" };
-
-            for (String field : requiredFields) {
-                if (params.containsKey(field)) {
-                    dataForSign.put(field, params.get(field));
-                }
-            }
+            return HmacSigner.hmacSha256(secretKey).verify(buildIpnSignData(accessKey, params), receivedSignature);
 
-            // Loại bỏ signature nếu có
-            dataForSign.remove("signature");
-
-            // Sắp xếp theo key
-            TreeMap<String, Object> sortedParams = new TreeMap<>(dataForSign);
-
-            StringBuilder rawData = new StringBuilder();
-            boolean first = true;
-            for (Map.Entry<String, Object> entry : sortedParams.entrySet()) {
-                if (!first) {
-                    rawData.append("&");
-                }
-                rawData.append(entry.getKey()).append("=")
-                        .append(entry.getValue() != null ? entry.getValue().toString() : "");
-                first = false;
-            }
+        } catch (Exception e) {
+            log.error("Error verifying MOMO signature", e);
+            return false;
+        }
+    }
 
-            // Tạo signature
-            Mac hmac256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            hmac256.init(secretKeySpec);
-            byte[] bytes = hmac256.doFinal(rawData.toString().getBytes(StandardCharsets.UTF_8));
+    /**
+     * Ký IPN theo đúng cách {@link #verifySignature} kiểm tra (dùng cho simulator)
+     */
+    public static String createIpnSignature(String accessKey, String secretKey, Map<String, ?> params) {
+        return HmacSigner.hmacSha256(secretKey).sign(buildIpnSignData(accessKey, params));
+    }
 
-            StringBuilder hash = new StringBuilder(bytes.length * 2);
-            for (byte b : bytes) {
-                hash.append(String.format("%02x", b));
+    // Mọi field đều có mặt (thiếu thì để rỗng), nối theo SIGNED_IPN_FIELDS vào một buffer.
+    // accessKey lấy từ cấu hình: MOMO ký bằng accessKey của merchant, không tin giá trị trong request
+    private static String buildIpnSignData(String accessKey, Map<String, ?> params) {
+        StringBuilder rawData = new StringBuilder(512);
+        for (String field : SIGNED_IPN_FIELDS) {
+            if (rawData.length() > 0) {
+                rawData.append('&');
             }
+            Object value = "accessKey".equals(field) ? accessKey : params.get(field);
+            rawData.append(field).append('=').append(value != null ? value.toString() : "");
+        }
+        return rawData.toString();
+    }
 
-            String expectedSignature = hash.toString();
-            return expectedSignature.equals(receivedSignature);
+    /**
+     * Chữ ký request API query trạng thái giao dịch (v2)
+     */
+    public static String createQuerySignature(String accessKey, String secretKey, String partnerCode,
+            String orderId, String requestId) {
+        String rawData = "accessKey=" + accessKey + "&orderId=" + orderId
+                + "&partnerCode=" + partnerCode + "&requestId=" + requestId;
+        return HmacSigner.hmacSha256(secretKey).sign(rawData);
+    }
 
-        } catch (Exception e) {
-            log.error("Error verifying MOMO signature", e);
-            return false;
+    /**
+     * Chữ ký response API query (v2): các field sắp theo key, accessKey lấy từ cấu hình
+     */
+    public static String createQueryResponseSignature(String accessKey, String secretKey, Map<String, ?> response) {
+        StringBuilder rawData = new StringBuilder(512).append("accessKey=").append(accessKey);
+        for (String field : QUERY_RESPONSE_FIELDS) {
+            Object value = response.get(field);
+            rawData.append('&').append(field).append('=').append(value != null ? value.toString() : "");
         }
+        return HmacSigner.hmacSha256(secretKey).sign(rawData.toString());
     }
 
     /**
@@ -0,0 +1,41 @@
+package vn.liora.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi tiếng Việt cho tìm kiếm: chữ thường, bỏ dấu (kể cả đ → d) và tách thành từ,
+ * để "đẹp", "Dep" và "ĐẸP" cùng khớp một từ.
+ */
+public final class TextFoldingUtil {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextFoldingUtil() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Các từ (đã bỏ dấu) khác nhau trong chuỗi, giữ thứ tự xuất hiện.
+     */
+    public static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : NON_WORD.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
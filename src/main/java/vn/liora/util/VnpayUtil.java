@@ -1,48 +1,79 @@
 package vn.liora.util;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class VnpayUtil {
 
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    private static final String[] QUERYDR_RESPONSE_FIELDS = { "vnp_ResponseId", "vnp_Command", "vnp_ResponseCode",
+            "vnp_Message", "vnp_TmnCode", "vnp_TxnRef", "vnp_Amount", "vnp_BankCode", "vnp_PayDate",
+            "vnp_TransactionNo", "vnp_TransactionType", "vnp_TransactionStatus", "vnp_OrderInfo",
+            "vnp_PromotionCode", "vnp_PromotionAmount" };
+
     public static String hmacSHA512(String key, String data) {
-        try {
-            Mac hmac512 = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            hmac512.init(secretKey);
-            byte[] bytes = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hash = new StringBuilder(bytes.length * 2);
-            for (byte b : bytes) {
-                hash.append(String.format("%02x", b));
-            }
-            return hash.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Error while calculating HMAC SHA512", e);
-        }
+        return HmacSigner.hmacSha512(key).sign(data);
     }
 
     public static String buildQuery(Map<String, String> params) {
+        return buildQuery(params, false);
+    }
+
+    // Dữ liệu ký của IPN: như buildQuery nhưng bỏ qua vnp_SecureHash / vnp_SecureHashType,
+    // không cần copy map chỉ để remove hai field này
+    public static String buildSignData(Map<String, String> params) {
+        return buildQuery(params, true);
+    }
+
+    private static String buildQuery(Map<String, String> params, boolean skipSecureHash) {
         // Sort by field name ascending
-        List<String> fieldNames = new ArrayList<>(params.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < fieldNames.size(); i++) {
-            String field = fieldNames.get(i);
+        String[] fieldNames = params.keySet().toArray(new String[0]);
+        if (!(params instanceof SortedMap)) {
+            Arrays.sort(fieldNames);
+        }
+        int last = fieldNames.length - 1;
+        while (skipSecureHash && last >= 0 && isSecureHashField(fieldNames[last])) {
+            last--;
+        }
+        StringBuilder sb = new StringBuilder(fieldNames.length * 32);
+        for (int i = 0; i <= last; i++) {
+            String field = fieldNames[i];
+            if (skipSecureHash && isSecureHashField(field)) {
+                continue;
+            }
             String value = params.get(field);
             if (value != null && value.length() > 0) {
-                sb.append(urlEncodeAscii(field));
+                appendUrlEncodedAscii(sb, field);
                 sb.append('=');
-                sb.append(urlEncodeAscii(value));
-                if (i < fieldNames.size() - 1)
+                appendUrlEncodedAscii(sb, value);
+                if (i < last)
                     sb.append('&');
             }
         }
         return sb.toString();
     }
 
+    // Dữ liệu ký response của API querydr: các field nối bằng '|' theo thứ tự tài liệu VNPAY
+    public static String buildQueryDrResponseSignData(Map<String, ?> response) {
+        StringBuilder sb = new StringBuilder(256);
+        for (int i = 0; i < QUERYDR_RESPONSE_FIELDS.length; i++) {
+            if (i > 0) {
+                sb.append('|');
+            }
+            Object value = response.get(QUERYDR_RESPONSE_FIELDS[i]);
+            if (value != null) {
+                sb.append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSecureHashField(String field) {
+        return "vnp_SecureHash".equals(field) || "vnp_SecureHashType".equals(field);
+    }
+
     public static String urlEncode(String input) {
         // Follow VNPAY sample: encode then only replace '+' with '%20'
         return URLEncoder.encode(input, StandardCharsets.UTF_8).replace("+", "%20");
@@ -50,6 +81,45 @@ public class VnpayUtil {
 
     // VNPAY sample (JSP) dùng US_ASCII khi ký dữ liệu
     public static String urlEncodeAscii(String input) {
-        return URLEncoder.encode(input, java.nio.charset.StandardCharsets.US_ASCII).replace("+", "%20");
+        StringBuilder sb = new StringBuilder(input.length() + 16);
+        appendUrlEncodedAscii(sb, input);
+        return sb.toString();
+    }
+
+    /**
+     * Ghi thẳng vào {@code sb} kết quả của
+     * {@code URLEncoder.encode(input, US_ASCII).replace("+", "%20")} mà không tạo chuỗi trung gian.
+     */
+    public static void appendUrlEncodedAscii(StringBuilder sb, String input) {
+        appendEncodedAscii(sb, input, "%20");
+    }
+
+    /**
+     * Như {@link #appendUrlEncodedAscii} nhưng giữ khoảng trắng thành '+',
+     * tức đúng {@code URLEncoder.encode(input, US_ASCII)} (cách VNPAY sample dựng URL thanh toán).
+     */
+    public static void appendFormEncodedAscii(StringBuilder sb, String input) {
+        appendEncodedAscii(sb, input, "+");
+    }
+
+    // Ký tự ngoài ASCII không mã hóa được nên thành '?' (%3F), giống URLEncoder
+    private static void appendEncodedAscii(StringBuilder sb, String input, String space) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                sb.append(c);
+            } else if (c == ' ') {
+                sb.append(space);
+            } else if (c < 0x80) {
+                sb.append('%').append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0x0f]);
+            } else {
+                if (Character.isHighSurrogate(c) && i + 1 < input.length()
+                        && Character.isLowSurrogate(input.charAt(i + 1))) {
+                    i++;
+                }
+                sb.append("%3F");
+            }
+        }
     }
 }
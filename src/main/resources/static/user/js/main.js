@@ -50,8 +50,8 @@ class LioraApp {
     // Backend-integrated add to cart: đảm bảo tạo cart (guest/user) và thêm sản phẩm vào DB
     async addProductToCartBackend(productId, quantity = 1, choose = false, showMessage = true) {
         try {
-            // 1) Lấy/khởi tạo cart hiện tại (sẽ tạo cart guest nếu chưa có)
-            const cartData = await this.apiCall('/cart/api/current', 'GET');
+            // 1) Lấy/khởi tạo cart hiện tại (POST tạo cart guest nếu chưa có)
+            const cartData = await this.apiCall('/cart/api/current', 'POST');
             const cartId = cartData.cartId;
             if (!cartId) {
                 console.error('Cart data:', cartData);
@@ -112,7 +112,7 @@ class LioraApp {
     async buyNowBackend(productId, quantity = 1) {
         try {
             // 1) Lấy/khởi tạo cart
-            const cartData = await this.apiCall('/cart/api/current', 'GET');
+            const cartData = await this.apiCall('/cart/api/current', 'POST');
             const cartId = cartData.cartId;
             if (!cartId) throw new Error('Missing cartId');
 
@@ -0,0 +1,32 @@
+package vn.liora.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductRatingSummaryTest {
+
+    @Test
+    void averageRatingForProductMatchesOldAvgQueryValue() {
+        ProductRatingSummary summary = ProductRatingSummary.empty(1L);
+        summary.apply(5, true, 1);
+        summary.apply(4, true, 1);
+        summary.apply(4, false, 1);
+
+        // AVG(rating) = 13 / 3, trước đây gán nguyên BigDecimal.valueOf(Double)
+        assertThat(summary.averageRatingForProduct()).isEqualTo(BigDecimal.valueOf(13.0 / 3));
+        assertThat(summary.averageRating()).isEqualTo(13.0 / 3);
+    }
+
+    @Test
+    void emptySummaryHasZeroProductRatingAndNullAverage() {
+        ProductRatingSummary summary = ProductRatingSummary.empty(1L);
+        summary.apply(3, true, 1);
+        summary.apply(3, true, -1);
+
+        assertThat(summary.averageRatingForProduct()).isEqualTo(BigDecimal.ZERO);
+        assertThat(summary.averageRating()).isNull();
+    }
+}
@@ -0,0 +1,77 @@
+package vn.liora.payment.momo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.web.client.RestTemplate;
+import vn.liora.util.MomoUtil;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MomoStatusQuerierTest {
+
+    private static final String ACCESS_KEY = "TESTACCESSKEY";
+    private static final String SECRET_KEY = "TESTSECRETKEY";
+    private static final String ENDPOINT = "http://momo/query";
+    private static final String ORDER_ID = "ORDER_1_1700000000000";
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final MomoStatusQuerier querier =
+            new MomoStatusQuerier(restTemplate, "MOMOTEST", ACCESS_KEY, SECRET_KEY, ENDPOINT);
+
+    @Test
+    void signedFinalResponseBecomesVerifiableIpn() {
+        Map<String, Object> response = response();
+        response.put("signature", MomoUtil.createQueryResponseSignature(ACCESS_KEY, SECRET_KEY, response));
+        respondWith(response);
+
+        Optional<Map<String, String>> ipn = querier.queryStatus(ORDER_ID, LocalDateTime.now());
+
+        assertThat(ipn).isPresent();
+        assertThat(ipn.get()).containsEntry("errorCode", "0").containsEntry("transId", "4100000001");
+        assertThat(MomoUtil.verifySignature(ACCESS_KEY, SECRET_KEY, new HashMap<>(ipn.get()))).isTrue();
+    }
+
+    @Test
+    void responseWithoutSignatureIsRejected() {
+        respondWith(response());
+
+        assertThat(querier.queryStatus(ORDER_ID, LocalDateTime.now())).isEmpty();
+    }
+
+    @Test
+    void responseWithWrongSignatureIsRejected() {
+        Map<String, Object> response = response();
+        response.put("signature", MomoUtil.createQueryResponseSignature(ACCESS_KEY, "OTHERSECRET", response));
+        respondWith(response);
+
+        assertThat(querier.queryStatus(ORDER_ID, LocalDateTime.now())).isEmpty();
+    }
+
+    private void respondWith(Map<String, Object> response) {
+        when(restTemplate.postForObject(eq(ENDPOINT), any(HttpEntity.class), eq(Map.class))).thenReturn(response);
+    }
+
+    private static Map<String, Object> response() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("partnerCode", "MOMOTEST");
+        response.put("orderId", ORDER_ID);
+        response.put("requestId", "REQ1");
+        response.put("extraData", "");
+        response.put("amount", 250000);
+        response.put("transId", 4100000001L);
+        response.put("payType", "qr");
+        response.put("resultCode", 0);
+        response.put("message", "Thành công.");
+        response.put("responseTime", 1700000000100L);
+        return response;
+    }
+}
@@ -0,0 +1,85 @@
+package vn.liora.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import vn.liora.entity.Brand;
+import vn.liora.entity.Category;
+import vn.liora.entity.Product;
+import vn.liora.entity.User;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * Dữ liệu dùng chung cho các test {@link ServiceJpaTest}: user, sản phẩm (kèm brand / category bắt buộc)
+ * và bộ đếm câu lệnh SQL qua Hibernate Statistics.
+ */
+public class JpaTestFixture {
+
+    public static final String BRAND_NAME = "Liora";
+    public static final String CATEGORY_NAME = "Son môi";
+
+    private final TestEntityManager entityManager;
+    private final Statistics statistics;
+    private Brand brand;
+    private Category category;
+
+    public JpaTestFixture(TestEntityManager entityManager, EntityManagerFactory entityManagerFactory) {
+        this.entityManager = entityManager;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@liora.vn");
+        user.setFirstname("Lan");
+        user.setLastname("Nguyen");
+        return entityManager.persist(user);
+    }
+
+    // Brand / category tạo một lần cho mỗi fixture, mọi sản phẩm dùng chung
+    public Product product(String name, BigDecimal price) {
+        if (brand == null) {
+            brand = new Brand();
+            brand.setName(BRAND_NAME);
+            entityManager.persist(brand);
+            category = new Category();
+            category.setName(CATEGORY_NAME);
+            entityManager.persist(category);
+        }
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription("Mô tả " + name);
+        product.setPrice(price);
+        product.setBrand(brand);
+        product.setCategory(category);
+        return entityManager.persist(product);
+    }
+
+    /** Ghi hết thay đổi xuống DB và bỏ cache persistence context, để lần đọc sau thật sự chạy SQL. */
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /** Chạy {@code action} và trả về số câu lệnh SQL (prepared statement) nó đã gửi xuống DB. */
+    public long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /** Như {@link #countStatements(Runnable)} nhưng giữ lại kết quả để kiểm tra tiếp. */
+    public <T> Counted<T> measure(Supplier<T> action) {
+        statistics.clear();
+        T result = action.get();
+        return new Counted<>(result, statistics.getPrepareStatementCount());
+    }
+
+    public record Counted<T>(T result, long statements) {
+    }
+}
@@ -0,0 +1,149 @@
+package vn.liora.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.liora.dto.RecentlyViewedDTO;
+import vn.liora.entity.Image;
+import vn.liora.entity.Product;
+import vn.liora.entity.ProductRatingSummary;
+import vn.liora.entity.RecentlyViewed;
+import vn.liora.entity.User;
+import vn.liora.service.recent.RecentlyViewedBuffer;
+import vn.liora.service.review.ProductRatingAggregator;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dải "đã xem gần đây" phải được dựng với số query cố định: dải 1–2 sản phẩm và dải đủ 20 sản phẩm
+ * chạy cùng số câu lệnh SQL.
+ */
+@ServiceJpaTest
+@Import({RecentlyViewedService.class, ProductRatingAggregator.class})
+class RecentlyViewedServiceQueryCountTest {
+
+    private static final int STRIP_SIZE = RecentlyViewedBuffer.MAX_PER_OWNER;
+
+    @Autowired
+    RecentlyViewedService recentlyViewedService;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    RecentlyViewedBuffer recentlyViewedBuffer;
+
+    private JpaTestFixture fixture;
+    private User shortStripViewer;
+    private User fullStripViewer;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        fixture = new JpaTestFixture(entityManager, entityManagerFactory);
+        shortStripViewer = fixture.user("viewer-short");
+        fullStripViewer = fixture.user("viewer-full");
+
+        for (int i = 0; i < STRIP_SIZE; i++) {
+            Product product = fixture.product("Sản phẩm " + i, BigDecimal.valueOf(100_000 + i));
+            products.add(product);
+
+            for (int j = 0; j < 2; j++) {
+                Image image = new Image();
+                image.setProduct(product);
+                image.setImageUrl("/uploads/p" + i + "_" + j + ".jpg");
+                image.setIsMain(j == 1);
+                entityManager.persist(image);
+            }
+
+            ProductRatingSummary summary = ProductRatingSummary.empty(product.getProductId());
+            summary.apply(5, true, 1);
+            summary.apply(4, false, 1);
+            entityManager.persist(summary);
+        }
+        fixture.flushAndClear();
+    }
+
+    @Test
+    void stripFromDatabaseUsesSameQueryCountForShortAndFullStrip() {
+        LocalDateTime now = LocalDateTime.now();
+        persistView(shortStripViewer, products.get(0), now);
+        for (int i = 0; i < STRIP_SIZE; i++) {
+            persistView(fullStripViewer, products.get(i), now.minusMinutes(i));
+        }
+        fixture.flushAndClear();
+
+        assertSameQueryCount(1);
+    }
+
+    @Test
+    void bufferedViewsUseSameQueryCountForShortAndFullStrip() {
+        LocalDateTime now = LocalDateTime.now();
+        // Mỗi người xem có một phần chỉ còn trong bộ đệm (chưa flush xuống DB) và một phần đã có trong DB
+        when(recentlyViewedBuffer.pending(shortStripViewer.getUserId(), null))
+                .thenReturn(Map.of(products.get(0).getProductId(), now));
+        persistView(shortStripViewer, products.get(1), now.minusMinutes(1));
+
+        Map<Long, LocalDateTime> pending = new LinkedHashMap<>();
+        for (int i = 0; i < STRIP_SIZE; i++) {
+            if (i < STRIP_SIZE / 2) {
+                pending.put(products.get(i).getProductId(), now.minusMinutes(i));
+            } else {
+                persistView(fullStripViewer, products.get(i), now.minusMinutes(i));
+            }
+        }
+        when(recentlyViewedBuffer.pending(fullStripViewer.getUserId(), null)).thenReturn(pending);
+        fixture.flushAndClear();
+
+        assertSameQueryCount(2);
+    }
+
+    private void assertSameQueryCount(int smallStripSize) {
+        JpaTestFixture.Counted<List<RecentlyViewedDTO>> small = fixture.measure(
+                () -> recentlyViewedService.getRecentlyViewed(shortStripViewer.getUserId(), null, STRIP_SIZE));
+        entityManager.clear();
+        JpaTestFixture.Counted<List<RecentlyViewedDTO>> full = fixture.measure(
+                () -> recentlyViewedService.getRecentlyViewed(fullStripViewer.getUserId(), null, STRIP_SIZE));
+
+        assertThat(full.statements()).isEqualTo(small.statements());
+        assertStrip(small.result(), smallStripSize);
+        assertStrip(full.result(), STRIP_SIZE);
+    }
+
+    private void persistView(User user, Product product, LocalDateTime viewedAt) {
+        entityManager.persist(RecentlyViewed.builder()
+                .user(entityManager.find(User.class, user.getUserId()))
+                .product(entityManager.find(Product.class, product.getProductId()))
+                .viewedAt(viewedAt)
+                .build());
+    }
+
+    // Mới xem nhất đứng đầu, ảnh chính là ảnh IsMain, số review gồm cả review bị ẩn
+    private void assertStrip(List<RecentlyViewedDTO> strip, int expectedSize) {
+        assertThat(strip).hasSize(expectedSize);
+        for (int i = 0; i < expectedSize; i++) {
+            RecentlyViewedDTO dto = strip.get(i);
+            assertThat(dto.getProductId()).isEqualTo(products.get(i).getProductId());
+            assertThat(dto.getBrandName()).isEqualTo(JpaTestFixture.BRAND_NAME);
+            assertThat(dto.getCategoryName()).isEqualTo(JpaTestFixture.CATEGORY_NAME);
+            assertThat(dto.getProductImages()).containsExactly("/uploads/p" + i + "_0.jpg", "/uploads/p" + i + "_1.jpg");
+            assertThat(dto.getMainImageUrl()).isEqualTo("/uploads/p" + i + "_1.jpg");
+            assertThat(dto.getRatingCount()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package vn.liora.service;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import vn.liora.entity.Cart;
+import vn.liora.repository.CartRepository;
+
+/**
+ * Cấu hình gốc cho các test slice (@DataJpaTest) trong vn.liora.service: chỉ nạp entity và repository,
+ * không kéo theo CommandLineRunner / storage của {@code LioraApplication}.
+ */
+@SpringBootConfiguration
+@EntityScan(basePackageClasses = Cart.class)
+@EnableJpaRepositories(basePackageClasses = CartRepository.class)
+public class ServiceTestApplication {
+}
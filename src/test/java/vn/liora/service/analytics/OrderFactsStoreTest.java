@@ -0,0 +1,99 @@
+package vn.liora.service.analytics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vn.liora.repository.OrderItemRepository;
+import vn.liora.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderFactsStoreTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2025, 3, 10, 9, 30);
+
+    private OrderRepository orderRepository;
+    private OrderItemRepository orderItemRepository;
+    private OrderFactsStore store;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        store = new OrderFactsStore(orderRepository, orderItemRepository, true);
+        when(orderItemRepository.findCompletedOrderItemFacts()).thenReturn(List.of());
+        when(orderItemRepository.findOrderItemFactsByOrderId(anyLong())).thenReturn(List.of());
+    }
+
+    @Test
+    void orderCompletedWhileInitialLoadIsRunningIsReplayedAfterLoad() {
+        when(orderRepository.findCompletedOrderFacts()).thenAnswer(invocation -> {
+            // Đơn 2 hoàn tất sau khi snapshot đã được đọc, trước khi nạp xong
+            store.recordCompleted(2L);
+            return rows(orderRow(1L, 100_000));
+        });
+        when(orderRepository.findOrderFactsById(2L)).thenReturn(rows(orderRow(2L, 50_000)));
+
+        assertThat(store.orderCount(null, null)).isEqualTo(2);
+        assertThat(store.totalRevenue(null, null)).isEqualTo(150_000);
+    }
+
+    @Test
+    void orderRevertedWhileInitialLoadIsRunningIsRemovedAfterLoad() {
+        when(orderRepository.findCompletedOrderFacts()).thenAnswer(invocation -> {
+            store.recordReverted(1L);
+            return rows(orderRow(1L, 100_000), orderRow(2L, 50_000));
+        });
+
+        assertThat(store.orderCount(null, null)).isEqualTo(1);
+        assertThat(store.totalRevenue(null, null)).isEqualTo(50_000);
+    }
+
+    @Test
+    void revertedOrdersAreCompactedWithoutChangingTotals() {
+        int total = 5_000;
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long id = 1; id <= total; id++) {
+            orders.add(orderRow(id, 1_000));
+            items.add(new Object[]{id, 1L + id % 3, 7L, BigDecimal.valueOf(1_000)});
+        }
+        when(orderRepository.findCompletedOrderFacts()).thenReturn(orders);
+        when(orderItemRepository.findCompletedOrderItemFacts()).thenReturn(items);
+        store.reload();
+
+        // Bỏ 2/5 số đơn: vượt ngưỡng một phần tư nên mảng được dồn lại ít nhất một lần
+        for (long id = 1; id <= total; id++) {
+            if (id % 5 < 2) {
+                store.recordReverted(id);
+            }
+        }
+
+        long remaining = total - total * 2 / 5;
+        assertThat(store.orderCount(null, null)).isEqualTo(remaining);
+        assertThat(store.totalRevenue(null, null)).isEqualTo(remaining * 1_000);
+        assertThat(store.revenueByBrand(null, null)).containsEntry(7L, remaining * 1_000);
+        assertThat(store.revenueByCategory(null, null).values().stream().mapToLong(Long::longValue).sum())
+                .isEqualTo(remaining * 1_000);
+
+        // Đơn đã bị dồn khỏi mảng vẫn có thể hoàn tất lại
+        when(orderRepository.findOrderFactsById(1L)).thenReturn(rows(orderRow(1L, 1_000)));
+        store.recordCompleted(1L);
+        assertThat(store.orderCount(null, null)).isEqualTo(remaining + 1);
+    }
+
+    private static Object[] orderRow(long orderId, long amount) {
+        return new Object[]{orderId, ORDER_DATE, BigDecimal.valueOf(amount), 10L};
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
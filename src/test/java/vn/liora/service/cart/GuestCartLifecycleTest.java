@@ -0,0 +1,143 @@
+package vn.liora.service.cart;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.liora.config.GuestCartInterceptor;
+import vn.liora.dto.response.CartResponse;
+import vn.liora.entity.Cart;
+import vn.liora.entity.CartItem;
+import vn.liora.entity.Product;
+import vn.liora.entity.User;
+import vn.liora.mapper.CartMapper;
+import vn.liora.repository.CartItemRepository;
+import vn.liora.repository.CartRepository;
+import vn.liora.service.JpaTestFixture;
+import vn.liora.service.ServiceJpaTest;
+import vn.liora.service.impl.CartServiceImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Giỏ guest chỉ được tạo khi cần, và chỉ giỏ guest không hoạt động quá vòng đời cookie mới bị dọn.
+ */
+@ServiceJpaTest
+@Import({CartServiceImpl.class, GuestCartPurgeJob.class})
+class GuestCartLifecycleTest {
+
+    @Autowired
+    CartServiceImpl cartService;
+
+    @Autowired
+    GuestCartPurgeJob purgeJob;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    CartItemRepository cartItemRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    CartMapper cartMapper;
+
+    private JpaTestFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new JpaTestFixture(entityManager, entityManagerFactory);
+    }
+
+    @Test
+    void viewingCartDoesNotCreateGuestCartUntilRequested() {
+        CartResponse empty = cartService.getCart("guest-view", null, false);
+
+        assertThat(empty.getIdCart()).isNull();
+        assertThat(empty.getTotalItems()).isZero();
+        assertThat(empty.getCartItems()).isEmpty();
+        assertThat(cartRepository.findByGuestId("guest-view")).isEmpty();
+
+        cartService.getCart("guest-view", null, true);
+
+        assertThat(cartRepository.findByGuestId("guest-view")).isPresent();
+        assertThat(cartRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void purgeRemovesOnlyGuestCartsIdleLongerThanCookieLifetime() {
+        LocalDateTime now = LocalDateTime.now();
+        Product product = fixture.product("Son lì", BigDecimal.valueOf(199_000));
+        User user = fixture.user("buyer");
+
+        Cart expired = guestCart("guest-expired", now.minusSeconds(GuestCartInterceptor.MAX_AGE + 3600));
+        entityManager.persist(item(expired, product));
+        entityManager.persist(item(expired, product));
+        Cart recent = guestCart("guest-recent", now.minusSeconds(GuestCartInterceptor.MAX_AGE - 3600));
+        entityManager.persist(item(recent, product));
+        Cart legacy = guestCart("guest-legacy", now);
+        Cart userCart = entityManager.persist(Cart.builder().user(user).lastActivityAt(now.minusDays(90)).build());
+        entityManager.flush();
+        // Giỏ tạo trước khi có cột LastActivityAt
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Cart c SET c.lastActivityAt = NULL WHERE c.idCart = :id")
+                .setParameter("id", legacy.getIdCart())
+                .executeUpdate();
+        entityManager.clear();
+
+        purgeJob.purge();
+
+        assertThat(purgeJob.stats())
+                .containsEntry("lastCarts", 1L)
+                .containsEntry("lastItems", 2L)
+                .containsEntry("lastBackfilled", 1L);
+        assertThat(cartRepository.findByGuestId("guest-expired")).isEmpty();
+        assertThat(cartRepository.findByGuestId("guest-recent")).isPresent();
+        assertThat(cartRepository.findByGuestId("guest-legacy")).get()
+                .extracting(Cart::getLastActivityAt).isNotNull();
+        assertThat(cartRepository.findById(userCart.getIdCart())).isPresent();
+        assertThat(cartItemRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void idleCutoffIsNeverShorterThanCookieLifetime() {
+        GuestCartPurgeJob eager = new GuestCartPurgeJob(cartRepository, cartItemRepository, transactionTemplate,
+                true, 60, 500);
+        Cart sixDaysIdle = guestCart("guest-six-days", LocalDateTime.now().minusDays(6));
+        fixture.flushAndClear();
+
+        eager.purge();
+
+        assertThat(eager.stats()).containsEntry("idleSeconds", (long) GuestCartInterceptor.MAX_AGE);
+        assertThat(cartRepository.findById(sixDaysIdle.getIdCart())).isPresent();
+    }
+
+    private Cart guestCart(String guestId, LocalDateTime lastActivityAt) {
+        return entityManager.persist(Cart.builder().guestId(guestId).lastActivityAt(lastActivityAt).build());
+    }
+
+    private static CartItem item(Cart cart, Product product) {
+        return CartItem.builder()
+                .cart(cart)
+                .product(product)
+                .quantity(1)
+                .totalPrice(product.getPrice())
+                .choose(false)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package vn.liora.service.discount;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vn.liora.entity.Discount;
+import vn.liora.enums.DiscountType;
+import vn.liora.repository.DiscountRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DiscountCatalogTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private DiscountRepository discountRepository;
+    private DiscountCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        discountRepository = mock(DiscountRepository.class);
+        when(discountRepository.findByIsActiveTrue()).thenReturn(List.of(
+                discount(1L, "FLASH", 2, 1),
+                discount(2L, "WELCOME", null, 40)));
+        catalog = new DiscountCatalog(discountRepository, true);
+    }
+
+    @Test
+    void usageChangesUpdateOnlyTheAffectedEntryWithoutReloading() {
+        assertThat(catalog.findAvailableAt(now)).extracting(Discount::getName)
+                .containsExactlyInAnyOrder("FLASH", "WELCOME");
+
+        catalog.usageChanged(1L, 1);
+        assertThat(catalog.findAvailableAt(now)).extracting(Discount::getName).containsExactly("WELCOME");
+        assertThat(catalog.findAvailableByCode("flash", now)).isEmpty();
+
+        catalog.usageChanged(1L, -1);
+        assertThat(catalog.findAvailableByCode("flash", now)).get()
+                .extracting(Discount::getUsedCount).isEqualTo(1);
+
+        verify(discountRepository, times(1)).findByIsActiveTrue();
+    }
+
+    @Test
+    void callersReceiveTheirOwnCopiesWithoutLazyRelations() {
+        Discount first = catalog.findAvailableByCode("WELCOME", now).orElseThrow();
+        Discount second = catalog.findAvailableByCode("WELCOME", now).orElseThrow();
+
+        assertThat(first).isNotSameAs(second).isEqualTo(second);
+        assertThat(first.getOrders()).isNull();
+        assertThat(first.toString()).contains("WELCOME");
+
+        first.setUsedCount(999);
+        assertThat(catalog.findAvailableByCode("WELCOME", now).orElseThrow().getUsedCount()).isEqualTo(40);
+    }
+
+    private Discount discount(Long id, String name, Integer usageLimit, int usedCount) {
+        Discount discount = new Discount();
+        discount.setDiscountId(id);
+        discount.setName(name);
+        discount.setDiscountValue(BigDecimal.TEN);
+        discount.setDiscountType(DiscountType.PERCENTAGE);
+        discount.setStartDate(now.minusDays(1));
+        discount.setEndDate(now.plusDays(1));
+        discount.setUsageLimit(usageLimit);
+        discount.setUsedCount(usedCount);
+        discount.setIsActive(true);
+        discount.setCreatedAt(now.minusDays(2));
+        return discount;
+    }
+}
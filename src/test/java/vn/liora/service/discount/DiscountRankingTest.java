@@ -0,0 +1,184 @@
+package vn.liora.service.discount;
+
+import org.junit.jupiter.api.Test;
+import vn.liora.entity.Discount;
+import vn.liora.enums.DiscountType;
+import vn.liora.repository.DiscountRepository;
+import vn.liora.repository.OrderRepository;
+import vn.liora.service.discount.calculator.DiscountCalculatorFactory;
+import vn.liora.service.discount.calculator.FixedAmountDiscountCalculator;
+import vn.liora.service.discount.calculator.FreeShippingDiscountCalculator;
+import vn.liora.service.discount.calculator.PercentageDiscountCalculator;
+import vn.liora.service.discount.eligibility.ActivePeriodRule;
+import vn.liora.service.discount.eligibility.DiscountEligibilityChecker;
+import vn.liora.service.discount.eligibility.GlobalUsageLimitRule;
+import vn.liora.service.discount.eligibility.MinOrderValueRule;
+import vn.liora.service.discount.eligibility.UserUsageLimitRule;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Xếp hạng theo lô (catalog + eligibility batch) phải cho cùng kết quả với việc áp dụng từng mã một.
+ */
+class DiscountRankingTest {
+
+    private static final Long USER_ID = 7L;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private final DiscountRepository discountRepository = mock(DiscountRepository.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final Map<Long, Long> userUsage = new HashMap<>();
+    private final DiscountApplicationService service = new DiscountApplicationService(
+            discountRepository,
+            new DiscountEligibilityChecker(List.of(new ActivePeriodRule(), new MinOrderValueRule(),
+                    new GlobalUsageLimitRule(), new UserUsageLimitRule(orderRepository))),
+            new DiscountCalculatorFactory(List.of(new PercentageDiscountCalculator(),
+                    new FixedAmountDiscountCalculator(), new FreeShippingDiscountCalculator())),
+            mock(DiscountUsageService.class),
+            new DiscountCatalog(discountRepository, true));
+
+    @Test
+    void ranksByFinalSavingAndSkipsIneligibleCodes() {
+        Discount soldOut = discount(6L, DiscountType.FIXED_AMOUNT, "150000", null, null, 10, null);
+        soldOut.setUsedCount(10);
+        givenDiscounts(List.of(
+                discount(1L, DiscountType.PERCENTAGE, "10", null, "50000", null, null),
+                discount(2L, DiscountType.FIXED_AMOUNT, "80000", null, null, null, null),
+                discount(3L, DiscountType.FREE_SHIPPING, "0", null, null, null, null),
+                discount(4L, DiscountType.PERCENTAGE, "50", "2000000", null, null, null),
+                discount(5L, DiscountType.FIXED_AMOUNT, "200000", null, null, null, 1),
+                soldOut));
+        // User đã dùng hết lượt của mã 5
+        userUsage.put(5L, 1L);
+
+        List<DiscountApplicationResult> ranked = service.rankForContext(context("1000000", "30000"));
+
+        assertThat(ranked).extracting(result -> result.getDiscount().getDiscountId())
+                .containsExactly(2L, 1L, 3L);
+        assertThat(ranked).extracting(DiscountApplicationResult::getFinalDiscountAmount)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("80000"), new BigDecimal("50000"), new BigDecimal("30000"));
+    }
+
+    @Test
+    void batchRankingMatchesApplyingEachDiscountOnItsOwn() {
+        Random random = new Random(20250601L);
+        List<Discount> generated = new ArrayList<>();
+        for (long id = 1; id <= 400; id++) {
+            DiscountType type = DiscountType.values()[random.nextInt(DiscountType.values().length)];
+            String value = switch (type) {
+                case PERCENTAGE -> String.valueOf(1 + random.nextInt(60));
+                case FIXED_AMOUNT -> String.valueOf(1000 * (1 + random.nextInt(300)));
+                default -> "0";
+            };
+            String minOrder = random.nextBoolean() ? String.valueOf(10000 * random.nextInt(100)) : null;
+            String maxDiscount = type == DiscountType.PERCENTAGE && random.nextBoolean()
+                    ? String.valueOf(1000 * (1 + random.nextInt(200))) : null;
+            Integer usageLimit = random.nextInt(4) == 0 ? 1 + random.nextInt(5) : null;
+            Integer userLimit = random.nextInt(4) == 0 ? 1 + random.nextInt(2) : null;
+            Discount discount = discount(id, type, value, minOrder, maxDiscount, usageLimit, userLimit);
+            if (usageLimit != null) {
+                discount.setUsedCount(random.nextInt(usageLimit + 1));
+            }
+            // Một phần mã hết hạn hoặc chưa bắt đầu
+            int window = random.nextInt(10);
+            if (window == 0) {
+                discount.setEndDate(NOW.minusHours(1));
+            } else if (window == 1) {
+                discount.setStartDate(NOW.plusHours(1));
+                discount.setEndDate(NOW.plusDays(2));
+            }
+            if (userLimit != null) {
+                userUsage.put(id, (long) random.nextInt(3));
+            }
+            generated.add(discount);
+        }
+        givenDiscounts(generated);
+
+        for (int cart = 0; cart < 50; cart++) {
+            DiscountContext context = context(String.valueOf(5000 * random.nextInt(200)),
+                    String.valueOf(1000 * random.nextInt(60)));
+
+            List<DiscountApplicationResult> expected = new ArrayList<>();
+            for (Discount discount : generated) {
+                DiscountApplicationResult result = service.apply(discount, context);
+                if (result.isApplied() && result.getFinalDiscountAmount().signum() > 0) {
+                    expected.add(result);
+                }
+            }
+            expected.sort(Comparator.comparing(DiscountApplicationResult::getFinalDiscountAmount).reversed());
+
+            List<DiscountApplicationResult> ranked = service.rankForContext(context);
+
+            assertThat(ranked).extracting(DiscountApplicationResult::getFinalDiscountAmount)
+                    .usingElementComparator(BigDecimal::compareTo)
+                    .containsExactlyElementsOf(expected.stream()
+                            .map(DiscountApplicationResult::getFinalDiscountAmount).toList());
+            assertThat(ranked).extracting(result -> result.getDiscount().getDiscountId())
+                    .containsExactlyInAnyOrderElementsOf(expected.stream()
+                            .map(result -> result.getDiscount().getDiscountId()).toList());
+        }
+    }
+
+    // ======================== DỮ LIỆU ========================
+
+    @SuppressWarnings("unchecked")
+    private void givenDiscounts(List<Discount> list) {
+        when(discountRepository.findByIsActiveTrue()).thenReturn(list);
+        when(orderRepository.countOrdersByUserAndDiscount(eq(USER_ID), anyLong()))
+                .thenAnswer(invocation -> userUsage.getOrDefault(invocation.<Long>getArgument(1), 0L));
+        when(orderRepository.countOrdersByUserGroupedByDiscount(eq(USER_ID), any())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : (Collection<Long>) invocation.getArgument(1)) {
+                Long count = userUsage.get(id);
+                if (count != null && count > 0) {
+                    rows.add(new Object[]{id, count});
+                }
+            }
+            return rows;
+        });
+    }
+
+    private static DiscountContext context(String subtotal, String shippingFee) {
+        return DiscountContext.builder()
+                .userId(USER_ID)
+                .orderSubtotal(new BigDecimal(subtotal))
+                .shippingFee(new BigDecimal(shippingFee))
+                .appliedAt(NOW)
+                .build();
+    }
+
+    private static Discount discount(Long id, DiscountType type, String value, String minOrder,
+            String maxDiscount, Integer usageLimit, Integer userUsageLimit) {
+        Discount discount = new Discount();
+        discount.setDiscountId(id);
+        discount.setName("CODE" + id);
+        discount.setDiscountType(type);
+        discount.setDiscountValue(new BigDecimal(value));
+        discount.setMinOrderValue(minOrder != null ? new BigDecimal(minOrder) : null);
+        discount.setMaxDiscountAmount(maxDiscount != null ? new BigDecimal(maxDiscount) : null);
+        discount.setUsageLimit(usageLimit);
+        discount.setUserUsageLimit(userUsageLimit);
+        discount.setUsedCount(0);
+        discount.setStartDate(NOW.minusDays(1));
+        discount.setEndDate(NOW.plusDays(1));
+        discount.setIsActive(true);
+        discount.setCreatedAt(NOW.minusDays(2));
+        return discount;
+    }
+}
@@ -0,0 +1,118 @@
+package vn.liora.service.discount;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.liora.entity.Discount;
+import vn.liora.enums.DiscountType;
+import vn.liora.repository.DiscountRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DiscountUsageService.class)
+// Mỗi lượt giành chạy trong transaction riêng của nó như khi checkout thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DiscountUsageServiceConcurrencyTest {
+
+    private static final int CLAIMS = 400;
+    private static final int THREADS = 32;
+
+    @Autowired
+    DiscountUsageService discountUsageService;
+
+    @Autowired
+    DiscountRepository discountRepository;
+
+    @MockitoBean
+    DiscountCatalog discountCatalog;
+
+    @AfterEach
+    void cleanUp() {
+        discountRepository.deleteAll();
+    }
+
+    @Test
+    void parallelClaimsNeverExceedUsageLimit() throws Exception {
+        int limit = 150;
+        Long discountId = discountRepository.save(discount("FLASH150", limit)).getDiscountId();
+
+        int succeeded = claimInParallel(discountId);
+
+        assertThat(succeeded).isEqualTo(limit);
+        assertThat(discountRepository.findById(discountId).orElseThrow().getUsedCount()).isEqualTo(limit);
+    }
+
+    @Test
+    void releasedUsagesCanBeClaimedAgain() throws Exception {
+        int limit = 100;
+        Long discountId = discountRepository.save(discount("FLASH100", limit)).getDiscountId();
+        assertThat(claimInParallel(discountId)).isEqualTo(limit);
+
+        for (int i = 0; i < 10; i++) {
+            discountUsageService.rollbackUsage(discountId);
+        }
+
+        assertThat(claimInParallel(discountId)).isEqualTo(10);
+        assertThat(discountRepository.findById(discountId).orElseThrow().getUsedCount()).isEqualTo(limit);
+    }
+
+    private int claimInParallel(Long discountId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < CLAIMS; i++) {
+                Callable<Boolean> claim = () -> {
+                    start.await();
+                    return discountUsageService.tryClaimUsage(discountId);
+                };
+                results.add(executor.submit(claim));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Discount discount(String name, int usageLimit) {
+        Discount discount = new Discount();
+        discount.setName(name);
+        discount.setDiscountValue(BigDecimal.TEN);
+        discount.setDiscountType(DiscountType.PERCENTAGE);
+        discount.setStartDate(LocalDateTime.now().minusDays(1));
+        discount.setEndDate(LocalDateTime.now().plusDays(1));
+        discount.setUsageLimit(usageLimit);
+        discount.setIsActive(true);
+        discount.setCreatedAt(LocalDateTime.now());
+        return discount;
+    }
+}
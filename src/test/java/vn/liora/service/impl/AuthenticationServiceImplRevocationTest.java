@@ -0,0 +1,135 @@
+package vn.liora.service.impl;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import vn.liora.dto.request.LogoutRequest;
+import vn.liora.dto.request.RefreshRequest;
+import vn.liora.entity.InvalidatedToken;
+import vn.liora.entity.User;
+import vn.liora.exception.AppException;
+import vn.liora.repository.InvalidatedTokenRepository;
+import vn.liora.repository.UserRepository;
+import vn.liora.service.IAuthorizationService;
+import vn.liora.service.auth.InvalidatedTokenPurgeJob;
+import vn.liora.service.auth.TokenRevocationRegistry;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Token đã logout / đã dùng để refresh không được refresh lại, kể cả sau khi job dọn InvalidatedToken
+ * và registry đã chạy: dòng thu hồi phải sống đến hết hạn refresh, không chỉ đến exp của access token.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AuthenticationServiceImplRevocationTest {
+
+    private static final String SIGNER_KEY = "k".repeat(64);
+    private static final long VALID_DURATION = 3600;
+    private static final long REFRESHABLE_DURATION = 36000;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    InvalidatedTokenRepository invalidatedTokenRepository;
+
+    private TokenRevocationRegistry registry;
+    private InvalidatedTokenPurgeJob purgeJob;
+    private AuthenticationServiceImpl authenticationService;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("buyer");
+        user.setPassword("secret");
+        user.setEmail("buyer@liora.vn");
+        user.setFirstname("Lan");
+        user.setLastname("Nguyen");
+        userRepository.save(user);
+
+        registry = new TokenRevocationRegistry(invalidatedTokenRepository);
+        purgeJob = new InvalidatedTokenPurgeJob(invalidatedTokenRepository, registry, true, 1000,
+                REFRESHABLE_DURATION, VALID_DURATION);
+        authenticationService = new AuthenticationServiceImpl(userRepository, invalidatedTokenRepository,
+                mock(IAuthorizationService.class), registry);
+        authenticationService.SIGNER_KEY = SIGNER_KEY;
+        authenticationService.VALID_DURATION = VALID_DURATION;
+        authenticationService.REFRESHABLE_DURATION = REFRESHABLE_DURATION;
+    }
+
+    @Test
+    void loggedOutTokenStaysRevokedAfterPurgeUntilRefreshDeadline() throws Exception {
+        // Access token đã hết hạn 1 giờ trước nhưng còn 8 giờ nữa mới hết hạn refresh
+        String token = token(Instant.now().minus(2, ChronoUnit.HOURS));
+        authenticationService.logout(new LogoutRequest(token));
+
+        purgeJob.purge();
+        registry.sync();
+
+        assertThat(invalidatedTokenRepository.count()).isEqualTo(1);
+        assertThatThrownBy(() -> authenticationService.refreshToken(new RefreshRequest(token)))
+                .isInstanceOf(AppException.class);
+    }
+
+    @Test
+    void rotatedTokenCannotBeRefreshedAgainAfterPurge() throws Exception {
+        String token = token(Instant.now().minus(2, ChronoUnit.HOURS));
+        assertThat(authenticationService.refreshToken(new RefreshRequest(token)).getToken()).isNotBlank();
+
+        purgeJob.purge();
+        registry.sync();
+
+        assertThatThrownBy(() -> authenticationService.refreshToken(new RefreshRequest(token)))
+                .isInstanceOf(AppException.class);
+    }
+
+    @Test
+    void purgeKeepsLegacyRowsThroughRefreshWindowAndDropsOlderOnes() {
+        Instant now = Instant.now();
+        // Dòng cũ chỉ lưu exp của access token (iat + 1h)
+        InvalidatedToken stillRefreshable = invalidated(now.minus(1, ChronoUnit.HOURS));
+        InvalidatedToken pastRefreshWindow = invalidated(now.minus(REFRESHABLE_DURATION, ChronoUnit.SECONDS));
+
+        purgeJob.purge();
+
+        assertThat(invalidatedTokenRepository.existsById(stillRefreshable.getId())).isTrue();
+        assertThat(invalidatedTokenRepository.existsById(pastRefreshWindow.getId())).isFalse();
+    }
+
+    private InvalidatedToken invalidated(Instant expiryTime) {
+        return invalidatedTokenRepository.save(InvalidatedToken.builder()
+                .id(UUID.randomUUID().toString())
+                .expiryTime(Date.from(expiryTime))
+                .build());
+    }
+
+    private static String token(Instant issuedAt) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("buyer")
+                .issuer("liora.com")
+                .issueTime(Date.from(issuedAt))
+                .expirationTime(Date.from(issuedAt.plusSeconds(VALID_DURATION)))
+                .jwtID(UUID.randomUUID().toString())
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,128 @@
+package vn.liora.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.liora.entity.Cart;
+import vn.liora.entity.CartItem;
+import vn.liora.entity.Product;
+import vn.liora.entity.User;
+import vn.liora.mapper.CartMapper;
+import vn.liora.repository.CartItemRepository;
+import vn.liora.repository.CartRepository;
+import vn.liora.service.JpaTestFixture;
+import vn.liora.service.ServiceJpaTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Gộp giỏ guest vào giỏ user: số lượng cộng dồn đúng, và gộp 100 item chạy cùng số câu lệnh SQL với gộp 2 item.
+ */
+@ServiceJpaTest
+@Import(CartServiceImpl.class)
+class CartServiceImplMergeTest {
+
+    private static final int GUEST_ITEMS = 100;
+
+    @Autowired
+    CartServiceImpl cartService;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    CartItemRepository cartItemRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    // Chỉ đo phần gộp, không đo việc dựng CartResponse
+    @MockitoBean
+    CartMapper cartMapper;
+
+    private JpaTestFixture fixture;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        fixture = new JpaTestFixture(entityManager, entityManagerFactory);
+        for (int i = 0; i < GUEST_ITEMS; i++) {
+            products.add(fixture.product("Sản phẩm " + i, BigDecimal.valueOf(1_000L * (i + 1))));
+        }
+    }
+
+    @Test
+    void mergeStatementCountDoesNotGrowWithGuestItems() {
+        Carts small = carts("small", 2);
+        Carts large = carts("large", GUEST_ITEMS);
+        fixture.flushAndClear();
+
+        long smallStatements = fixture.countStatements(() -> cartService.getCart("guest-small", small.userId(), false));
+        entityManager.clear();
+        long largeStatements = fixture.countStatements(() -> cartService.getCart("guest-large", large.userId(), false));
+
+        // UPDATE item đi theo batch JDBC và DELETE theo danh sách id, nên không có câu lệnh nào theo từng item
+        assertThat(largeStatements).isEqualTo(smallStatements);
+
+        entityManager.clear();
+        assertMerged(small, 2);
+        assertMerged(large, GUEST_ITEMS);
+    }
+
+    // Nửa đầu số sản phẩm đã có trong giỏ user (1 cái), guest thêm 2 cái mỗi sản phẩm
+    private Carts carts(String name, int guestItems) {
+        User user = fixture.user("buyer-" + name);
+        Cart userCart = entityManager.persist(Cart.builder().user(user).build());
+        Cart guestCart = entityManager.persist(Cart.builder().guestId("guest-" + name).build());
+        for (int i = 0; i < guestItems; i++) {
+            if (i < guestItems / 2) {
+                entityManager.persist(item(userCart, products.get(i), 1));
+            }
+            entityManager.persist(item(guestCart, products.get(i), 2));
+        }
+        return new Carts(user.getUserId(), userCart.getIdCart(), guestCart.getIdCart(), "guest-" + name);
+    }
+
+    private void assertMerged(Carts carts, int guestItems) {
+        assertThat(cartRepository.findByGuestId(carts.guestId())).isEmpty();
+        Map<Long, CartItem> merged = cartItemRepository.findByCartIdsWithProduct(
+                List.of(carts.userCartId(), carts.guestCartId())).stream()
+                .peek(item -> assertThat(item.getCart().getIdCart()).isEqualTo(carts.userCartId()))
+                .collect(Collectors.toMap(item -> item.getProduct().getProductId(), item -> item));
+        assertThat(merged).hasSize(guestItems);
+        for (int i = 0; i < guestItems; i++) {
+            Product product = products.get(i);
+            int expectedQty = i < guestItems / 2 ? 3 : 2;
+            CartItem item = merged.get(product.getProductId());
+            assertThat(item.getQuantity()).as("quantity of product %d", i).isEqualTo(expectedQty);
+            assertThat(item.getTotalPrice())
+                    .isEqualByComparingTo(product.getPrice().multiply(BigDecimal.valueOf(expectedQty)));
+        }
+    }
+
+    private static CartItem item(Cart cart, Product product, int quantity) {
+        return CartItem.builder()
+                .cart(cart)
+                .product(product)
+                .quantity(quantity)
+                .totalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)))
+                .choose(false)
+                .build();
+    }
+
+    private record Carts(Long userId, Long userCartId, Long guestCartId, String guestId) {
+    }
+}
@@ -0,0 +1,91 @@
+package vn.liora.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import vn.liora.entity.Discount;
+import vn.liora.entity.Order;
+import vn.liora.exception.AppException;
+import vn.liora.exception.ErrorCode;
+import vn.liora.repository.OrderItemRepository;
+import vn.liora.repository.OrderRepository;
+import vn.liora.service.discount.DiscountApplicationResult;
+import vn.liora.service.discount.DiscountApplicationService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Áp mã vào đơn có sẵn: phải giành lượt dùng trước rồi mới ghi giảm giá vào đơn.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderServiceImplApplyDiscountTest {
+
+    private static final Long ORDER_ID = 1L;
+    private static final Long DISCOUNT_ID = 7L;
+
+    @Mock
+    OrderRepository orderRepository;
+    @Mock
+    OrderItemRepository orderItemRepository;
+    @Mock
+    DiscountApplicationService discountApplicationService;
+
+    @InjectMocks
+    OrderServiceImpl orderService;
+
+    @Test
+    void exhaustedDiscountLeavesOrderUntouched() {
+        Order order = stubOrderAndDiscount();
+        doThrow(new AppException(ErrorCode.DISCOUNT_USAGE_LIMIT_REACHED))
+                .when(discountApplicationService).confirmUsage(DISCOUNT_ID);
+
+        assertThatThrownBy(() -> orderService.applyDiscountToOrder(ORDER_ID, DISCOUNT_ID))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.DISCOUNT_USAGE_LIMIT_REACHED);
+
+        verify(orderRepository, never()).save(any());
+        assertThat(order.getDiscount()).isNull();
+        assertThat(order.getTotalDiscount()).isNull();
+    }
+
+    @Test
+    void claimsUsageBeforeSavingDiscountedOrder() {
+        Order order = stubOrderAndDiscount();
+
+        orderService.applyDiscountToOrder(ORDER_ID, DISCOUNT_ID);
+
+        InOrder inOrder = inOrder(discountApplicationService, orderRepository);
+        inOrder.verify(discountApplicationService).confirmUsage(DISCOUNT_ID);
+        inOrder.verify(orderRepository).save(order);
+        assertThat(order.getTotalDiscount()).isEqualByComparingTo("10000");
+    }
+
+    private Order stubOrderAndDiscount() {
+        Order order = new Order();
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order));
+        when(orderItemRepository.findByOrder(order)).thenReturn(List.of());
+        when(discountApplicationService.apply(eq(DISCOUNT_ID), any()))
+                .thenReturn(DiscountApplicationResult.builder()
+                        .applied(true)
+                        .discount(new Discount())
+                        .finalDiscountAmount(BigDecimal.valueOf(10000))
+                        .build());
+        return order;
+    }
+}
@@ -0,0 +1,171 @@
+package vn.liora.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+import vn.liora.entity.MomoPayment;
+import vn.liora.entity.Order;
+import vn.liora.exception.AppException;
+import vn.liora.payment.dedup.PaymentIpnDeduplicator;
+import vn.liora.payment.event.PaymentStatusChangedEvent;
+import vn.liora.payment.momo.MomoGatewayFactory;
+import vn.liora.payment.registry.PaymentGatewayFactoryRegistry;
+import vn.liora.repository.MomoPaymentRepository;
+import vn.liora.repository.OrderRepository;
+import vn.liora.service.order.event.OrderStatusChangedEvent;
+import vn.liora.util.MomoUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cùng một IPN MOMO gửi đồng thời từ nhiều thread chỉ được đổi trạng thái đơn và phát sự kiện một lần.
+ */
+class PaymentServiceImplIpnConcurrencyTest {
+
+    private static final String ACCESS_KEY = "TESTACCESSKEY";
+    private static final String SECRET_KEY = "TESTSECRETKEY";
+    private static final String MOMO_ORDER_ID = "ORDER_1_1700000000000";
+    private static final int THREADS = 64;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final MomoPaymentRepository momoPaymentRepository = mock(MomoPaymentRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private Order order;
+    private PaymentServiceImpl paymentService;
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setIdOrder(1L);
+        order.setTotal(new BigDecimal("250000"));
+        order.setOrderStatus("PENDING");
+        order.setPaymentStatus("PENDING");
+
+        MomoPayment momoPayment = new MomoPayment();
+        momoPayment.setIdOrder(1L);
+        momoPayment.setOrderId(MOMO_ORDER_ID);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(momoPaymentRepository.findByOrderId(MOMO_ORDER_ID)).thenReturn(Optional.of(momoPayment));
+        when(momoPaymentRepository.save(any(MomoPayment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        MomoGatewayFactory momoGateway = new MomoGatewayFactory(momoPaymentRepository, orderRepository,
+                mock(RestTemplate.class), "MOMOTEST", ACCESS_KEY, SECRET_KEY, "http://momo/create",
+                "http://shop/return", "http://shop/ipn", "captureMoMoWallet", "http://momo/query");
+        paymentService = new PaymentServiceImpl(orderRepository, momoPaymentRepository,
+                new PaymentGatewayFactoryRegistry(List.of(momoGateway)), eventPublisher,
+                new PaymentIpnDeduplicator(60_000, 1_000), transactionTemplate);
+    }
+
+    @Test
+    void sameIpnFromManyThreadsChangesStateOnce() throws Exception {
+        Map<String, Object> ipn = signedIpn("0", "4100000001", "1700000000100");
+
+        sendConcurrently(List.of(ipn));
+
+        assertThat(order.getPaymentStatus()).isEqualTo("PAID");
+        verify(momoPaymentRepository, times(1)).save(any(MomoPayment.class));
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentStatusChangedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(OrderStatusChangedEvent.class));
+    }
+
+    @Test
+    void retriesWithDifferentSignaturesAreSerialisedAndIgnoredOncePaid() throws Exception {
+        // MOMO gửi lại với responseTime khác nhau: chữ ký khác nên không trúng cache, nhưng vẫn chỉ một lần PAID
+        List<Map<String, Object>> retries = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            retries.add(signedIpn("0", "4100000001", String.valueOf(1700000000100L + i)));
+        }
+
+        sendConcurrently(retries);
+
+        assertThat(order.getPaymentStatus()).isEqualTo("PAID");
+        verify(momoPaymentRepository, times(1)).save(any(MomoPayment.class));
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentStatusChangedEvent.class));
+    }
+
+    @Test
+    void unsignedOrTamperedIpnIsRejected() {
+        Map<String, Object> tampered = signedIpn("0", "4100000001", "1700000000100");
+        tampered.put("amount", "1");
+        Map<String, Object> unsigned = signedIpn("0", "4100000001", "1700000000100");
+        unsigned.remove("signature");
+
+        assertThatThrownBy(() -> paymentService.handleMomoIpn(tampered)).isInstanceOf(AppException.class);
+        assertThatThrownBy(() -> paymentService.handleMomoIpn(unsigned)).isInstanceOf(AppException.class);
+
+        assertThat(order.getPaymentStatus()).isEqualTo("PENDING");
+        verify(eventPublisher, never()).publishEvent(any(PaymentStatusChangedEvent.class));
+    }
+
+    private void sendConcurrently(List<Map<String, Object>> ipns) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * 4; i++) {
+                Map<String, Object> ipn = ipns.get(i % ipns.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    paymentService.handleMomoIpn(new HashMap<>(ipn));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> signedIpn(String errorCode, String transId, String responseTime) {
+        Map<String, Object> ipn = new LinkedHashMap<>();
+        ipn.put("partnerCode", "MOMOTEST");
+        ipn.put("accessKey", ACCESS_KEY);
+        ipn.put("requestId", "REQ1");
+        ipn.put("amount", "250000");
+        ipn.put("orderId", MOMO_ORDER_ID);
+        ipn.put("orderInfo", "Thanh toan don hang 1");
+        ipn.put("orderType", "momo_wallet");
+        ipn.put("transId", transId);
+        ipn.put("errorCode", errorCode);
+        ipn.put("message", "Success");
+        ipn.put("localMessage", "Thành công");
+        ipn.put("payType", "qr");
+        ipn.put("responseTime", responseTime);
+        ipn.put("extraData", "");
+        ipn.put("signature", MomoUtil.createIpnSignature(ACCESS_KEY, SECRET_KEY, ipn));
+        return ipn;
+    }
+}
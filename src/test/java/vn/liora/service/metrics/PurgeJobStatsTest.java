@@ -0,0 +1,27 @@
+package vn.liora.service.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PurgeJobStatsTest {
+
+    @Test
+    void secondRunIsRejectedUntilFirstFinishes() {
+        PurgeJobStats stats = new PurgeJobStats();
+
+        assertThat(stats.tryStart()).isTrue();
+        assertThat(stats.tryStart()).isFalse();
+        stats.finish(10);
+        assertThat(stats.tryStart()).isTrue();
+        stats.finish(5);
+
+        assertThat(stats.putInto(new LinkedHashMap<>()))
+                .containsEntry("runs", 2L)
+                .containsEntry("totalPurged", 15L)
+                .containsEntry("lastPurged", 5L)
+                .containsKeys("lastDurationMs", "lastRowsPerSecond", "lastRunAt");
+    }
+}
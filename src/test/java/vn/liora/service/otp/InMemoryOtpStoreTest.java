@@ -0,0 +1,37 @@
+package vn.liora.service.otp;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryOtpStoreTest {
+
+    @Test
+    void fullStoreEvictsSoonestExpiringCodeInsteadOfRejecting() {
+        InMemoryOtpStore store = new InMemoryOtpStore(3, 5);
+        store.save("a@liora.vn", OtpPurpose.REGISTRATION, "111111", Duration.ofMinutes(10));
+        store.save("b@liora.vn", OtpPurpose.REGISTRATION, "222222", Duration.ofMinutes(1));
+        store.save("c@liora.vn", OtpPurpose.REGISTRATION, "333333", Duration.ofMinutes(5));
+
+        store.save("d@liora.vn", OtpPurpose.REGISTRATION, "444444", Duration.ofMinutes(5));
+
+        assertThat(store.consume("b@liora.vn", OtpPurpose.REGISTRATION, "222222")).isFalse();
+        assertThat(store.consume("a@liora.vn", OtpPurpose.REGISTRATION, "111111")).isTrue();
+        assertThat(store.consume("c@liora.vn", OtpPurpose.REGISTRATION, "333333")).isTrue();
+        assertThat(store.consume("d@liora.vn", OtpPurpose.REGISTRATION, "444444")).isTrue();
+    }
+
+    @Test
+    void resendForSameEmailReplacesCodeWithoutEvicting() {
+        InMemoryOtpStore store = new InMemoryOtpStore(2, 5);
+        store.save("a@liora.vn", OtpPurpose.REGISTRATION, "111111", Duration.ofMinutes(1));
+        store.save("b@liora.vn", OtpPurpose.REGISTRATION, "222222", Duration.ofMinutes(5));
+
+        store.save("A@liora.vn", OtpPurpose.REGISTRATION, "999999", Duration.ofMinutes(5));
+
+        assertThat(store.consume("a@liora.vn", OtpPurpose.REGISTRATION, "999999")).isTrue();
+        assertThat(store.consume("b@liora.vn", OtpPurpose.REGISTRATION, "222222")).isTrue();
+    }
+}
@@ -0,0 +1,50 @@
+package vn.liora.service.recent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RecentlyViewedBufferTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final List<Runnable> submitted = new ArrayList<>();
+
+    @Test
+    void overflowFlushRunsOnExecutorNotOnRequestThread() {
+        RecentlyViewedBuffer buffer = new RecentlyViewedBuffer(jdbcTemplate, transactionTemplate, submitted::add,
+                true, 2, 500);
+
+        buffer.record(1L, 1L, null);
+        buffer.record(1L, 2L, null);
+        assertThat(submitted).isEmpty();
+
+        buffer.record(1L, null, "guest-1");
+        buffer.record(2L, null, "guest-2");
+
+        // Chỉ một flush được xếp hàng, request không tự ghi DB
+        assertThat(submitted).hasSize(1);
+        verifyNoInteractions(transactionTemplate, jdbcTemplate);
+
+        submitted.get(0).run();
+
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        assertThat(buffer.pending(1L, null)).isEmpty();
+
+        // Sau khi flush chạy xong thì lần tràn tiếp theo lại được xếp hàng
+        buffer.record(3L, 3L, null);
+        buffer.record(3L, 4L, null);
+        buffer.record(3L, 5L, null);
+        assertThat(submitted).hasSize(2);
+    }
+}
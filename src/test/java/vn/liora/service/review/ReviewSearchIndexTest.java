@@ -0,0 +1,76 @@
+package vn.liora.service.review;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import vn.liora.repository.ReviewRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chỉ mục phải cho cùng kết quả với các truy vấn SQL mà nó thay thế (LIKE '%từ khóa%', nối sản phẩm qua
+ * orderItem), chỉ khác là không phân biệt dấu.
+ */
+class ReviewSearchIndexTest {
+
+    private static final Pageable BY_ID = PageRequest.of(0, 10, Sort.by("reviewId"));
+
+    private ReviewSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReviewRepository reviewRepository = mock(ReviewRepository.class);
+        LocalDateTime now = LocalDateTime.now();
+        // (reviewId, productId, productId qua orderItem, brandId, categoryId, rating, isVisible, createdAt, content)
+        List<Object[]> rows = List.of(
+                new Object[] {1L, 10L, 10L, 100L, 200L, 5, true, now, "Son rất đẹp, giao nhanh"},
+                new Object[] {2L, 10L, null, null, null, 4, true, now, "Đẹp lắm"},
+                new Object[] {3L, 11L, 11L, 101L, 200L, 3, false, now, "Màu không đẹp"});
+        when(reviewRepository.findSearchDocuments(eq(0L), any())).thenReturn(rows);
+        index = new ReviewSearchIndex(reviewRepository, true, 1000);
+        index.rebuild();
+    }
+
+    @Test
+    void matchesSubstringsWithoutDiacritics() {
+        assertThat(search("dep")).containsExactly(1L, 2L, 3L);
+        // Giữa từ, như LIKE '%ep%'
+        assertThat(search("ẹp")).containsExactly(1L, 2L, 3L);
+        assertThat(search("NHAN")).containsExactly(1L);
+    }
+
+    @Test
+    void matchesWholeQueryAsOnePhrase() {
+        assertThat(search("rat dep")).containsExactly(1L);
+        assertThat(search("t đẹp, g")).containsExactly(1L);
+        // Đủ các từ nhưng sai thứ tự thì LIKE không khớp
+        assertThat(search("dep rat")).isEmpty();
+    }
+
+    @Test
+    void filtersOnlyReviewsJoinedToProductThroughOrderItem() {
+        assertThat(filtered("dep", null, null, null, null, null)).containsExactly(1L, 3L);
+        assertThat(filtered("dep", null, null, 200L, null, true)).containsExactly(1L);
+        assertThat(filtered("dep", null, 101L, null, null, null)).containsExactly(3L);
+        assertThat(filtered("dep", 4, null, null, 10L, null)).isEmpty();
+    }
+
+    private List<Long> search(String text) {
+        return index.search(text, BY_ID).orElseThrow().getContent();
+    }
+
+    private List<Long> filtered(String text, Integer rating, Long brandId, Long categoryId, Long productId,
+            Boolean visible) {
+        return index.searchWithFilters(text, rating, brandId, categoryId, productId, visible, BY_ID)
+                .orElseThrow().getContent();
+    }
+}
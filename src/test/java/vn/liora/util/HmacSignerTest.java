@@ -0,0 +1,84 @@
+package vn.liora.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chữ ký phải giống hệt cách cũ: tạo Mac mới mỗi lần và hex bằng String.format("%02x").
+ */
+class HmacSignerTest {
+
+    static final String[] SAMPLES = {
+            "",
+            "vnp_Amount=10000000&vnp_Command=pay&vnp_TxnRef=123",
+            "Thanh toán đơn hàng #42 – Liora 💄",
+            "a".repeat(5000)
+    };
+
+    @Test
+    void signMatchesFreshMacWithFormattedHex() {
+        for (String data : SAMPLES) {
+            assertThat(HmacSigner.hmacSha512("VNPAYSECRET").sign(data))
+                    .isEqualTo(legacyHmac("HmacSHA512", "VNPAYSECRET", data));
+            assertThat(HmacSigner.hmacSha256("MOMOSECRET").sign(data))
+                    .isEqualTo(legacyHmac("HmacSHA256", "MOMOSECRET", data));
+        }
+        assertThat(VnpayUtil.hmacSHA512("khóa bí mật", SAMPLES[2]))
+                .isEqualTo(legacyHmac("HmacSHA512", "khóa bí mật", SAMPLES[2]));
+    }
+
+    @Test
+    void cachedMacsGiveSameResultAcrossThreadsAndSecrets() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String secret = "secret-" + (i % 5);
+                String data = SAMPLES[i % SAMPLES.length] + i;
+                results.add(executor.submit(() ->
+                        HmacSigner.hmacSha512(secret).sign(data).equals(legacyHmac("HmacSHA512", secret, data))));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hexEqualsIgnoresCaseAndRejectsMismatch() {
+        String signature = HmacSigner.hmacSha256("MOMOSECRET").sign("data");
+
+        assertThat(HmacSigner.hexEquals(signature, signature.toUpperCase())).isTrue();
+        assertThat(HmacSigner.hmacSha256("MOMOSECRET").verify("data", signature)).isTrue();
+        assertThat(HmacSigner.hmacSha256("MOMOSECRET").verify("datA", signature)).isFalse();
+        assertThat(HmacSigner.hexEquals(signature, signature.substring(1))).isFalse();
+        assertThat(HmacSigner.hexEquals(signature, null)).isFalse();
+    }
+
+    static String legacyHmac(String algorithm, String key, String data) {
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), algorithm));
+            byte[] bytes = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
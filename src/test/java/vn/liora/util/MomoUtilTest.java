@@ -0,0 +1,67 @@
+package vn.liora.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chữ ký notify (IPN / return) của MOMO: các field nối theo thứ tự cố định trong tài liệu, gồm cả localMessage.
+ * Chữ ký mong đợi được tính ngoài code (HMAC-SHA256 trên chuỗi raw viết tay), không dùng lại MomoUtil.
+ */
+class MomoUtilTest {
+
+    private static final String ACCESS_KEY = "SvDmj2cOTYZmQQ3H";
+    private static final String SECRET_KEY = "PPuDXq1KowPT1ftR8DvlQTHhC03aul17";
+
+    // partnerCode=...&accessKey=...&requestId=...&amount=...&orderId=...&orderInfo=...&orderType=...&transId=...
+    // &message=...&localMessage=...&responseTime=...&errorCode=...&payType=...&extraData=...
+    private static final String EXPECTED_SIGNATURE = "345582f74bb627a17848375a3c0a7a72b3b1c4b23f3992348d2f1afad968ea2f";
+
+    @Test
+    void ipnSignatureMatchesKnownAnswer() {
+        Map<String, Object> ipn = sampleIpn();
+
+        assertThat(MomoUtil.createIpnSignature(ACCESS_KEY, SECRET_KEY, ipn)).isEqualTo(EXPECTED_SIGNATURE);
+
+        ipn.put("signature", EXPECTED_SIGNATURE);
+        assertThat(MomoUtil.verifySignature(ACCESS_KEY, SECRET_KEY, ipn)).isTrue();
+    }
+
+    @Test
+    void ipnSignatureRejectsChangedFieldsAndForeignAccessKey() {
+        Map<String, Object> ipn = sampleIpn();
+        ipn.put("signature", EXPECTED_SIGNATURE);
+
+        Map<String, Object> tamperedLocalMessage = new HashMap<>(ipn);
+        tamperedLocalMessage.put("localMessage", "Thất bại");
+        Map<String, Object> tamperedAmount = new HashMap<>(ipn);
+        tamperedAmount.put("amount", "1");
+
+        assertThat(MomoUtil.verifySignature(ACCESS_KEY, SECRET_KEY, tamperedLocalMessage)).isFalse();
+        assertThat(MomoUtil.verifySignature(ACCESS_KEY, SECRET_KEY, tamperedAmount)).isFalse();
+        assertThat(MomoUtil.verifySignature("OTHERACCESSKEY", SECRET_KEY, ipn)).isFalse();
+    }
+
+    private static Map<String, Object> sampleIpn() {
+        // HashMap: thứ tự trong map không ảnh hưởng chữ ký
+        Map<String, Object> ipn = new HashMap<>();
+        ipn.put("partnerCode", "MOMOIQA420180417");
+        ipn.put("accessKey", ACCESS_KEY);
+        ipn.put("requestId", "MM1540456472575");
+        ipn.put("amount", "150000");
+        ipn.put("orderId", "MM1540456472575");
+        ipn.put("orderInfo", "SDK team.");
+        ipn.put("orderType", "momo_wallet");
+        ipn.put("transId", "2302586804");
+        ipn.put("message", "Success");
+        ipn.put("localMessage", "Thành công");
+        ipn.put("responseTime", "2018-10-25 15:35:08");
+        ipn.put("errorCode", "0");
+        ipn.put("payType", "qr");
+        ipn.put("extraData", "email=abc@gmail.com");
+        return ipn;
+    }
+}
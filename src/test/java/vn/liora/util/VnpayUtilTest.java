@@ -0,0 +1,104 @@
+package vn.liora.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dữ liệu ký VNPAY / MOMO phải giống từng ký tự với cách dựng cũ (URLEncoder + map copy, String.format).
+ */
+class VnpayUtilTest {
+
+    private static final String[] VALUES = {
+            "10000000", "Thanh toan don hang 42", "Thanh toán đơn hàng #42 – Liora 💄",
+            "a+b=c&d/e?f", "~!@#$%^*()_-.", "http://localhost:8080/payment/vnpay-return?x=1 2", " "
+    };
+
+    @Test
+    void urlEncodeAsciiMatchesUrlEncoder() {
+        for (String value : VALUES) {
+            assertThat(VnpayUtil.urlEncodeAscii(value)).isEqualTo(legacyUrlEncodeAscii(value));
+
+            StringBuilder form = new StringBuilder();
+            VnpayUtil.appendFormEncodedAscii(form, value);
+            assertThat(form.toString()).isEqualTo(URLEncoder.encode(value, StandardCharsets.US_ASCII));
+        }
+        // Ký tự không phải ASCII ở cuối chuỗi, surrogate đứng lẻ
+        assertThat(VnpayUtil.urlEncodeAscii("x\uD83D")).isEqualTo(legacyUrlEncodeAscii("x\uD83D"));
+    }
+
+    @Test
+    void buildQueryMatchesLegacyForHashSortedAndEmptyLastValue() {
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < VALUES.length; i++) {
+            params.put("vnp_Field" + (char) ('A' + i), VALUES[i]);
+        }
+        assertThat(VnpayUtil.buildQuery(params)).isEqualTo(legacyBuildQuery(params));
+        assertThat(VnpayUtil.buildQuery(new TreeMap<>(params))).isEqualTo(legacyBuildQuery(params));
+
+        // Giá trị rỗng ở cuối: cách cũ để lại dấu '&' thừa, chữ ký phải giữ nguyên hành vi đó
+        params.put("vnp_Zzz", "");
+        assertThat(VnpayUtil.buildQuery(params)).isEqualTo(legacyBuildQuery(params)).endsWith("&");
+    }
+
+    @Test
+    void buildSignDataMatchesCopyAndRemoveOfSecureHashFields() {
+        Map<String, String> ipn = new HashMap<>();
+        ipn.put("vnp_Amount", "10000000");
+        ipn.put("vnp_OrderInfo", VALUES[2]);
+        ipn.put("vnp_ResponseCode", "00");
+        ipn.put("vnp_TxnRef", "42_1700000000000");
+        ipn.put("vnp_SecureHash", "abc");
+        ipn.put("vnp_SecureHashType", "HmacSHA512");
+
+        Map<String, String> legacy = new HashMap<>(ipn);
+        legacy.remove("vnp_SecureHash");
+        legacy.remove("vnp_SecureHashType");
+
+        assertThat(VnpayUtil.buildSignData(ipn)).isEqualTo(legacyBuildQuery(legacy));
+        assertThat(VnpayUtil.hmacSHA512("SECRET", VnpayUtil.buildSignData(ipn)))
+                .isEqualTo(HmacSignerTest.legacyHmac("HmacSHA512", "SECRET", legacyBuildQuery(legacy)));
+    }
+
+    @Test
+    void momoCreateSignatureMatchesLegacyRawData() {
+        String legacyCreate = String.format(
+                "partnerCode=%s&accessKey=%s&requestId=%s&amount=%s&orderId=%s&orderInfo=%s&returnUrl=%s&notifyUrl=%s&extraData=%s",
+                "MOMO", "ACCESS", "REQ1", "250000", "ORDER_1", VALUES[2], "http://shop/return", "", "");
+        assertThat(MomoUtil.createSignature("ACCESS", "SECRET", "MOMO", "ORDER_1", "REQ1",
+                new BigDecimal("250000.00"), VALUES[2], "http://shop/return", null, "captureMoMoWallet", null))
+                .isEqualTo(HmacSignerTest.legacyHmac("HmacSHA256", "SECRET", legacyCreate));
+    }
+
+    private static String legacyUrlEncodeAscii(String input) {
+        return URLEncoder.encode(input, StandardCharsets.US_ASCII).replace("+", "%20");
+    }
+
+    private static String legacyBuildQuery(Map<String, String> params) {
+        List<String> fieldNames = new ArrayList<>(params.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fieldNames.size(); i++) {
+            String field = fieldNames.get(i);
+            String value = params.get(field);
+            if (value != null && value.length() > 0) {
+                sb.append(legacyUrlEncodeAscii(field));
+                sb.append('=');
+                sb.append(legacyUrlEncodeAscii(value));
+                if (i < fieldNames.size() - 1)
+                    sb.append('&');
+            }
+        }
+        return sb.toString();
+    }
+}